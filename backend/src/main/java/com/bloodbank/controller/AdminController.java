@@ -1,18 +1,33 @@
 package com.bloodbank.controller;
 
+import com.bloodbank.dto.CursorPage;
+import com.bloodbank.dto.InventoryGrid;
+import com.bloodbank.dto.PageCursor;
 import com.bloodbank.dto.ReservationDto;
 import com.bloodbank.entity.Donor;
 import com.bloodbank.repository.BloodBankRepository;
 import com.bloodbank.repository.DonorRepository;
 import com.bloodbank.service.DonorNotificationService;
+import com.bloodbank.service.ExpirySweeper;
+import com.bloodbank.service.ExportService;
+import com.bloodbank.service.InventoryLedger;
 import com.bloodbank.service.InventoryService;
+import com.bloodbank.service.NotificationRelay;
+import com.bloodbank.service.ReservationExpirer;
 import com.bloodbank.service.ReservationService;
 import com.bloodbank.service.WhatsAppService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -30,19 +45,34 @@ public class AdminController {
     private final DonorRepository donorRepository;
     private final WhatsAppService whatsAppService;
     private final DonorNotificationService donorNotificationService;
+    private final ExportService exportService;
+    private final InventoryLedger inventoryLedger;
+    private final ExpirySweeper expirySweeper;
+    private final ReservationExpirer reservationExpirer;
+    private final NotificationRelay notificationRelay;
 
     public AdminController(ReservationService reservationService,
             InventoryService inventoryService,
             BloodBankRepository bloodBankRepository,
             DonorRepository donorRepository,
             WhatsAppService whatsAppService,
-            DonorNotificationService donorNotificationService) {
+            DonorNotificationService donorNotificationService,
+            ExportService exportService,
+            InventoryLedger inventoryLedger,
+            ExpirySweeper expirySweeper,
+            ReservationExpirer reservationExpirer,
+            NotificationRelay notificationRelay) {
         this.reservationService = reservationService;
         this.inventoryService = inventoryService;
         this.bloodBankRepository = bloodBankRepository;
         this.donorRepository = donorRepository;
         this.whatsAppService = whatsAppService;
         this.donorNotificationService = donorNotificationService;
+        this.exportService = exportService;
+        this.inventoryLedger = inventoryLedger;
+        this.expirySweeper = expirySweeper;
+        this.reservationExpirer = reservationExpirer;
+        this.notificationRelay = notificationRelay;
     }
 
     @GetMapping("/stats")
@@ -56,12 +86,14 @@ public class AdminController {
                 reservationStats.put("confirmed", safeToInt(stats[2]));
                 reservationStats.put("completed", safeToInt(stats[3]));
                 reservationStats.put("cancelled", safeToInt(stats[4]));
+                reservationStats.put("expired", stats.length > 5 ? safeToInt(stats[5]) : 0);
             } else {
                 reservationStats.put("total", 0);
                 reservationStats.put("pending", 0);
                 reservationStats.put("confirmed", 0);
                 reservationStats.put("completed", 0);
                 reservationStats.put("cancelled", 0);
+                reservationStats.put("expired", 0);
             }
         } catch (Exception e) {
             log.warn("Error getting reservation stats: {}", e.getMessage());
@@ -70,6 +102,7 @@ public class AdminController {
             reservationStats.put("confirmed", 0);
             reservationStats.put("completed", 0);
             reservationStats.put("cancelled", 0);
+            reservationStats.put("expired", 0);
         }
 
         Map<String, Object> bloodBankStats = new HashMap<>();
@@ -86,9 +119,8 @@ public class AdminController {
 
         List<Map<String, Object>> lowStockAlerts = inventoryService.getLowStockAlerts();
 
-        List<ReservationDto> allReservations = reservationService.getAllReservations();
-        List<Map<String, Object>> recentActivity = allReservations.stream()
-                .limit(5)
+        List<ReservationDto> recentReservations = reservationService.getReservationsPage(null, 5).items();
+        List<Map<String, Object>> recentActivity = recentReservations.stream()
                 .map(r -> {
                     Map<String, Object> item = new HashMap<>();
                     item.put("id", r.getId());
@@ -118,26 +150,53 @@ public class AdminController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Current low-stock pairs, each against its bank's own threshold (the same set
+     * the dashboard and the lowStock inventory filter use). ?threshold=N overrides
+     * the per-bank thresholds with one ad-hoc value for every bank.
+     */
     @GetMapping("/low-stock")
-    public ResponseEntity<Map<String, Object>> getLowStockAlerts() {
-        List<Map<String, Object>> alerts = inventoryService.getLowStockAlerts();
+    public ResponseEntity<Map<String, Object>> getLowStockAlerts(
+            @RequestParam(required = false) Integer threshold) {
+        List<Map<String, Object>> alerts = threshold != null
+                ? inventoryService.getLowStockAlerts(threshold)
+                : inventoryService.getLowStockAlerts();
 
         Map<String, Object> response = new HashMap<>();
         response.put("success", true);
-        response.put("threshold", InventoryService.DEFAULT_LOW_STOCK_THRESHOLD);
+        response.put("threshold", threshold);
+        response.put("perBankThresholds", threshold == null);
         response.put("count", alerts.size());
         response.put("data", alerts);
 
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Inventory of all banks in one query. format=columnar returns parallel arrays
+     * (bankIds, bankNames, cities, units per blood type) instead of one object per bank.
+     * lowStock=true keeps banks that are low against their own thresholds, or
+     * against threshold for every bank when it is given.
+     */
     @GetMapping("/inventory")
-    public ResponseEntity<Map<String, Object>> getAllInventory() {
-        List<Map<String, Object>> inventory = inventoryService.getAllInventoryGroupedByBank();
+    public ResponseEntity<Map<String, Object>> getAllInventory(
+            @RequestParam(required = false) String city,
+            @RequestParam(defaultValue = "false") boolean lowStock,
+            @RequestParam(required = false) Integer threshold,
+            @RequestParam(required = false) String format) {
 
         Map<String, Object> response = new HashMap<>();
         response.put("success", true);
-        response.put("data", inventory);
+        if ("columnar".equalsIgnoreCase(format)) {
+            InventoryGrid grid = inventoryService.getInventoryGrid(city, lowStock, threshold);
+            response.put("count", grid.size());
+            response.put("data", grid);
+        } else {
+            List<Map<String, Object>> inventory = inventoryService.getAllInventoryGroupedByBank(city, lowStock,
+                    threshold);
+            response.put("count", inventory.size());
+            response.put("data", inventory);
+        }
 
         return ResponseEntity.ok(response);
     }
@@ -185,6 +244,37 @@ public class AdminController {
         }
     }
 
+    /**
+     * Bulk inventory upsert: { "rows": [ { bloodBankId, bloodType, units, collectionDate? } ] }
+     */
+    @PutMapping("/inventory/bulk")
+    public ResponseEntity<Map<String, Object>> bulkUpdateInventory(
+            @RequestBody Map<String, Object> request) {
+
+        Object rowsObj = request.get("rows");
+        if (!(rowsObj instanceof List) || ((List<?>) rowsObj).isEmpty()
+                || ((List<?>) rowsObj).size() > InventoryService.MAX_BULK_ROWS) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", "rows must be a list of 1 to " + InventoryService.MAX_BULK_ROWS + " entries");
+            return ResponseEntity.badRequest().body(error);
+        }
+
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> rows = (List<Map<String, Object>>) rowsObj;
+        List<Map<String, Object>> results = inventoryService.bulkUpsertInventory(rows, null);
+        long applied = results.stream().filter(r -> "upserted".equals(r.get("status"))).count();
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", applied + " of " + rows.size() + " inventory rows applied");
+        response.put("applied", applied);
+        response.put("rejected", rows.size() - applied);
+        response.put("data", results);
+
+        return ResponseEntity.ok(response);
+    }
+
     private int safeToInt(Object value) {
         if (value == null)
             return 0;
@@ -198,6 +288,78 @@ public class AdminController {
         }
     }
 
+    /**
+     * Set a bank's low-stock threshold for one blood type; a null threshold restores the default
+     */
+    @PutMapping("/inventory/thresholds")
+    public ResponseEntity<Map<String, Object>> setLowStockThreshold(@RequestBody Map<String, Object> request) {
+        Object bloodBankIdObj = request.get("bloodBankId");
+        Object bloodType = request.get("bloodType");
+        if (bloodBankIdObj == null || bloodType == null) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", "bloodBankId and bloodType are required");
+            return ResponseEntity.badRequest().body(error);
+        }
+
+        Long bankId = ((Number) bloodBankIdObj).longValue();
+        Integer threshold = request.get("threshold") != null ? ((Number) request.get("threshold")).intValue() : null;
+        Map<String, Object> result = inventoryService.setLowStockThreshold(bankId, bloodType.toString(), threshold);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", result);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * A bank's units per blood type as of a past instant, rebuilt from the inventory ledger
+     */
+    @GetMapping("/inventory/history")
+    public ResponseEntity<Map<String, Object>> getInventoryAt(
+            @RequestParam Long bankId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+
+        LocalDateTime instant = at != null ? at : LocalDateTime.now();
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("bankId", bankId);
+        response.put("at", instant);
+        response.put("data", inventoryLedger.getUnitsAt(bankId, instant));
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * A bank's inventory movements in a time range (defaults to the last 7 days)
+     */
+    @GetMapping("/inventory/movements")
+    public ResponseEntity<Map<String, Object>> getInventoryMovements(
+            @RequestParam Long bankId,
+            @RequestParam(required = false) String bloodType,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "1000") int limit) {
+
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusDays(7);
+        int cappedLimit = Math.max(1, Math.min(limit, InventoryLedger.MAX_HISTORY_ROWS));
+
+        List<Map<String, Object>> movements = inventoryLedger.getMovements(bankId, bloodType, start, end,
+                cappedLimit);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("bankId", bankId);
+        response.put("from", start);
+        response.put("to", end);
+        response.put("count", movements.size());
+        response.put("data", movements);
+
+        return ResponseEntity.ok(response);
+    }
+
     // Endpoint to fix duplicate phone numbers
     @PostMapping("/fix-duplicate-phones")
     public ResponseEntity<Map<String, Object>> fixDuplicatePhones() {
@@ -260,14 +422,90 @@ public class AdminController {
         return ResponseEntity.ok(result);
     }
 
+    /**
+     * Expiry sweeper metrics: last run and totals since startup
+     */
+    @GetMapping("/units/expiry-sweep")
+    public ResponseEntity<Map<String, Object>> getExpirySweepStats() {
+        return ResponseEntity.ok(Map.of("success", true, "data", expirySweeper.getStats()));
+    }
+
+    /**
+     * Run the expiry sweeper across all banks now
+     */
+    @PostMapping("/units/expiry-sweep")
+    public ResponseEntity<Map<String, Object>> runExpirySweep() {
+        ExpirySweeper.Run run = expirySweeper.sweepAll();
+        return ResponseEntity.ok(Map.of("success", true, "message", run.expired() + " units marked as expired",
+                "data", run));
+    }
+
+    /**
+     * Reservation expiry metrics: last run and totals since startup
+     */
+    @GetMapping("/reservations/expiry")
+    public ResponseEntity<Map<String, Object>> getReservationExpiryStats() {
+        return ResponseEntity.ok(Map.of("success", true, "data", reservationExpirer.getStats()));
+    }
+
+    /**
+     * Expire overdue pending reservations now
+     */
+    @PostMapping("/reservations/expiry")
+    public ResponseEntity<Map<String, Object>> runReservationExpiry() {
+        ReservationExpirer.Run run = reservationExpirer.expireAll();
+        return ResponseEntity.ok(Map.of("success", true, "message", run.expired() + " reservations expired",
+                "data", run));
+    }
+
+    /**
+     * Notification outbox: messages by status, last relay run and totals since startup
+     */
+    @GetMapping("/notifications/outbox")
+    public ResponseEntity<Map<String, Object>> getNotificationOutboxStats() {
+        return ResponseEntity.ok(Map.of("success", true, "data", notificationRelay.getStats()));
+    }
+
+    /**
+     * Deliver every due outbox message now
+     */
+    @PostMapping("/notifications/outbox/relay")
+    public ResponseEntity<Map<String, Object>> runNotificationRelay() {
+        NotificationRelay.Run run = notificationRelay.relayAll();
+        return ResponseEntity.ok(Map.of("success", true, "message", run.sent() + " notifications sent",
+                "data", run));
+    }
+
+    /**
+     * Requeue outbox messages that ran out of attempts
+     */
+    @PostMapping("/notifications/outbox/retry-failed")
+    public ResponseEntity<Map<String, Object>> retryFailedNotifications() {
+        int requeued = notificationRelay.retryFailed();
+        return ResponseEntity.ok(Map.of("success", true, "message", requeued + " notifications requeued"));
+    }
+
     /**
      * Get all donors for admin panel
      */
     @GetMapping("/donors")
-    public ResponseEntity<Map<String, Object>> getAllDonors() {
-        List<Donor> donors = donorRepository.findAll();
+    public ResponseEntity<Map<String, Object>> getAllDonors(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        PageCursor after = PageCursor.decode(cursor);
+        int pageSize = PageCursor.clampLimit(limit);
+        PageRequest page = PageRequest.of(0, pageSize + 1);
+        List<Donor> donors;
+        if (after == null) {
+            donors = donorRepository.findFirstPage(page);
+        } else if (after.timestamp() == null) {
+            donors = donorRepository.findPageAfterUndated(after.id(), page);
+        } else {
+            donors = donorRepository.findPageAfter(after.timestamp(), after.id(), page);
+        }
 
-        List<Map<String, Object>> donorList = donors.stream().map(d -> {
+        CursorPage<Map<String, Object>> donorPage = CursorPage.of(donors, pageSize,
+                d -> PageCursor.of(d.getCreatedAt(), d.getId()), d -> {
             Map<String, Object> dto = new HashMap<>();
             dto.put("id", d.getId());
             dto.put("name", d.getName());
@@ -281,13 +519,48 @@ public class AdminController {
             dto.put("eligible", d.isEligible());
             dto.put("daysUntilEligible", d.getDaysUntilEligible());
             return dto;
-        }).collect(Collectors.toList());
+        });
 
         Map<String, Object> response = new HashMap<>();
         response.put("success", true);
-        response.put("data", donorList);
-        response.put("count", donorList.size());
+        response.put("data", donorPage.items());
+        response.put("count", donorPage.count());
+        response.put("nextCursor", donorPage.nextCursor());
+        response.put("hasMore", donorPage.hasMore());
 
         return ResponseEntity.ok(response);
     }
+
+    /**
+     * Stream every donor, blood unit or reservation as NDJSON (default) or CSV.
+     * Rows are written as they are read, so the export never builds a full list.
+     */
+    @GetMapping("/export/{dataset}")
+    public ResponseEntity<StreamingResponseBody> export(
+            @PathVariable String dataset,
+            @RequestParam(defaultValue = ExportService.FORMAT_NDJSON) String format) {
+        String fmt = format.toLowerCase();
+        if (!ExportService.isSupportedFormat(fmt)) {
+            throw new IllegalArgumentException("Unsupported export format: " + format + " (use ndjson or csv)");
+        }
+
+        StreamingResponseBody body;
+        switch (dataset) {
+            case "donors" -> body = out -> exportService.exportDonors(out, fmt);
+            case "units" -> body = out -> exportService.exportUnits(out, fmt);
+            case "reservations" -> body = out -> exportService.exportReservations(out, fmt);
+            default -> throw new IllegalArgumentException(
+                    "Unknown export dataset: " + dataset + " (use donors, units or reservations)");
+        }
+
+        MediaType contentType = ExportService.FORMAT_CSV.equals(fmt)
+                ? MediaType.parseMediaType("text/csv")
+                : MediaType.parseMediaType("application/x-ndjson");
+        String filename = dataset + "-" + LocalDate.now() + "." + fmt;
+
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
+    }
 }
@@ -2,6 +2,7 @@ package com.bloodbank.controller;
 
 import com.bloodbank.repository.*;
 import com.bloodbank.security.BankPrincipal;
+import com.bloodbank.service.WastageForecaster;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
@@ -19,18 +20,21 @@ public class AnalyticsController {
     private final BloodBankRepository bloodBankRepository;
     private final BloodInventoryRepository bloodInventoryRepository;
     private final ReservationRepository reservationRepository;
+    private final WastageForecaster wastageForecaster;
 
     public AnalyticsController(
             DonorRepository donorRepository,
             DonationRepository donationRepository,
             BloodBankRepository bloodBankRepository,
             BloodInventoryRepository bloodInventoryRepository,
-            ReservationRepository reservationRepository) {
+            ReservationRepository reservationRepository,
+            WastageForecaster wastageForecaster) {
         this.donorRepository = donorRepository;
         this.donationRepository = donationRepository;
         this.bloodBankRepository = bloodBankRepository;
         this.bloodInventoryRepository = bloodInventoryRepository;
         this.reservationRepository = reservationRepository;
+        this.wastageForecaster = wastageForecaster;
     }
 
     /**
@@ -141,6 +145,8 @@ public class AnalyticsController {
             Map<String, Object> item = new HashMap<>();
             item.put("type", inv.getBloodType());
             item.put("units", inv.getUnitsAvailable());
+            item.put("held", inv.getUnitsHeld());
+            item.put("free", inv.getFreeUnits());
             data.add(item);
         }
 
@@ -191,7 +197,7 @@ public class AnalyticsController {
         Map<String, Object> stats = new HashMap<>();
         List<Map<String, Object>> data = new ArrayList<>();
 
-        String[] statuses = { "pending", "confirmed", "completed", "cancelled" };
+        String[] statuses = { "pending", "confirmed", "completed", "cancelled", "expired" };
         for (String status : statuses) {
             Map<String, Object> item = new HashMap<>();
             item.put("status", status);
@@ -225,4 +231,45 @@ public class AnalyticsController {
         trend.put("data", data);
         return ResponseEntity.ok(trend);
     }
+
+    /**
+     * Bank Portal Analytics - Projected wastage over the next 1/3/7 days, from the
+     * nightly forecast
+     */
+    @GetMapping("/bank/wastage-forecast")
+    public ResponseEntity<Map<String, Object>> getBankWastageForecast(
+            @AuthenticationPrincipal BankPrincipal principal) {
+
+        if (principal == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
+        }
+
+        Map<String, Object> forecast = new HashMap<>();
+        forecast.put("horizons", WastageForecaster.HORIZONS);
+        forecast.put("data", wastageForecaster.getForecast(principal.getId()));
+        return ResponseEntity.ok(forecast);
+    }
+
+    /**
+     * Admin Analytics - Projected wastage of all banks, most waste first, for
+     * redistribution between banks
+     */
+    @GetMapping("/admin/wastage-forecast")
+    public ResponseEntity<Map<String, Object>> getWastageForecast() {
+        Map<String, Object> forecast = new HashMap<>();
+        forecast.put("horizons", WastageForecaster.HORIZONS);
+        forecast.put("lastRun", wastageForecaster.getLastRun());
+        forecast.put("data", wastageForecaster.getForecasts());
+        return ResponseEntity.ok(forecast);
+    }
+
+    /**
+     * Admin Analytics - Recompute the wastage forecast of all banks now
+     */
+    @PostMapping("/admin/wastage-forecast")
+    public ResponseEntity<Map<String, Object>> runWastageForecast() {
+        Map<String, Object> forecast = new HashMap<>();
+        forecast.put("lastRun", wastageForecaster.forecastAll("manual"));
+        return ResponseEntity.ok(forecast);
+    }
 }
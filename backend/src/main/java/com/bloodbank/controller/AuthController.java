@@ -95,6 +95,29 @@ public class AuthController {
         }
     }
 
+    /**
+     * Token for the admin-only endpoints (/api/admin/export/**)
+     */
+    @PostMapping("/admin/login")
+    public ResponseEntity<AuthRequest.AuthResponse> adminLogin(
+            @RequestBody Map<String, String> request) {
+        String password = request.get("password");
+        if (password == null) {
+            return ResponseEntity.badRequest().body(
+                    AuthRequest.AuthResponse.builder()
+                            .success(false)
+                            .message("Password is required")
+                            .build());
+        }
+
+        AuthRequest.AuthResponse response = authService.adminLogin(password);
+        if (!response.isSuccess()) {
+            log.warn("Admin login failed");
+            return ResponseEntity.status(401).body(response);
+        }
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping("/bank/me")
     public ResponseEntity<Map<String, Object>> getCurrentBank(
             @AuthenticationPrincipal BankPrincipal principal) {
@@ -5,17 +5,25 @@ import com.bloodbank.dto.DonorDto;
 import com.bloodbank.dto.ReservationDto;
 import com.bloodbank.entity.Reservation;
 import com.bloodbank.security.BankPrincipal;
+import com.bloodbank.security.JwtTokenProvider;
+import com.bloodbank.service.BankEventFeed;
 import com.bloodbank.service.DonorService;
+import com.bloodbank.service.InventoryLedger;
 import com.bloodbank.service.InventoryService;
+import com.bloodbank.service.NotificationOutbox;
+import com.bloodbank.service.ReservationQueue;
 import com.bloodbank.service.ReservationService;
-import com.bloodbank.service.WhatsAppService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -27,19 +35,31 @@ public class BankPortalController {
 
     private static final Logger log = LoggerFactory.getLogger(BankPortalController.class);
 
+    private static final int DEFAULT_QUEUE_LIMIT = 50;
+    private static final int MAX_QUEUE_LIMIT = 500;
+
     private final ReservationService reservationService;
     private final InventoryService inventoryService;
-    private final WhatsAppService whatsAppService;
     private final DonorService donorService;
+    private final InventoryLedger inventoryLedger;
+    private final ReservationQueue reservationQueue;
+    private final BankEventFeed bankEventFeed;
+    private final JwtTokenProvider jwtTokenProvider;
 
     public BankPortalController(ReservationService reservationService,
             InventoryService inventoryService,
-            WhatsAppService whatsAppService,
-            DonorService donorService) {
+            DonorService donorService,
+            InventoryLedger inventoryLedger,
+            ReservationQueue reservationQueue,
+            BankEventFeed bankEventFeed,
+            JwtTokenProvider jwtTokenProvider) {
         this.reservationService = reservationService;
         this.inventoryService = inventoryService;
-        this.whatsAppService = whatsAppService;
         this.donorService = donorService;
+        this.inventoryLedger = inventoryLedger;
+        this.reservationQueue = reservationQueue;
+        this.bankEventFeed = bankEventFeed;
+        this.jwtTokenProvider = jwtTokenProvider;
     }
 
     @GetMapping("/stats")
@@ -75,12 +95,15 @@ public class BankPortalController {
                     reservationStats.put("confirmed", stats[2] != null ? ((Number) stats[2]).intValue() : 0);
                     reservationStats.put("completed", stats[3] != null ? ((Number) stats[3]).intValue() : 0);
                     reservationStats.put("cancelled", stats[4] != null ? ((Number) stats[4]).intValue() : 0);
+                    reservationStats.put("expired",
+                            stats.length > 5 && stats[5] != null ? ((Number) stats[5]).intValue() : 0);
                 } else {
                     reservationStats.put("total", 0);
                     reservationStats.put("pending", 0);
                     reservationStats.put("confirmed", 0);
                     reservationStats.put("completed", 0);
                     reservationStats.put("cancelled", 0);
+                    reservationStats.put("expired", 0);
                 }
             } catch (Exception e) {
                 log.warn("Error getting reservation stats: {}", e.getMessage());
@@ -89,6 +112,7 @@ public class BankPortalController {
                 reservationStats.put("confirmed", 0);
                 reservationStats.put("completed", 0);
                 reservationStats.put("cancelled", 0);
+                reservationStats.put("expired", 0);
             }
 
             List<BloodInventoryDto> inventory = inventoryService.getInventoryByBankId(bankId);
@@ -103,6 +127,8 @@ public class BankPortalController {
                         Map<String, Object> item = new HashMap<>();
                         item.put("type", inv.getBloodType());
                         item.put("units", inv.getUnitsAvailable());
+                        item.put("held", inv.getUnitsHeld());
+                        item.put("free", inv.getFreeUnits());
                         return item;
                     })
                     .collect(Collectors.toList()) : List.of());
@@ -154,6 +180,75 @@ public class BankPortalController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Short-lived token for opening the event stream. EventSource cannot send
+     * headers, so the stream takes ?token=; the session JWT must not go there.
+     */
+    @PostMapping("/events/token")
+    public ResponseEntity<Map<String, Object>> getEventStreamToken(
+            @AuthenticationPrincipal BankPrincipal principal) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("token", jwtTokenProvider.generateStreamToken(principal.getId()));
+        response.put("expiresIn", jwtTokenProvider.getStreamExpiration() / 1000);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Live dashboard feed (server-sent events): reservation, inventory, low-stock
+     * and unit-expiring events for the signed-in bank. Opened with ?token= set to
+     * a stream token from POST /events/token; the token is only checked on connect.
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEvents(@AuthenticationPrincipal BankPrincipal principal) {
+        return bankEventFeed.subscribe(principal.getId());
+    }
+
+    /**
+     * Open reservations in work order: emergency first, then oldest, then largest
+     */
+    @GetMapping("/queue")
+    public ResponseEntity<Map<String, Object>> getQueue(
+            @AuthenticationPrincipal BankPrincipal principal,
+            @RequestParam(required = false) Integer limit) {
+
+        int size = limit == null ? DEFAULT_QUEUE_LIMIT : Math.max(1, Math.min(limit, MAX_QUEUE_LIMIT));
+        List<ReservationQueue.Entry> queue = reservationQueue.top(principal.getId(), size);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("count", queue.size());
+        response.put("total", reservationQueue.size(principal.getId()));
+        response.put("byUrgency", reservationQueue.countByUrgency(principal.getId()));
+        response.put("data", queue);
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Units allocated FEFO to one of the bank's reservations (the pull list)
+     */
+    @GetMapping("/reservations/{id}/units")
+    public ResponseEntity<Map<String, Object>> getReservationUnits(
+            @AuthenticationPrincipal BankPrincipal principal,
+            @PathVariable Long id) {
+
+        return reservationService.getAllocatedUnits(id, principal.getId())
+                .map(units -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("success", true);
+                    response.put("count", units.size());
+                    response.put("data", units);
+                    return ResponseEntity.ok(response);
+                })
+                .orElseGet(() -> {
+                    Map<String, Object> error = new HashMap<>();
+                    error.put("success", false);
+                    error.put("error", "Reservation not found or not authorized");
+                    return ResponseEntity.status(404).body(error);
+                });
+    }
+
     @PutMapping("/reservations/{id}/status")
     public ResponseEntity<Map<String, Object>> updateReservationStatus(
             @AuthenticationPrincipal BankPrincipal principal,
@@ -171,13 +266,11 @@ public class BankPortalController {
 
         return reservationService.updateStatusForBank(id, principal.getId(), status)
                 .map(reservation -> {
-                    Map<String, Object> whatsappStatus = whatsAppService.getStatus();
-                    boolean isReady = Boolean.TRUE.equals(whatsappStatus.get("isReady"));
-
                     Map<String, Object> response = new HashMap<>();
                     response.put("success", true);
                     response.put("message", "Status updated to " + status);
-                    response.put("whatsappNotification", isReady ? "sent" : "not_sent");
+                    // Delivered by the notification relay once the change is committed
+                    response.put("whatsappNotification", notificationStatus(reservation));
                     response.put("data", reservation);
                     return ResponseEntity.ok(response);
                 })
@@ -200,6 +293,8 @@ public class BankPortalController {
                     Map<String, Object> item = new HashMap<>();
                     item.put("blood_type", inv.getBloodType());
                     item.put("units_available", inv.getUnitsAvailable());
+                    item.put("units_held", inv.getUnitsHeld());
+                    item.put("units_free", inv.getFreeUnits());
                     item.put("collection_date", inv.getCollectionDate());
                     item.put("expiry_date", inv.getExpiryDate());
                     item.put("days_left", inv.getDaysLeft());
@@ -247,6 +342,110 @@ public class BankPortalController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Bulk inventory upsert for this bank: { "rows": [ { bloodType, units, collectionDate? } ] }
+     */
+    @PutMapping("/inventory/bulk")
+    public ResponseEntity<Map<String, Object>> bulkUpdateInventory(
+            @AuthenticationPrincipal BankPrincipal principal,
+            @RequestBody Map<String, Object> request) {
+
+        Object rowsObj = request.get("rows");
+        if (!(rowsObj instanceof List) || ((List<?>) rowsObj).isEmpty()
+                || ((List<?>) rowsObj).size() > InventoryService.MAX_BULK_ROWS) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", "rows must be a list of 1 to " + InventoryService.MAX_BULK_ROWS + " entries");
+            return ResponseEntity.badRequest().body(error);
+        }
+
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> rows = (List<Map<String, Object>>) rowsObj;
+        List<Map<String, Object>> results = inventoryService.bulkUpsertInventory(rows, principal.getId());
+        long applied = results.stream().filter(r -> "upserted".equals(r.get("status"))).count();
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", applied + " of " + rows.size() + " inventory rows applied");
+        response.put("applied", applied);
+        response.put("rejected", rows.size() - applied);
+        response.put("data", results);
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Set this bank's low-stock threshold for one blood type; a null threshold restores the default
+     */
+    @PutMapping("/inventory/thresholds")
+    public ResponseEntity<Map<String, Object>> setLowStockThreshold(
+            @AuthenticationPrincipal BankPrincipal principal,
+            @RequestBody Map<String, Object> request) {
+
+        Object bloodType = request.get("bloodType");
+        if (bloodType == null) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", "bloodType is required");
+            return ResponseEntity.badRequest().body(error);
+        }
+
+        Integer threshold = request.get("threshold") != null ? ((Number) request.get("threshold")).intValue() : null;
+        Map<String, Object> result = inventoryService.setLowStockThreshold(principal.getId(), bloodType.toString(),
+                threshold);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", result);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Units per blood type as of a past instant, rebuilt from the inventory ledger
+     */
+    @GetMapping("/inventory/history")
+    public ResponseEntity<Map<String, Object>> getInventoryAt(
+            @AuthenticationPrincipal BankPrincipal principal,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+
+        LocalDateTime instant = at != null ? at : LocalDateTime.now();
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("at", instant);
+        response.put("data", inventoryLedger.getUnitsAt(principal.getId(), instant));
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Inventory movements in a time range (defaults to the last 7 days)
+     */
+    @GetMapping("/inventory/movements")
+    public ResponseEntity<Map<String, Object>> getInventoryMovements(
+            @AuthenticationPrincipal BankPrincipal principal,
+            @RequestParam(required = false) String bloodType,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "1000") int limit) {
+
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusDays(7);
+        int cappedLimit = Math.max(1, Math.min(limit, InventoryLedger.MAX_HISTORY_ROWS));
+
+        List<Map<String, Object>> movements = inventoryLedger.getMovements(principal.getId(), bloodType,
+                start, end, cappedLimit);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("from", start);
+        response.put("to", end);
+        response.put("count", movements.size());
+        response.put("data", movements);
+
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping("/expiring")
     public ResponseEntity<Map<String, Object>> getExpiringBlood(
             @AuthenticationPrincipal BankPrincipal principal) {
@@ -342,4 +541,8 @@ public class BankPortalController {
 
         return ResponseEntity.ok(response);
     }
+
+    private static String notificationStatus(ReservationDto reservation) {
+        return NotificationOutbox.hasRecipient(reservation.getWhatsappNumber()) ? "queued" : "not_sent";
+    }
 }
@@ -1,8 +1,12 @@
 package com.bloodbank.controller;
 
 import com.bloodbank.dto.BloodBankDto;
+import com.bloodbank.dto.CursorPage;
+import com.bloodbank.dto.PageCursor;
 import com.bloodbank.entity.BloodBank;
 import com.bloodbank.service.BloodBankService;
+import com.bloodbank.service.BloodCompatibility;
+import com.bloodbank.service.BloodTypes;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -15,6 +19,9 @@ import java.util.Map;
 @RequestMapping("/api/blood-banks")
 public class BloodBankController {
 
+    private static final double MAX_NEARBY_RADIUS_KM = 500;
+    private static final int MAX_NEARBY_LIMIT = 100;
+
     private final BloodBankService bloodBankService;
 
     public BloodBankController(BloodBankService bloodBankService) {
@@ -22,20 +29,27 @@ public class BloodBankController {
     }
 
     @GetMapping
-    public ResponseEntity<Map<String, Object>> getAllBloodBanks() {
-        List<BloodBankDto> bloodBanks = bloodBankService.getAllBloodBanks();
+    public ResponseEntity<Map<String, Object>> getAllBloodBanks(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        CursorPage<BloodBankDto> page = bloodBankService.getBloodBanksPage(
+                PageCursor.decode(cursor), PageCursor.clampLimit(limit));
 
         Map<String, Object> response = new HashMap<>();
         response.put("success", true);
-        response.put("count", bloodBanks.size());
-        response.put("data", bloodBanks);
+        response.put("count", page.count());
+        response.put("data", page.items());
+        response.put("nextCursor", page.nextCursor());
+        response.put("hasMore", page.hasMore());
 
         return ResponseEntity.ok(response);
     }
 
     @GetMapping("/search")
     public ResponseEntity<Map<String, Object>> searchByBloodType(
-            @RequestParam(required = false) String bloodType) {
+            @RequestParam(required = false) String bloodType,
+            @RequestParam(required = false) Double lat,
+            @RequestParam(required = false) Double lng) {
 
         if (bloodType == null || bloodType.isEmpty()) {
             Map<String, Object> error = new HashMap<>();
@@ -44,7 +58,7 @@ public class BloodBankController {
             return ResponseEntity.badRequest().body(error);
         }
 
-        List<BloodBankDto> bloodBanks = bloodBankService.searchByBloodType(bloodType);
+        List<BloodBankDto> bloodBanks = bloodBankService.searchByBloodType(bloodType, lat, lng);
 
         Map<String, Object> response = new HashMap<>();
         response.put("success", true);
@@ -55,6 +69,76 @@ public class BloodBankController {
         return ResponseEntity.ok(response);
     }
 
+    @GetMapping("/compatible")
+    public ResponseEntity<Map<String, Object>> searchCompatible(
+            @RequestParam(required = false) String bloodType,
+            @RequestParam(required = false) Double lat,
+            @RequestParam(required = false) Double lng) {
+
+        if (bloodType == null || !BloodTypes.isValid(bloodType)) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", "A valid blood type is required. Use ?bloodType=A+");
+            return ResponseEntity.badRequest().body(error);
+        }
+
+        String recipientType = bloodType.trim().toUpperCase();
+        List<BloodBankDto> bloodBanks = bloodBankService.searchCompatible(recipientType, lat, lng);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("bloodType", recipientType);
+        response.put("compatibleTypes", BloodCompatibility.compatibleDonorTypes(recipientType));
+        response.put("count", bloodBanks.size());
+        response.put("data", bloodBanks);
+
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/nearby")
+    public ResponseEntity<Map<String, Object>> findNearby(
+            @RequestParam Double lat,
+            @RequestParam Double lng,
+            @RequestParam(defaultValue = "25") double radiusKm,
+            @RequestParam(required = false) String bloodType,
+            @RequestParam(defaultValue = "10") int limit) {
+
+        // NaN passes every range comparison, so check finiteness first
+        if (!Double.isFinite(lat) || !Double.isFinite(lng)
+                || lat < -90 || lat > 90 || lng < -180 || lng > 180) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", "lat must be within [-90, 90] and lng within [-180, 180]");
+            return ResponseEntity.badRequest().body(error);
+        }
+        if (Double.isNaN(radiusKm)) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", "radiusKm must be a number");
+            return ResponseEntity.badRequest().body(error);
+        }
+        if (bloodType != null && !bloodType.isEmpty() && !BloodTypes.isValid(bloodType)) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", "Unknown blood type: " + bloodType);
+            return ResponseEntity.badRequest().body(error);
+        }
+
+        double radius = Math.max(0.1, Math.min(radiusKm, MAX_NEARBY_RADIUS_KM));
+        int cappedLimit = Math.max(1, Math.min(limit, MAX_NEARBY_LIMIT));
+        String type = bloodType == null || bloodType.isEmpty() ? null : bloodType.toUpperCase();
+
+        List<BloodBankDto> bloodBanks = bloodBankService.findNearby(lat, lng, radius, type, cappedLimit);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("radiusKm", radius);
+        response.put("count", bloodBanks.size());
+        response.put("data", bloodBanks);
+
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping("/types")
     public ResponseEntity<Map<String, Object>> getBloodTypes() {
         Map<String, Object> response = new HashMap<>();
@@ -1,5 +1,9 @@
 package com.bloodbank.controller;
 
+import com.bloodbank.dto.BloodUnitRow;
+import com.bloodbank.dto.CursorPage;
+import com.bloodbank.dto.ExpiryHistogram;
+import com.bloodbank.dto.PageCursor;
 import com.bloodbank.entity.BloodBank;
 import com.bloodbank.entity.BloodUnit;
 import com.bloodbank.entity.BloodUnit.BloodComponent;
@@ -8,15 +12,26 @@ import com.bloodbank.entity.Donation;
 import com.bloodbank.entity.Donor;
 import com.bloodbank.repository.BloodBankRepository;
 import com.bloodbank.repository.BloodUnitRepository;
+import com.bloodbank.repository.BloodUnitSpecifications;
 import com.bloodbank.repository.DonationRepository;
 import com.bloodbank.repository.DonorRepository;
 import com.bloodbank.security.JwtTokenProvider;
+import com.bloodbank.service.BloodUnitBatchWriter;
+import com.bloodbank.service.ExpirySweeper;
+import com.bloodbank.service.UnitExpiryWheel;
+import com.bloodbank.service.UnitNumberAllocator;
+import com.bloodbank.service.UnitScanService;
+import com.bloodbank.service.UnitStateMachine;
+import com.bloodbank.service.UnitStockCounters;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -30,22 +45,46 @@ public class BloodUnitController {
 
     private static final Logger log = LoggerFactory.getLogger(BloodUnitController.class);
 
+    private static final int MAX_HISTOGRAM_DAYS = 90;
+    private static final int MAX_BATCH_DONATIONS = 500;
+
     private final BloodUnitRepository bloodUnitRepository;
     private final BloodBankRepository bloodBankRepository;
     private final DonorRepository donorRepository;
     private final DonationRepository donationRepository;
     private final JwtTokenProvider jwtTokenProvider;
+    private final UnitStockCounters unitStockCounters;
+    private final UnitNumberAllocator unitNumberAllocator;
+    private final ExpirySweeper expirySweeper;
+    private final UnitExpiryWheel unitExpiryWheel;
+    private final BloodUnitBatchWriter bloodUnitBatchWriter;
+    private final UnitScanService unitScanService;
+    private final UnitStateMachine unitStateMachine;
 
     public BloodUnitController(BloodUnitRepository bloodUnitRepository,
             BloodBankRepository bloodBankRepository,
             DonorRepository donorRepository,
             DonationRepository donationRepository,
-            JwtTokenProvider jwtTokenProvider) {
+            JwtTokenProvider jwtTokenProvider,
+            UnitStockCounters unitStockCounters,
+            UnitNumberAllocator unitNumberAllocator,
+            ExpirySweeper expirySweeper,
+            UnitExpiryWheel unitExpiryWheel,
+            BloodUnitBatchWriter bloodUnitBatchWriter,
+            UnitScanService unitScanService,
+            UnitStateMachine unitStateMachine) {
         this.bloodUnitRepository = bloodUnitRepository;
         this.bloodBankRepository = bloodBankRepository;
         this.donorRepository = donorRepository;
         this.donationRepository = donationRepository;
         this.jwtTokenProvider = jwtTokenProvider;
+        this.unitStockCounters = unitStockCounters;
+        this.unitNumberAllocator = unitNumberAllocator;
+        this.expirySweeper = expirySweeper;
+        this.unitExpiryWheel = unitExpiryWheel;
+        this.bloodUnitBatchWriter = bloodUnitBatchWriter;
+        this.unitScanService = unitScanService;
+        this.unitStateMachine = unitStateMachine;
     }
 
     /**
@@ -70,63 +109,78 @@ public class BloodUnitController {
     }
 
     /**
-     * Get all units for the authenticated blood bank
+     * Get all units for the authenticated blood bank; every filter is applied in the query
      */
     @GetMapping
     public ResponseEntity<Map<String, Object>> getAllUnits(
             @RequestHeader("Authorization") String authHeader,
             @RequestParam(required = false) String status,
             @RequestParam(required = false) String bloodType,
-            @RequestParam(required = false) String component) {
+            @RequestParam(required = false) String component,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate expiryFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate expiryTo,
+            @RequestParam(required = false) Long donorId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
 
         Long bankId = getBankIdFromToken(authHeader);
         if (bankId == null) {
             return ResponseEntity.status(401).body(Map.of("success", false, "error", "Unauthorized"));
         }
 
-        List<BloodUnit> units;
-        if (status != null && !status.isEmpty()) {
-            UnitStatus unitStatus = UnitStatus.valueOf(status.toUpperCase());
-            units = bloodUnitRepository.findByBloodBankIdAndStatusOrderByExpiryDateAsc(bankId, unitStatus);
-        } else {
-            units = bloodUnitRepository.findByBloodBankIdOrderByExpiryDateAsc(bankId);
-        }
-
-        // Apply filters
-        if (bloodType != null && !bloodType.isEmpty()) {
-            units = units.stream()
-                    .filter(u -> u.getBloodType().equals(bloodType))
-                    .collect(Collectors.toList());
-        }
-        if (component != null && !component.isEmpty()) {
-            BloodComponent comp = BloodComponent.valueOf(component.toUpperCase());
-            units = units.stream()
-                    .filter(u -> u.getComponent() == comp)
-                    .collect(Collectors.toList());
-        }
-
-        List<Map<String, Object>> data = units.stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        UnitStatus unitStatus = status != null && !status.isEmpty() ? UnitStatus.valueOf(status.toUpperCase()) : null;
+        String type = bloodType != null && !bloodType.isEmpty() ? bloodType : null;
+        BloodComponent comp = component != null && !component.isEmpty()
+                ? BloodComponent.valueOf(component.toUpperCase())
+                : null;
+
+        PageCursor after = PageCursor.decode(cursor);
+        int pageSize = PageCursor.clampLimit(limit);
+        Specification<BloodUnit> spec = Specification.where(BloodUnitSpecifications.inBank(bankId))
+                .and(BloodUnitSpecifications.hasStatus(unitStatus))
+                .and(BloodUnitSpecifications.hasBloodType(type))
+                .and(BloodUnitSpecifications.hasComponent(comp))
+                .and(BloodUnitSpecifications.expiresOnOrAfter(expiryFrom))
+                .and(BloodUnitSpecifications.expiresOnOrBefore(expiryTo))
+                .and(BloodUnitSpecifications.fromDonor(donorId))
+                .and(after != null ? BloodUnitSpecifications.after(after.date(), after.id()) : null);
+        List<BloodUnitRow> rows = bloodUnitRepository.findRows(spec, pageSize + 1);
+
+        CursorPage<Map<String, Object>> unitPage = CursorPage.of(rows, pageSize,
+                r -> PageCursor.of(r.expiryDate(), r.id()), this::convertToDto);
 
-        return ResponseEntity.ok(Map.of("success", true, "data", data, "count", data.size()));
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", unitPage.items());
+        response.put("count", unitPage.count());
+        response.put("nextCursor", unitPage.nextCursor());
+        response.put("hasMore", unitPage.hasMore());
+        return ResponseEntity.ok(response);
     }
 
     /**
-     * Get units expiring soon
+     * Get units expiring soon (within days, or within hours when given), soonest first
      */
     @GetMapping("/expiring")
     public ResponseEntity<Map<String, Object>> getExpiringUnits(
             @RequestHeader("Authorization") String authHeader,
-            @RequestParam(defaultValue = "7") int days) {
+            @RequestParam(defaultValue = "7") int days,
+            @RequestParam(required = false) Integer hours) {
 
         Long bankId = getBankIdFromToken(authHeader);
         if (bankId == null) {
             return ResponseEntity.status(401).body(Map.of("success", false, "error", "Unauthorized"));
         }
 
-        List<BloodUnit> units = bloodUnitRepository.findExpiringWithinDays(bankId, days);
-        List<Map<String, Object>> data = units.stream()
+        // Ids come from the in-memory expiry wheel; only the matching rows are loaded
+        List<Long> ids = hours != null
+                ? unitExpiryWheel.unitsExpiringWithin(bankId, hours)
+                : unitExpiryWheel.unitsExpiringBefore(bankId, endOfDay(LocalDate.now().plusDays(days)));
+        Map<Long, BloodUnit> byId = bloodUnitRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(BloodUnit::getId, u -> u));
+        List<Map<String, Object>> data = ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
                 .map(this::convertToDto)
                 .collect(Collectors.toList());
 
@@ -134,40 +188,111 @@ public class BloodUnitController {
     }
 
     /**
-     * Get expiry summary stats
+     * Get expiry summary stats, derived from one days-to-expiry histogram
      */
     @GetMapping("/expiry-summary")
     public ResponseEntity<Map<String, Object>> getExpirySummary(
-            @RequestHeader("Authorization") String authHeader) {
+            @RequestHeader("Authorization") String authHeader,
+            @RequestParam(defaultValue = "14") int days) {
 
         Long bankId = getBankIdFromToken(authHeader);
         if (bankId == null) {
             return ResponseEntity.status(401).body(Map.of("success", false, "error", "Unauthorized"));
         }
+        if (days < 14 || days > MAX_HISTOGRAM_DAYS) {
+            throw new IllegalArgumentException("days must be between 14 and " + MAX_HISTOGRAM_DAYS);
+        }
 
-        LocalDate today = LocalDate.now();
+        ExpiryHistogram histogram = unitExpiryWheel.histogram(bankId, LocalDate.now(), days);
 
         Map<String, Object> summary = new HashMap<>();
-        summary.put("totalAvailable", bloodUnitRepository.countByBloodBankIdAndStatus(bankId, UnitStatus.AVAILABLE));
-        summary.put("expiringIn3Days", bloodUnitRepository.countExpiringBetween(bankId, today, today.plusDays(3)));
-        summary.put("expiringIn7Days", bloodUnitRepository.countExpiringBetween(bankId, today, today.plusDays(7)));
-        summary.put("expiringIn14Days", bloodUnitRepository.countExpiringBetween(bankId, today, today.plusDays(14)));
+        summary.put("totalAvailable", unitStockCounters.count(bankId, UnitStatus.AVAILABLE));
+        summary.put("expiringIn3Days", histogram.count(3, null));
+        summary.put("expiringIn7Days", histogram.count(7, null));
+        summary.put("expiringIn14Days", histogram.count(14, null));
 
         // Critical: platelets expiring soon (not already expired)
-        LocalDate threeDaysLater = today.plusDays(3);
-        List<BloodUnit> criticalPlateletUnits = bloodUnitRepository
-                .findByBloodBankIdAndStatusOrderByExpiryDateAsc(bankId, UnitStatus.AVAILABLE);
-        long criticalPlatelets = criticalPlateletUnits.stream()
-                .filter(u -> u.getComponent() == BloodComponent.PLATELETS_RDP || u.getComponent() == BloodComponent.SDP)
-                .filter(u -> u.getExpiryDate() != null &&
-                        !u.getExpiryDate().isBefore(today) &&
-                        !u.getExpiryDate().isAfter(threeDaysLater))
-                .count();
-        summary.put("criticalPlatelets", criticalPlatelets);
+        summary.put("criticalPlatelets",
+                histogram.count(3, EnumSet.of(BloodComponent.PLATELETS_RDP, BloodComponent.SDP)));
+        summary.put("histogram", histogram.toRows());
+
+        return ResponseEntity.ok(Map.of("success", true, "data", summary));
+    }
+
+    /**
+     * Unit counts by blood type, component and status (served from in-memory counters)
+     */
+    @GetMapping("/summary")
+    public ResponseEntity<Map<String, Object>> getUnitSummary(
+            @RequestHeader("Authorization") String authHeader) {
+
+        Long bankId = getBankIdFromToken(authHeader);
+        if (bankId == null) {
+            return ResponseEntity.status(401).body(Map.of("success", false, "error", "Unauthorized"));
+        }
+
+        Map<String, Long> byStatus = new LinkedHashMap<>();
+        for (UnitStatus status : UnitStatus.values()) {
+            byStatus.put(status.name(), unitStockCounters.count(bankId, status));
+        }
+
+        Map<String, Long> byComponent = new LinkedHashMap<>();
+        unitStockCounters.countByComponent(bankId, UnitStatus.AVAILABLE)
+                .forEach((component, count) -> byComponent.put(component.name(), count));
+
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("availableByBloodType", unitStockCounters.countByBloodType(bankId, UnitStatus.AVAILABLE));
+        summary.put("availableByComponent", byComponent);
+        summary.put("byStatus", byStatus);
 
         return ResponseEntity.ok(Map.of("success", true, "data", summary));
     }
 
+    /**
+     * Unit number prefix (facility code) for this bank
+     */
+    @GetMapping("/prefix")
+    public ResponseEntity<Map<String, Object>> getUnitPrefix(
+            @RequestHeader("Authorization") String authHeader) {
+
+        Long bankId = getBankIdFromToken(authHeader);
+        if (bankId == null) {
+            return ResponseEntity.status(401).body(Map.of("success", false, "error", "Unauthorized"));
+        }
+
+        return ResponseEntity.ok(Map.of("success", true, "prefix", unitNumberAllocator.prefixOf(bankId)));
+    }
+
+    /**
+     * Set the unit number prefix (1-8 uppercase letters or digits); null restores the default
+     */
+    @PutMapping("/prefix")
+    public ResponseEntity<Map<String, Object>> setUnitPrefix(
+            @RequestHeader("Authorization") String authHeader,
+            @RequestBody Map<String, String> request) {
+
+        Long bankId = getBankIdFromToken(authHeader);
+        if (bankId == null) {
+            return ResponseEntity.status(401).body(Map.of("success", false, "error", "Unauthorized"));
+        }
+
+        String prefix = request.get("prefix") != null ? request.get("prefix").trim().toUpperCase() : null;
+        if (prefix != null && !UnitNumberAllocator.isValidPrefix(prefix)) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("success", false, "error", "Prefix must be 1-8 letters or digits"));
+        }
+
+        BloodBank bank = bloodBankRepository.findById(bankId).orElse(null);
+        if (bank == null) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "error", "Blood bank not found"));
+        }
+        bank.setUnitPrefix(prefix);
+        bloodBankRepository.save(bank);
+        unitNumberAllocator.setPrefix(bankId, prefix);
+
+        return ResponseEntity.ok(Map.of("success", true, "prefix", unitNumberAllocator.prefixOf(bankId)));
+    }
+
     /**
      * Add new blood unit
      */
@@ -196,13 +321,10 @@ public class BloodUnitController {
             BloodComponent component = BloodComponent.valueOf(componentStr.toUpperCase());
             LocalDate collectionDate = LocalDate.parse(collectionDateStr);
 
-            // Generate unit number if not provided
+            // Generate unit number if not provided; only client-supplied numbers can collide
             if (unitNumber == null || unitNumber.isEmpty()) {
-                unitNumber = generateUnitNumber(bankId);
-            }
-
-            // Check for duplicate unit number
-            if (bloodUnitRepository.existsByUnitNumber(unitNumber)) {
+                unitNumber = unitNumberAllocator.next(bankId);
+            } else if (bloodUnitRepository.existsByUnitNumber(unitNumber)) {
                 return ResponseEntity.badRequest()
                         .body(Map.of("success", false, "error", "Unit number already exists"));
             }
@@ -229,6 +351,8 @@ public class BloodUnitController {
             }
 
             bloodUnitRepository.save(unit);
+            unitStockCounters.onCreated(unit);
+            unitExpiryWheel.onCreated(unit);
 
             return ResponseEntity.ok(Map.of(
                     "success", true,
@@ -305,30 +429,92 @@ public class BloodUnitController {
                 }
             }
 
-            List<Map<String, Object>> createdUnits = new ArrayList<>();
+            // All components go in with one id fetch and one JDBC batch
+            List<BloodUnit> units = newUnits(bank, bloodType.toUpperCase(), collectionDate, componentsList, donor);
+            List<Map<String, Object>> createdUnits = bloodUnitBatchWriter.insertAll(units).stream()
+                    .map(this::convertToDto)
+                    .collect(Collectors.toList());
 
-            for (int i = 0; i < componentsList.size(); i++) {
-                String componentStr = componentsList.get(i);
-                BloodComponent component = BloodComponent.valueOf(componentStr.toUpperCase());
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", createdUnits.size() + " blood units created from donation");
+            response.put("data", createdUnits);
+            return ResponseEntity.ok(response);
 
-                BloodUnit unit = new BloodUnit();
-                unit.setBloodBank(bank);
-                unit.setBloodType(bloodType.toUpperCase());
-                unit.setComponent(component);
-                unit.setCollectionDate(collectionDate);
-                unit.setUnitNumber(generateUnitNumber(bankId));
-                unit.setStatus(UnitStatus.AVAILABLE);
-                if (donor != null) {
-                    unit.setDonor(donor);
-                }
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Record many donations at once (e.g. a donation camp); all their components are
+     * inserted in one transaction. Each entry: bloodType, collectionDate, components,
+     * and optionally donorId of a registered donor.
+     */
+    @PostMapping("/record-donations")
+    public ResponseEntity<Map<String, Object>> recordDonations(
+            @RequestHeader("Authorization") String authHeader,
+            @RequestBody Map<String, Object> request) {
+
+        Long bankId = getBankIdFromToken(authHeader);
+        if (bankId == null) {
+            return ResponseEntity.status(401).body(Map.of("success", false, "error", "Unauthorized"));
+        }
 
-                bloodUnitRepository.save(unit);
-                createdUnits.add(convertToDto(unit));
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> donations = (List<Map<String, Object>>) request.get("donations");
+        if (donations == null || donations.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "error", "No donations given"));
+        }
+        if (donations.size() > MAX_BATCH_DONATIONS) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "error",
+                    "At most " + MAX_BATCH_DONATIONS + " donations per request"));
+        }
+
+        BloodBank bank = bloodBankRepository.findById(bankId).orElse(null);
+        if (bank == null) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "error", "Blood bank not found"));
+        }
+
+        try {
+            // Donors for the whole batch in one query
+            Set<Long> donorIds = donations.stream()
+                    .filter(d -> d.get("donorId") != null)
+                    .map(d -> Long.valueOf(d.get("donorId").toString()))
+                    .collect(Collectors.toSet());
+            Map<Long, Donor> donors = donorRepository.findAllById(donorIds).stream()
+                    .collect(Collectors.toMap(Donor::getId, d -> d));
+
+            List<BloodUnit> units = new ArrayList<>();
+            for (int i = 0; i < donations.size(); i++) {
+                Map<String, Object> entry = donations.get(i);
+                String bloodType = (String) entry.get("bloodType");
+                String collectionDateStr = (String) entry.get("collectionDate");
+                @SuppressWarnings("unchecked")
+                List<String> componentsList = (List<String>) entry.get("components");
+                if (bloodType == null || collectionDateStr == null || componentsList == null
+                        || componentsList.isEmpty()) {
+                    throw new IllegalArgumentException("Donation " + (i + 1) + ": missing required fields");
+                }
+                Donor donor = null;
+                if (entry.get("donorId") != null) {
+                    donor = donors.get(Long.valueOf(entry.get("donorId").toString()));
+                    if (donor == null) {
+                        throw new IllegalArgumentException("Donation " + (i + 1) + ": donor not found");
+                    }
+                }
+                units.addAll(newUnits(bank, bloodType.toUpperCase(), LocalDate.parse(collectionDateStr),
+                        componentsList, donor));
             }
 
+            List<Map<String, Object>> createdUnits = bloodUnitBatchWriter.insertForDonations(units).stream()
+                    .map(this::convertToDto)
+                    .collect(Collectors.toList());
+
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("message", createdUnits.size() + " blood units created from donation");
+            response.put("message", createdUnits.size() + " blood units created from " + donations.size()
+                    + " donations");
             response.put("data", createdUnits);
             return ResponseEntity.ok(response);
 
@@ -338,54 +524,149 @@ public class BloodUnitController {
     }
 
     /**
-     * Update unit status
+     * Update unit status. An optional version makes the change conditional on the
+     * unit not having changed since the client read it.
      */
     @PutMapping("/{id}/status")
     public ResponseEntity<Map<String, Object>> updateStatus(
             @RequestHeader("Authorization") String authHeader,
             @PathVariable Long id,
-            @RequestBody Map<String, String> request) {
+            @RequestBody Map<String, Object> request) {
 
         Long bankId = getBankIdFromToken(authHeader);
         if (bankId == null) {
             return ResponseEntity.status(401).body(Map.of("success", false, "error", "Unauthorized"));
         }
 
-        BloodUnit unit = bloodUnitRepository.findById(id).orElse(null);
-        if (unit == null || !unit.getBloodBank().getId().equals(bankId)) {
-            return ResponseEntity.status(404).body(Map.of("success", false, "error", "Unit not found"));
+        UnitStatus newStatus;
+        Long expectedVersion;
+        try {
+            newStatus = UnitStatus.valueOf(((String) request.get("status")).toUpperCase());
+            Object version = request.get("version");
+            expectedVersion = version != null ? Long.valueOf(version.toString()) : null;
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "error", "Invalid status"));
         }
 
-        try {
-            String statusStr = request.get("status");
-            UnitStatus newStatus = UnitStatus.valueOf(statusStr.toUpperCase());
-
-            // Check if unit is expired
-            if (unit.isExpired()) {
-                // If expired, only allow setting to EXPIRED or DISCARDED
-                if (newStatus == UnitStatus.RESERVED || newStatus == UnitStatus.USED
-                        || newStatus == UnitStatus.AVAILABLE) {
-                    // Auto-update status to EXPIRED if not already
-                    if (unit.getStatus() != UnitStatus.EXPIRED && unit.getStatus() != UnitStatus.DISCARDED) {
-                        unit.setStatus(UnitStatus.EXPIRED);
-                        bloodUnitRepository.save(unit);
-                    }
-                    return ResponseEntity.badRequest().body(Map.of(
-                            "success", false,
-                            "error",
-                            "Cannot change expired blood unit to " + newStatus + ". Unit expired on "
-                                    + unit.getExpiryDate(),
-                            "data", convertToDto(unit)));
-                }
+        UnitStateMachine.TransitionResult result = unitStateMachine.transition(bankId, id, newStatus, expectedVersion);
+        switch (result.outcome()) {
+            case UnitStateMachine.NOT_FOUND:
+                return ResponseEntity.status(404).body(Map.of("success", false, "error", "Unit not found"));
+            case UnitStateMachine.CONFLICT:
+                return ResponseEntity.status(409).body(Map.of("success", false, "error",
+                        "Unit was changed by another request, reload and try again",
+                        "data", convertToDto(bloodUnitRepository.findById(id).orElseThrow())));
+            case UnitStateMachine.INVALID:
+                return ResponseEntity.badRequest().body(Map.of("success", false, "error",
+                        "Cannot change " + result.previousStatus() + " blood unit to " + newStatus,
+                        "data", convertToDto(bloodUnitRepository.findById(id).orElseThrow())));
+            case UnitStateMachine.ALLOCATED: {
+                BloodUnit allocated = bloodUnitRepository.findById(id).orElseThrow();
+                return ResponseEntity.badRequest().body(Map.of("success", false, "error",
+                        "Blood unit is allocated to reservation " + allocated.getReservationId()
+                                + "; change the reservation's status instead",
+                        "data", convertToDto(allocated)));
             }
+            case UnitStateMachine.EXPIRED:
+                // Record the expiry the caller tripped over before rejecting the change
+                if (UnitStateMachine.canTransition(result.previousStatus(), UnitStatus.EXPIRED)) {
+                    unitStateMachine.transition(bankId, id, UnitStatus.EXPIRED, result.version());
+                }
+                BloodUnit expired = bloodUnitRepository.findById(id).orElseThrow();
+                return ResponseEntity.badRequest().body(Map.of(
+                        "success", false,
+                        "error",
+                        "Cannot change expired blood unit to " + newStatus + ". Unit expired on "
+                                + expired.getExpiryDate(),
+                        "data", convertToDto(expired)));
+            default:
+                BloodUnit unit = bloodUnitRepository.findById(id).orElseThrow();
+                return ResponseEntity.ok(Map.of("success", true, "message", "Status updated",
+                        "data", convertToDto(unit)));
+        }
+    }
 
-            unit.setStatus(newStatus);
-            bloodUnitRepository.save(unit);
+    /**
+     * Bulk status transition: move many units to one status under the same rules as
+     * the single-unit endpoint. Returns one outcome per unit id.
+     */
+    @PostMapping("/transitions")
+    public ResponseEntity<Map<String, Object>> transitionUnits(
+            @RequestHeader("Authorization") String authHeader,
+            @RequestBody Map<String, Object> request) {
 
-            return ResponseEntity.ok(Map.of("success", true, "message", "Status updated", "data", convertToDto(unit)));
+        Long bankId = getBankIdFromToken(authHeader);
+        if (bankId == null) {
+            return ResponseEntity.status(401).body(Map.of("success", false, "error", "Unauthorized"));
+        }
+
+        @SuppressWarnings("unchecked")
+        List<Object> rawIds = (List<Object>) request.get("unitIds");
+        if (rawIds == null || rawIds.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "error", "No unit ids given"));
+        }
+        UnitStatus target;
+        List<Long> unitIds = new ArrayList<>(rawIds.size());
+        try {
+            target = UnitStatus.valueOf(((String) request.get("status")).toUpperCase());
+            for (Object rawId : rawIds) {
+                unitIds.add(Long.valueOf(rawId.toString()));
+            }
         } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "error", "Invalid status or unit id"));
+        }
+
+        List<UnitStateMachine.TransitionResult> results = unitStateMachine.transitionAll(bankId, unitIds, target);
+        Map<String, Long> outcomes = results.stream()
+                .collect(Collectors.groupingBy(UnitStateMachine.TransitionResult::outcome, TreeMap::new,
+                        Collectors.counting()));
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("count", results.size());
+        response.put("outcomes", outcomes);
+        response.put("data", results);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Bulk barcode scan: resolve many unit numbers at once and, when status is given,
+     * move them all to it. Returns one outcome per scanned number.
+     */
+    @PostMapping("/scan")
+    public ResponseEntity<Map<String, Object>> scanUnits(
+            @RequestHeader("Authorization") String authHeader,
+            @RequestBody Map<String, Object> request) {
+
+        Long bankId = getBankIdFromToken(authHeader);
+        if (bankId == null) {
+            return ResponseEntity.status(401).body(Map.of("success", false, "error", "Unauthorized"));
+        }
+
+        @SuppressWarnings("unchecked")
+        List<String> unitNumbers = (List<String>) request.get("unitNumbers");
+        if (unitNumbers == null || unitNumbers.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "error", "No unit numbers given"));
+        }
+        String statusStr = (String) request.get("status");
+        UnitStatus target;
+        try {
+            target = statusStr != null && !statusStr.isEmpty() ? UnitStatus.valueOf(statusStr.toUpperCase()) : null;
+        } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(Map.of("success", false, "error", "Invalid status"));
         }
+
+        List<UnitScanService.ScanResult> results = unitScanService.scan(bankId, unitNumbers, target);
+        Map<String, Long> outcomes = results.stream()
+                .collect(Collectors.groupingBy(UnitScanService.ScanResult::outcome, TreeMap::new,
+                        Collectors.counting()));
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("count", results.size());
+        response.put("outcomes", outcomes);
+        response.put("data", results);
+        return ResponseEntity.ok(response);
     }
 
     /**
@@ -407,11 +688,13 @@ public class BloodUnitController {
         }
 
         bloodUnitRepository.delete(unit);
+        unitStockCounters.onDeleted(unit);
+        unitExpiryWheel.onDeleted(unit);
         return ResponseEntity.ok(Map.of("success", true, "message", "Unit deleted"));
     }
 
     /**
-     * Mark expired units as expired (can be called periodically)
+     * Mark expired units as expired now (the expiry sweeper also runs on a schedule)
      */
     @PostMapping("/mark-expired")
     public ResponseEntity<Map<String, Object>> markExpiredUnits(
@@ -422,33 +705,64 @@ public class BloodUnitController {
             return ResponseEntity.status(401).body(Map.of("success", false, "error", "Unauthorized"));
         }
 
-        List<BloodUnit> expiredUnits = bloodUnitRepository.findExpiredUnits(bankId, LocalDate.now());
-        int count = 0;
-        for (BloodUnit unit : expiredUnits) {
-            unit.setStatus(UnitStatus.EXPIRED);
-            bloodUnitRepository.save(unit);
-            count++;
-        }
-
+        int count = expirySweeper.sweepBank(bankId).expired();
         return ResponseEntity.ok(Map.of("success", true, "message", count + " units marked as expired"));
     }
 
     // Helper methods
+    private static List<BloodUnit> newUnits(BloodBank bank, String bloodType, LocalDate collectionDate,
+            List<String> components, Donor donor) {
+        List<BloodUnit> units = new ArrayList<>(components.size());
+        for (String componentStr : components) {
+            BloodUnit unit = new BloodUnit();
+            unit.setBloodBank(bank);
+            unit.setBloodType(bloodType);
+            unit.setComponent(BloodComponent.valueOf(componentStr.toUpperCase()));
+            unit.setCollectionDate(collectionDate);
+            unit.setStatus(UnitStatus.AVAILABLE);
+            unit.setDonor(donor);
+            units.add(unit);
+        }
+        return units;
+    }
+
+    private static LocalDateTime endOfDay(LocalDate date) {
+        // Units expire at the end of their expiry date
+        return date.plusDays(1).atStartOfDay();
+    }
+
     private Long getBankIdFromToken(String authHeader) {
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             return null;
         }
         String token = authHeader.substring(7);
-        if (!jwtTokenProvider.validateToken(token)) {
+        // Event stream tokens are bank-signed too but open nothing else
+        if (!jwtTokenProvider.validateToken(token) || jwtTokenProvider.isStreamToken(token)) {
             return null;
         }
         return jwtTokenProvider.getBankIdFromToken(token);
     }
 
-    private String generateUnitNumber(Long bankId) {
-        // Find max unit number across ALL banks (global counter)
-        long maxCount = bloodUnitRepository.count();
-        return String.format("%03d", maxCount + 1);
+    private Map<String, Object> convertToDto(BloodUnitRow row) {
+        Map<String, Object> dto = new HashMap<>();
+        dto.put("id", row.id());
+        dto.put("unitNumber", row.unitNumber());
+        dto.put("bloodType", row.bloodType());
+        dto.put("component", row.component().name());
+        dto.put("componentName", row.component().getDisplayName());
+        dto.put("collectionDate", row.collectionDate().toString());
+        dto.put("expiryDate", row.expiryDate().toString());
+        dto.put("status", row.status().name());
+        dto.put("daysUntilExpiry", BloodUnit.daysUntilExpiry(row.expiryDate()));
+        dto.put("hoursUntilExpiry", BloodUnit.hoursUntilExpiry(row.expiryDate()));
+        dto.put("expiryStatus", BloodUnit.expiryStatus(row.expiryDate()));
+        dto.put("isExpired", BloodUnit.isExpired(row.expiryDate()));
+        dto.put("version", row.version());
+        if (row.donorId() != null) {
+            dto.put("donorId", row.donorId());
+            dto.put("donorName", row.donorName());
+        }
+        return dto;
     }
 
     private Map<String, Object> convertToDto(BloodUnit unit) {
@@ -465,6 +779,7 @@ public class BloodUnitController {
         dto.put("hoursUntilExpiry", unit.getHoursUntilExpiry());
         dto.put("expiryStatus", unit.getExpiryStatus());
         dto.put("isExpired", unit.isExpired());
+        dto.put("version", unit.getVersion());
         if (unit.getDonor() != null) {
             dto.put("donorId", unit.getDonor().getId());
             dto.put("donorName", unit.getDonor().getName());
@@ -675,27 +990,11 @@ public class BloodUnitController {
             LocalDate collectionDate = donation.getDonationDate();
             String bloodType = donor.getBloodType();
 
-            List<Map<String, Object>> createdUnits = new ArrayList<>();
-
-            for (String componentStr : componentsList) {
-                BloodComponent component = BloodComponent.valueOf(componentStr.toUpperCase());
-
-                BloodUnit unit = new BloodUnit();
-                unit.setBloodBank(bank);
-                unit.setBloodType(bloodType);
-                unit.setComponent(component);
-                unit.setCollectionDate(collectionDate);
-                unit.setUnitNumber(generateUnitNumber(bankId));
-                unit.setStatus(UnitStatus.AVAILABLE);
-                unit.setDonor(donor);
-
-                bloodUnitRepository.save(unit);
-                createdUnits.add(convertToDto(unit));
-            }
-
-            // Mark donation as processed
-            donation.setComponentsAdded(true);
-            donationRepository.save(donation);
+            // Units are inserted and the donation marked processed in one transaction
+            List<BloodUnit> units = newUnits(bank, bloodType, collectionDate, componentsList, donor);
+            List<Map<String, Object>> createdUnits = bloodUnitBatchWriter.insertForDonation(donation, units).stream()
+                    .map(this::convertToDto)
+                    .collect(Collectors.toList());
 
             Map<String, Object> result = new HashMap<>();
             result.put("success", true);
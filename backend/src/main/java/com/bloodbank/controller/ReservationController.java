@@ -1,16 +1,17 @@
 package com.bloodbank.controller;
 
 import com.bloodbank.dto.CreateReservationRequest;
+import com.bloodbank.dto.CursorPage;
+import com.bloodbank.dto.PageCursor;
 import com.bloodbank.dto.ReservationDto;
 import com.bloodbank.entity.Reservation;
+import com.bloodbank.service.NotificationOutbox;
 import com.bloodbank.service.ReservationService;
-import com.bloodbank.service.WhatsAppService;
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -18,11 +19,9 @@ import java.util.Map;
 public class ReservationController {
 
     private final ReservationService reservationService;
-    private final WhatsAppService whatsAppService;
 
-    public ReservationController(ReservationService reservationService, WhatsAppService whatsAppService) {
+    public ReservationController(ReservationService reservationService) {
         this.reservationService = reservationService;
-        this.whatsAppService = whatsAppService;
     }
 
     @PostMapping
@@ -31,13 +30,11 @@ public class ReservationController {
         try {
             ReservationDto reservation = reservationService.createReservation(request);
 
-            Map<String, Object> whatsappStatus = whatsAppService.getStatus();
-            boolean isReady = Boolean.TRUE.equals(whatsappStatus.get("isReady"));
-
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("message", "Reservation created successfully");
-            response.put("whatsappNotification", isReady ? "sent" : "not_sent");
+            // Delivered by the notification relay once the reservation is committed
+            response.put("whatsappNotification", notificationStatus(reservation));
             response.put("data", reservation);
 
             return ResponseEntity.status(201).body(response);
@@ -50,13 +47,18 @@ public class ReservationController {
     }
 
     @GetMapping
-    public ResponseEntity<Map<String, Object>> getAllReservations() {
-        List<ReservationDto> reservations = reservationService.getAllReservations();
+    public ResponseEntity<Map<String, Object>> getAllReservations(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        CursorPage<ReservationDto> page = reservationService.getReservationsPage(
+                PageCursor.decode(cursor), PageCursor.clampLimit(limit));
 
         Map<String, Object> response = new HashMap<>();
         response.put("success", true);
-        response.put("count", reservations.size());
-        response.put("data", reservations);
+        response.put("count", page.count());
+        response.put("data", page.items());
+        response.put("nextCursor", page.nextCursor());
+        response.put("hasMore", page.hasMore());
 
         return ResponseEntity.ok(response);
     }
@@ -94,13 +96,11 @@ public class ReservationController {
 
         return reservationService.updateStatus(id, status)
                 .map(reservation -> {
-                    Map<String, Object> whatsappStatus = whatsAppService.getStatus();
-                    boolean isReady = Boolean.TRUE.equals(whatsappStatus.get("isReady"));
-
                     Map<String, Object> response = new HashMap<>();
                     response.put("success", true);
                     response.put("message", "Reservation status updated to " + status);
-                    response.put("whatsappNotification", isReady ? "sent" : "not_sent");
+                    // Delivered by the notification relay once the change is committed
+                    response.put("whatsappNotification", notificationStatus(reservation));
                     response.put("data", reservation);
                     return ResponseEntity.ok(response);
                 })
@@ -129,4 +129,8 @@ public class ReservationController {
                     return ResponseEntity.status(404).body(error);
                 });
     }
+
+    private static String notificationStatus(ReservationDto reservation) {
+        return NotificationOutbox.hasRecipient(reservation.getWhatsappNumber()) ? "queued" : "not_sent";
+    }
 }
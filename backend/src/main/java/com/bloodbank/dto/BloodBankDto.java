@@ -20,6 +20,8 @@ public class BloodBankDto {
     private Integer unitsAvailable;
     private LocationDto location;
     private String distance;
+    private Boolean exactMatch;
+    private Integer compatibleUnits;
 
     public BloodBankDto() {
     }
@@ -156,6 +158,22 @@ public class BloodBankDto {
         this.distance = distance;
     }
 
+    public Boolean getExactMatch() {
+        return exactMatch;
+    }
+
+    public void setExactMatch(Boolean exactMatch) {
+        this.exactMatch = exactMatch;
+    }
+
+    public Integer getCompatibleUnits() {
+        return compatibleUnits;
+    }
+
+    public void setCompatibleUnits(Integer compatibleUnits) {
+        this.compatibleUnits = compatibleUnits;
+    }
+
     // Builder
     public static BloodBankDtoBuilder builder() {
         return new BloodBankDtoBuilder();
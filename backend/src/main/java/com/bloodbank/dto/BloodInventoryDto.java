@@ -8,6 +8,8 @@ public class BloodInventoryDto {
     private Long id;
     private String bloodType;
     private Integer unitsAvailable;
+    private Integer unitsHeld;
+    private Integer freeUnits;
     private LocalDate collectionDate;
     private LocalDate expiryDate;
     private Long daysLeft;
@@ -59,6 +61,22 @@ public class BloodInventoryDto {
         this.unitsAvailable = unitsAvailable;
     }
 
+    public Integer getUnitsHeld() {
+        return unitsHeld;
+    }
+
+    public void setUnitsHeld(Integer unitsHeld) {
+        this.unitsHeld = unitsHeld;
+    }
+
+    public Integer getFreeUnits() {
+        return freeUnits;
+    }
+
+    public void setFreeUnits(Integer freeUnits) {
+        this.freeUnits = freeUnits;
+    }
+
     public LocalDate getCollectionDate() {
         return collectionDate;
     }
@@ -0,0 +1,16 @@
+package com.bloodbank.dto;
+
+import com.bloodbank.entity.BloodUnit.BloodComponent;
+import com.bloodbank.entity.BloodUnit.UnitStatus;
+
+import java.time.LocalDate;
+
+/**
+ * Listing projection of a blood unit: only the columns the unit list shows,
+ * with the donor's id and name read through a join instead of a lazy load.
+ * version is what PUT /units/{id}/status expects for a conditional update.
+ */
+public record BloodUnitRow(Long id, String unitNumber, String bloodType, BloodComponent component,
+        LocalDate collectionDate, LocalDate expiryDate, UnitStatus status, Long version, Long donorId,
+        String donorName) {
+}
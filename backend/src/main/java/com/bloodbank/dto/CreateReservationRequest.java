@@ -31,6 +31,8 @@ public class CreateReservationRequest {
     @NotBlank(message = "Referring doctor name is required")
     private String referringDoctor; // Doctor who referred/prescribed
 
+    private String component; // Optional: requested blood component (e.g. PRBC); any red-cell component if empty
+
     public CreateReservationRequest() {
     }
 
@@ -117,4 +119,12 @@ public class CreateReservationRequest {
     public void setReferringDoctor(String referringDoctor) {
         this.referringDoctor = referringDoctor;
     }
+
+    public String getComponent() {
+        return component;
+    }
+
+    public void setComponent(String component) {
+        this.component = component;
+    }
 }
@@ -0,0 +1,31 @@
+package com.bloodbank.dto;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * One page of a keyset-paginated listing; nextCursor is null on the last page
+ */
+public record CursorPage<T>(List<T> items, String nextCursor) {
+
+    /**
+     * Build a page from a query that fetched limit + 1 rows: the extra row only
+     * signals that another page exists and is dropped.
+     */
+    public static <E, T> CursorPage<T> of(List<E> rows, int limit,
+            Function<E, PageCursor> cursorOf, Function<E, T> mapper) {
+        boolean hasMore = rows.size() > limit;
+        List<E> kept = hasMore ? rows.subList(0, limit) : rows;
+        String next = hasMore ? cursorOf.apply(kept.get(kept.size() - 1)).encode() : null;
+        return new CursorPage<>(kept.stream().map(mapper).collect(Collectors.toList()), next);
+    }
+
+    public int count() {
+        return items.size();
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,70 @@
+package com.bloodbank.dto;
+
+import com.bloodbank.entity.BloodUnit.BloodComponent;
+
+import java.util.*;
+
+/**
+ * Available units of one bank by days to expiry x component x blood type.
+ * units[d][c][t] counts units expiring d days from today (0 = today), with c a
+ * component ordinal and t an index into bloodTypes.
+ */
+public class ExpiryHistogram {
+
+    private final List<String> bloodTypes;
+    private final int[][][] units;
+
+    public ExpiryHistogram(List<String> bloodTypes, int days) {
+        this.bloodTypes = bloodTypes;
+        this.units = new int[days + 1][BloodComponent.values().length][bloodTypes.size()];
+    }
+
+    public void add(int daysLeft, BloodComponent component, int bloodType) {
+        units[daysLeft][component.ordinal()][bloodType]++;
+    }
+
+    public int getDays() {
+        return units.length - 1;
+    }
+
+    /**
+     * Units expiring within maxDays days (inclusive), optionally only of the given components
+     */
+    public int count(int maxDays, Set<BloodComponent> components) {
+        int total = 0;
+        for (int day = 0; day <= Math.min(maxDays, getDays()); day++) {
+            for (BloodComponent component : BloodComponent.values()) {
+                if (components != null && !components.contains(component)) {
+                    continue;
+                }
+                for (int count : units[day][component.ordinal()]) {
+                    total += count;
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Non-empty buckets as daysLeft / component / bloodType / units rows
+     */
+    public List<Map<String, Object>> toRows() {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int day = 0; day < units.length; day++) {
+            for (BloodComponent component : BloodComponent.values()) {
+                int[] byType = units[day][component.ordinal()];
+                for (int type = 0; type < byType.length; type++) {
+                    if (byType[type] > 0) {
+                        Map<String, Object> row = new LinkedHashMap<>();
+                        row.put("daysLeft", day);
+                        row.put("component", component.name());
+                        row.put("bloodType", bloodTypes.get(type));
+                        row.put("units", byType[type]);
+                        rows.add(row);
+                    }
+                }
+            }
+        }
+        return rows;
+    }
+}
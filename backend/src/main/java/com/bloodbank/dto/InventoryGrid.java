@@ -0,0 +1,52 @@
+package com.bloodbank.dto;
+
+import java.util.List;
+
+/**
+ * Column-oriented inventory of many banks: entry i of each array describes one bank,
+ * and units[i] holds its units per blood type in bloodTypes order (-1 = no row).
+ */
+public class InventoryGrid {
+
+    public static final int NO_ROW = -1;
+
+    private final List<String> bloodTypes;
+    private final long[] bankIds;
+    private final String[] bankNames;
+    private final String[] cities;
+    private final int[][] units;
+
+    public InventoryGrid(List<String> bloodTypes, long[] bankIds, String[] bankNames, String[] cities,
+            int[][] units) {
+        this.bloodTypes = bloodTypes;
+        this.bankIds = bankIds;
+        this.bankNames = bankNames;
+        this.cities = cities;
+        this.units = units;
+    }
+
+    public int size() {
+        return bankIds.length;
+    }
+
+    // Getters
+    public List<String> getBloodTypes() {
+        return bloodTypes;
+    }
+
+    public long[] getBankIds() {
+        return bankIds;
+    }
+
+    public String[] getBankNames() {
+        return bankNames;
+    }
+
+    public String[] getCities() {
+        return cities;
+    }
+
+    public int[][] getUnits() {
+        return units;
+    }
+}
@@ -0,0 +1,76 @@
+package com.bloodbank.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Keyset pagination position: the sort key and id of the last row a client has seen.
+ * Encoded as an opaque URL-safe token so clients only ever pass it back unchanged.
+ * A null sort key is encoded as the empty string and decodes back to null.
+ */
+public record PageCursor(String sortKey, Long id) {
+
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 500;
+
+    private static final char SEPARATOR = '|';
+
+    public static PageCursor of(Object sortKey, Long id) {
+        return new PageCursor(sortKey != null ? sortKey.toString() : "", id);
+    }
+
+    public String encode() {
+        String raw = sortKey + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a client token; null or blank means "first page"
+     */
+    public static PageCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            int split = raw.lastIndexOf(SEPARATOR);
+            return new PageCursor(raw.substring(0, split), Long.parseLong(raw.substring(split + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    /**
+     * The sort key as a timestamp, null when the last row had none
+     */
+    public LocalDateTime timestamp() {
+        if (sortKey.isEmpty()) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(sortKey);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    public LocalDate date() {
+        try {
+            return LocalDate.parse(sortKey);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    /**
+     * Requested page size clamped to 1..MAX_LIMIT
+     */
+    public static int clampLimit(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.max(1, Math.min(MAX_LIMIT, limit));
+    }
+}
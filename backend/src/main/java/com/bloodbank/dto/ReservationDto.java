@@ -18,6 +18,7 @@ public class ReservationDto {
     private LocalDateTime expiresAt;
     private LocalDateTime updatedAt;
     private String prescriptionPath;
+    private String component;
     private String referringDoctor;
 
     public ReservationDto() {
@@ -154,6 +155,14 @@ public class ReservationDto {
         this.prescriptionPath = prescriptionPath;
     }
 
+    public String getComponent() {
+        return component;
+    }
+
+    public void setComponent(String component) {
+        this.component = component;
+    }
+
     public String getReferringDoctor() {
         return referringDoctor;
     }
@@ -38,6 +38,10 @@ public class BloodBank {
     @Column(name = "password_hash")
     private String passwordHash;
 
+    // Facility code at the start of generated unit numbers (null = default)
+    @Column(name = "unit_prefix", length = 8)
+    private String unitPrefix;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
@@ -159,6 +163,14 @@ public class BloodBank {
         this.passwordHash = passwordHash;
     }
 
+    public String getUnitPrefix() {
+        return unitPrefix;
+    }
+
+    public void setUnitPrefix(String unitPrefix) {
+        this.unitPrefix = unitPrefix;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -25,6 +25,11 @@ public class BloodInventory {
     @Column(name = "units_available", nullable = false)
     private Integer unitsAvailable = 0;
 
+    // Units promised to pending reservations; written only by InventoryHolds' conditional UPDATEs
+    @Column(name = "units_held", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "integer default 0")
+    private Integer unitsHeld = 0;
+
     @Column(name = "collection_date")
     private LocalDate collectionDate;
 
@@ -95,6 +100,19 @@ public class BloodInventory {
         return bloodType;
     }
 
+    public Integer getUnitsHeld() {
+        return unitsHeld;
+    }
+
+    /**
+     * Units available and not held by open reservations
+     */
+    public int getFreeUnits() {
+        int available = unitsAvailable != null ? unitsAvailable : 0;
+        int held = unitsHeld != null ? unitsHeld : 0;
+        return Math.max(available - held, 0);
+    }
+
     public void setBloodType(String bloodType) {
         this.bloodType = bloodType;
     }
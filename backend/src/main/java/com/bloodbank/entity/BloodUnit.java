@@ -9,7 +9,12 @@ import java.time.temporal.ChronoUnit;
  * Individual blood unit with component type and expiry tracking
  */
 @Entity
-@Table(name = "blood_units")
+@Table(name = "blood_units", indexes = {
+        @Index(name = "idx_blood_units_bank_expiry_id", columnList = "blood_bank_id, expiry_date, id"),
+        @Index(name = "idx_blood_units_status_expiry", columnList = "status, expiry_date"),
+        @Index(name = "idx_blood_units_bank_status_expiry", columnList = "blood_bank_id, status, expiry_date, id"),
+        @Index(name = "idx_blood_units_reservation", columnList = "reservation_id")
+})
 public class BloodUnit {
 
     @Id
@@ -44,6 +49,15 @@ public class BloodUnit {
     @JoinColumn(name = "donor_id")
     private Donor donor; // Optional: for traceability
 
+    // Reservation the unit is allocated to while RESERVED or once USED
+    @Column(name = "reservation_id")
+    private Long reservationId;
+
+    // Bumped by every status change, including set-based UPDATEs, for optimistic locking
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    private Long version = 0L;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
@@ -106,12 +120,29 @@ public class BloodUnit {
 
     // Calculated fields
     public long getDaysUntilExpiry() {
+        return daysUntilExpiry(expiryDate);
+    }
+
+    public long getHoursUntilExpiry() {
+        return hoursUntilExpiry(expiryDate);
+    }
+
+    public String getExpiryStatus() {
+        return expiryStatus(expiryDate);
+    }
+
+    public boolean isExpired() {
+        return isExpired(expiryDate);
+    }
+
+    // Shared with listing projections that carry only the expiry date
+    public static long daysUntilExpiry(LocalDate expiryDate) {
         if (expiryDate == null)
             return 0;
         return ChronoUnit.DAYS.between(LocalDate.now(), expiryDate);
     }
 
-    public long getHoursUntilExpiry() {
+    public static long hoursUntilExpiry(LocalDate expiryDate) {
         if (expiryDate == null)
             return 0;
         LocalDateTime expiryDateTime = expiryDate.atStartOfDay().plusDays(1); // End of expiry day
@@ -119,8 +150,8 @@ public class BloodUnit {
         return Math.max(0, hours);
     }
 
-    public String getExpiryStatus() {
-        long daysLeft = getDaysUntilExpiry();
+    public static String expiryStatus(LocalDate expiryDate) {
+        long daysLeft = daysUntilExpiry(expiryDate);
         if (daysLeft < 0)
             return "expired";
         if (daysLeft <= 3)
@@ -130,7 +161,7 @@ public class BloodUnit {
         return "good";
     }
 
-    public boolean isExpired() {
+    public static boolean isExpired(LocalDate expiryDate) {
         return expiryDate != null && LocalDate.now().isAfter(expiryDate);
     }
 
@@ -211,6 +242,18 @@ public class BloodUnit {
         this.donor = donor;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public Long getReservationId() {
+        return reservationId;
+    }
+
+    public void setReservationId(Long reservationId) {
+        this.reservationId = reservationId;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
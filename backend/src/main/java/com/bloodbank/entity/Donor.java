@@ -6,7 +6,9 @@ import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 
 @Entity
-@Table(name = "donors")
+@Table(name = "donors", indexes = {
+        @Index(name = "idx_donors_created_id", columnList = "created_at, id")
+})
 public class Donor {
 
     @Id
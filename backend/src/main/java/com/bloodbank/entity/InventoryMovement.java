@@ -0,0 +1,107 @@
+package com.bloodbank.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Append-only record of one change to a bank's blood_inventory figure.
+ * Rows are never updated; the identity id gives a monotonically increasing sequence.
+ */
+@Entity
+@Table(name = "inventory_movements", indexes = {
+        @Index(name = "idx_inventory_movements_key_time", columnList = "blood_bank_id, blood_type, created_at"),
+        @Index(name = "idx_inventory_movements_key_id", columnList = "blood_bank_id, blood_type, id"),
+        @Index(name = "idx_inventory_movements_time", columnList = "created_at")
+})
+public class InventoryMovement {
+
+    public enum MovementType {
+        RECEIPT, // Stock received: a manual or bulk figure above the previous one
+        DEDUCTION, // Units issued against a completed reservation
+        ADJUSTMENT // Manual or bulk figure below the previous one, or opening balance
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "blood_bank_id", nullable = false)
+    private Long bloodBankId;
+
+    @Column(name = "blood_type", nullable = false, length = 3)
+    private String bloodType;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "movement_type", nullable = false, length = 16)
+    private MovementType movementType;
+
+    // Signed change in units_available
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Column(name = "balance_after", nullable = false)
+    private Integer balanceAfter;
+
+    @Column(length = 64)
+    private String reference;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public InventoryMovement() {
+    }
+
+    public InventoryMovement(Long bloodBankId, String bloodType, MovementType movementType,
+            int quantity, int balanceAfter, String reference) {
+        this.bloodBankId = bloodBankId;
+        this.bloodType = bloodType;
+        this.movementType = movementType;
+        this.quantity = quantity;
+        this.balanceAfter = balanceAfter;
+        this.reference = reference;
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public Long getBloodBankId() {
+        return bloodBankId;
+    }
+
+    public String getBloodType() {
+        return bloodType;
+    }
+
+    public MovementType getMovementType() {
+        return movementType;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public Integer getBalanceAfter() {
+        return balanceAfter;
+    }
+
+    public String getReference() {
+        return reference;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
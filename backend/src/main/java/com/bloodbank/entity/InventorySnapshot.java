@@ -0,0 +1,74 @@
+package com.bloodbank.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Units of one blood type at one bank as of a point in time, folded from the
+ * inventory movement ledger. Replays start from the nearest snapshot.
+ */
+@Entity
+@Table(name = "inventory_snapshots", indexes = {
+        @Index(name = "idx_inventory_snapshots_key_asof", columnList = "blood_bank_id, blood_type, as_of"),
+        @Index(name = "idx_inventory_snapshots_key_movement", columnList = "blood_bank_id, blood_type, last_movement_id")
+})
+public class InventorySnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "blood_bank_id", nullable = false)
+    private Long bloodBankId;
+
+    @Column(name = "blood_type", nullable = false, length = 3)
+    private String bloodType;
+
+    @Column(nullable = false)
+    private Integer units;
+
+    // Taken under the row lock; every folded movement was created at or before it
+    @Column(name = "as_of", nullable = false)
+    private LocalDateTime asOf;
+
+    // Covers every movement of the key with id <= last_movement_id
+    @Column(name = "last_movement_id")
+    private Long lastMovementId;
+
+    public InventorySnapshot() {
+    }
+
+    public InventorySnapshot(Long bloodBankId, String bloodType, int units, LocalDateTime asOf,
+            Long lastMovementId) {
+        this.bloodBankId = bloodBankId;
+        this.bloodType = bloodType;
+        this.units = units;
+        this.asOf = asOf;
+        this.lastMovementId = lastMovementId;
+    }
+
+    // Getters
+    public Long getId() {
+        return id;
+    }
+
+    public Long getBloodBankId() {
+        return bloodBankId;
+    }
+
+    public String getBloodType() {
+        return bloodType;
+    }
+
+    public Integer getUnits() {
+        return units;
+    }
+
+    public LocalDateTime getAsOf() {
+        return asOf;
+    }
+
+    public Long getLastMovementId() {
+        return lastMovementId;
+    }
+}
@@ -0,0 +1,111 @@
+package com.bloodbank.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * One WhatsApp notification waiting to be delivered. Rows are inserted in the
+ * same transaction as the change they announce and moved through
+ * PENDING -> SENDING -> SENT (or FAILED) by the notification relay.
+ */
+@Entity
+@Table(name = "notification_outbox", indexes = {
+        @Index(name = "idx_notification_outbox_due", columnList = "status, next_attempt_at"),
+        @Index(name = "idx_notification_outbox_sent", columnList = "sent_at")
+})
+public class OutboxMessage {
+
+    public enum Status {
+        PENDING, // Waiting for its first or next attempt
+        SENDING, // Claimed by a relay; next_attempt_at is the end of the lease
+        SENT, // Delivered
+        FAILED // Gave up after the last attempt or a permanent error
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // WhatsApp service path the payload is posted to
+    @Column(nullable = false, length = 64)
+    private String endpoint;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(length = 64)
+    private String reference;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status = Status.PENDING;
+
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+
+    public OutboxMessage() {
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+        if (nextAttemptAt == null) {
+            nextAttemptAt = createdAt;
+        }
+    }
+
+    // Getters
+    public Long getId() {
+        return id;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public String getReference() {
+        return reference;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getSentAt() {
+        return sentAt;
+    }
+}
@@ -5,13 +5,18 @@ import java.time.LocalDateTime;
 import java.util.Arrays;
 
 @Entity
-@Table(name = "reservations")
+@Table(name = "reservations", indexes = {
+        @Index(name = "idx_reservations_created_id", columnList = "created_at, id"),
+        @Index(name = "idx_reservations_status_expires", columnList = "status, expires_at")
+})
 public class Reservation {
 
     public static final String STATUS_PENDING = "pending";
     public static final String STATUS_CONFIRMED = "confirmed";
     public static final String STATUS_COMPLETED = "completed";
     public static final String STATUS_CANCELLED = "cancelled";
+    // Set by ReservationExpirer when a pending reservation passes expiresAt
+    public static final String STATUS_EXPIRED = "expired";
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -41,12 +46,21 @@ public class Reservation {
     @Column(name = "referring_doctor")
     private String referringDoctor; // Doctor who referred/prescribed
 
+    // Component requested; null means any red-cell component
+    @Enumerated(EnumType.STRING)
+    @Column(name = "component", length = 16)
+    private BloodUnit.BloodComponent component;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "blood_bank_id", nullable = false)
     private BloodBank bloodBank;
 
     private String status = STATUS_PENDING;
 
+    // Inventory units this reservation holds in blood_inventory.units_held (0 once released or converted)
+    @Column(name = "units_held", nullable = false, columnDefinition = "integer default 0")
+    private Integer unitsHeld = 0;
+
     @Column(name = "expires_at")
     private LocalDateTime expiresAt;
 
@@ -164,6 +178,14 @@ public class Reservation {
         this.status = status;
     }
 
+    public Integer getUnitsHeld() {
+        return unitsHeld;
+    }
+
+    public void setUnitsHeld(Integer unitsHeld) {
+        this.unitsHeld = unitsHeld;
+    }
+
     public LocalDateTime getExpiresAt() {
         return expiresAt;
     }
@@ -204,6 +226,14 @@ public class Reservation {
         this.referringDoctor = referringDoctor;
     }
 
+    public BloodUnit.BloodComponent getComponent() {
+        return component;
+    }
+
+    public void setComponent(BloodUnit.BloodComponent component) {
+        this.component = component;
+    }
+
     // Builder pattern
     public static ReservationBuilder builder() {
         return new ReservationBuilder();
@@ -0,0 +1,71 @@
+package com.bloodbank.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Per-bank low-stock threshold for one blood type, overriding the default
+ */
+@Entity
+@Table(name = "stock_thresholds", uniqueConstraints = {
+        @UniqueConstraint(columnNames = { "blood_bank_id", "blood_type" })
+})
+public class StockThreshold {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "blood_bank_id", nullable = false)
+    private Long bloodBankId;
+
+    @Column(name = "blood_type", nullable = false, length = 3)
+    private String bloodType;
+
+    // Stock is low while free units (available minus held) are below this value
+    @Column(nullable = false)
+    private Integer threshold;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public StockThreshold() {
+    }
+
+    public StockThreshold(Long bloodBankId, String bloodType, int threshold) {
+        this.bloodBankId = bloodBankId;
+        this.bloodType = bloodType;
+        this.threshold = threshold;
+    }
+
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public Long getBloodBankId() {
+        return bloodBankId;
+    }
+
+    public String getBloodType() {
+        return bloodType;
+    }
+
+    public Integer getThreshold() {
+        return threshold;
+    }
+
+    public void setThreshold(Integer threshold) {
+        this.threshold = threshold;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+}
@@ -1,11 +1,13 @@
 package com.bloodbank.repository;
 
 import com.bloodbank.entity.BloodBank;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -50,6 +52,25 @@ public interface BloodBankRepository extends JpaRepository<BloodBank, Long> {
     @Query("SELECT COUNT(b) FROM BloodBank b WHERE b.passwordHash IS NOT NULL")
     long countWithAccounts();
 
+    /**
+     * Keyset page of blood banks in id order, starting after afterId
+     */
+    @Query("SELECT b FROM BloodBank b WHERE b.id > :afterId ORDER BY b.id ASC")
+    List<BloodBank> findPageAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Which of the given ids belong to existing blood banks
+     */
+    @Query("SELECT b.id FROM BloodBank b WHERE b.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Coordinates of every located blood bank (for the in-memory spatial index)
+     */
+    @Query("SELECT b.id, b.latitude, b.longitude FROM BloodBank b " +
+            "WHERE b.latitude IS NOT NULL AND b.longitude IS NOT NULL")
+    List<Object[]> findAllCoordinates();
+
     /**
      * Find blood banks that have a specific blood type available
      */
@@ -1,13 +1,16 @@
 package com.bloodbank.repository;
 
 import com.bloodbank.entity.BloodInventory;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -29,6 +32,39 @@ public interface BloodInventoryRepository extends JpaRepository<BloodInventory,
          */
         Optional<BloodInventory> findByBloodBankIdAndBloodType(Long bloodBankId, String bloodType);
 
+        /**
+         * Row lock on one bank's blood type, so the ledger sees the value being replaced
+         */
+        @Lock(LockModeType.PESSIMISTIC_WRITE)
+        @Query("SELECT bi FROM BloodInventory bi WHERE bi.bloodBank.id = :bankId AND bi.bloodType = :bloodType")
+        Optional<BloodInventory> findForUpdate(@Param("bankId") Long bankId, @Param("bloodType") String bloodType);
+
+        /**
+         * Row locks on every inventory row of the given banks (bulk upserts)
+         */
+        @Lock(LockModeType.PESSIMISTIC_WRITE)
+        @Query("SELECT bi FROM BloodInventory bi WHERE bi.bloodBank.id IN :bankIds")
+        List<BloodInventory> findAllForUpdate(@Param("bankIds") Collection<Long> bankIds);
+
+        /**
+         * Free units (available minus held) per bank and blood type across all banks,
+         * for the in-memory matrix and the low-stock detector
+         */
+        @Query("SELECT bi.bloodBank.id, bi.bloodType, " +
+                        "CASE WHEN bi.unitsAvailable > bi.unitsHeld THEN bi.unitsAvailable - bi.unitsHeld ELSE 0 END FROM BloodInventory bi")
+        List<Object[]> findAllUnitCounts();
+
+        /**
+         * Every bank (optionally in one city) joined with its inventory rows and their free
+         * units, ordered by bank. Banks without inventory appear once with null blood type and units.
+         */
+        @Query("SELECT b.id, b.name, b.city, bi.bloodType, " +
+                        "CASE WHEN bi.unitsAvailable > bi.unitsHeld THEN bi.unitsAvailable - bi.unitsHeld ELSE 0 END FROM BloodBank b " +
+                        "LEFT JOIN BloodInventory bi ON bi.bloodBank.id = b.id " +
+                        "WHERE (:city IS NULL OR LOWER(b.city) = LOWER(:city)) " +
+                        "ORDER BY b.id")
+        List<Object[]> findInventoryGrid(@Param("city") String city);
+
         /**
          * Get total units by blood type across all banks
          */
@@ -55,10 +91,10 @@ public interface BloodInventoryRepository extends JpaRepository<BloodInventory,
                         @Param("expiryBefore") LocalDate expiryBefore);
 
         /**
-         * Find all low stock inventory (below threshold)
+         * Find all low stock inventory (free units below threshold)
          */
         @Query("SELECT bi FROM BloodInventory bi " +
-                        "WHERE bi.unitsAvailable < :threshold AND bi.unitsAvailable > 0")
+                        "WHERE bi.unitsAvailable - bi.unitsHeld < :threshold AND bi.unitsAvailable - bi.unitsHeld > 0")
         List<BloodInventory> findLowStock(@Param("threshold") int threshold);
 
         /**
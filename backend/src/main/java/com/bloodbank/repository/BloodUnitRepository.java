@@ -3,16 +3,23 @@ package com.bloodbank.repository;
 import com.bloodbank.entity.BloodUnit;
 import com.bloodbank.entity.BloodUnit.BloodComponent;
 import com.bloodbank.entity.BloodUnit.UnitStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
-public interface BloodUnitRepository extends JpaRepository<BloodUnit, Long> {
+public interface BloodUnitRepository extends JpaRepository<BloodUnit, Long>, JpaSpecificationExecutor<BloodUnit>,
+                BloodUnitRowQueries {
 
         // Find all units for a blood bank
         List<BloodUnit> findByBloodBankIdOrderByExpiryDateAsc(Long bloodBankId);
@@ -20,6 +27,14 @@ public interface BloodUnitRepository extends JpaRepository<BloodUnit, Long> {
         // Find available units for a blood bank
         List<BloodUnit> findByBloodBankIdAndStatusOrderByExpiryDateAsc(Long bloodBankId, UnitStatus status);
 
+        // Cursor over every unit for exports; must be consumed inside a transaction
+        @QueryHints({
+                        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+                        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+        })
+        @Query("SELECT bu FROM BloodUnit bu ORDER BY bu.id")
+        Stream<BloodUnit> streamAll();
+
         // Find by blood type and status
         List<BloodUnit> findByBloodBankIdAndBloodTypeAndStatusOrderByExpiryDateAsc(
                         Long bloodBankId, String bloodType, UnitStatus status);
@@ -38,10 +53,6 @@ public interface BloodUnitRepository extends JpaRepository<BloodUnit, Long> {
                 return findExpiringBefore(bankId, UnitStatus.AVAILABLE, LocalDate.now().plusDays(days));
         }
 
-        // Find expired units
-        @Query("SELECT bu FROM BloodUnit bu WHERE bu.bloodBank.id = :bankId AND bu.expiryDate < :today AND bu.status = 'AVAILABLE'")
-        List<BloodUnit> findExpiredUnits(@Param("bankId") Long bankId, @Param("today") LocalDate today);
-
         // Count by status
         long countByBloodBankIdAndStatus(Long bloodBankId, UnitStatus status);
 
@@ -59,16 +70,28 @@ public interface BloodUnitRepository extends JpaRepository<BloodUnit, Long> {
         // Find by unit number
         BloodUnit findByUnitNumber(String unitNumber);
 
-        // Summary: count available units by blood type for a bank
-        @Query("SELECT bu.bloodType, COUNT(bu) FROM BloodUnit bu WHERE bu.bloodBank.id = :bankId AND bu.status = 'AVAILABLE' GROUP BY bu.bloodType")
-        List<Object[]> countAvailableByBloodType(@Param("bankId") Long bankId);
-
-        // Summary: count available units by component for a bank
-        @Query("SELECT bu.component, COUNT(bu) FROM BloodUnit bu WHERE bu.bloodBank.id = :bankId AND bu.status = 'AVAILABLE' GROUP BY bu.component")
-        List<Object[]> countAvailableByComponent(@Param("bankId") Long bankId);
-
-        // Count total units for a bank (for sequential numbering)
-        long countByBloodBankId(Long bloodBankId);
+        // Scanned unit numbers of one bank resolved in one IN query on the unique unit_number index
+        @Query("SELECT bu.id, bu.unitNumber, bu.bloodType, bu.component, bu.expiryDate, bu.status, bu.version, " +
+                        "bu.reservationId " +
+                        "FROM BloodUnit bu WHERE bu.bloodBank.id = :bankId AND bu.unitNumber IN :unitNumbers")
+        List<Object[]> findStatesByUnitNumber(@Param("bankId") Long bankId,
+                        @Param("unitNumbers") Collection<String> unitNumbers);
+
+        // Units of one bank by id, with the columns the state machine checks
+        @Query("SELECT bu.id, bu.unitNumber, bu.bloodType, bu.component, bu.expiryDate, bu.status, bu.version, " +
+                        "bu.reservationId " +
+                        "FROM BloodUnit bu WHERE bu.bloodBank.id = :bankId AND bu.id IN :ids")
+        List<Object[]> findStatesById(@Param("bankId") Long bankId, @Param("ids") Collection<Long> ids);
+
+        // Counts per bank, blood type, component and status (for the in-memory counters)
+        @Query("SELECT bu.bloodBank.id, bu.bloodType, bu.component, bu.status, COUNT(bu) FROM BloodUnit bu " +
+                        "GROUP BY bu.bloodBank.id, bu.bloodType, bu.component, bu.status")
+        List<Object[]> countAllGrouped();
+
+        // Id, bank, blood type, component and expiry date of every available unit (for the expiry wheel)
+        @Query("SELECT bu.id, bu.bloodBank.id, bu.bloodType, bu.component, bu.expiryDate FROM BloodUnit bu " +
+                        "WHERE bu.status = 'AVAILABLE'")
+        List<Object[]> findAvailableExpiries();
 
         // Delete all units for a blood bank
         void deleteByBloodBankId(Long bloodBankId);
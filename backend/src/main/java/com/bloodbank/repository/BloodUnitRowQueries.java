@@ -0,0 +1,18 @@
+package com.bloodbank.repository;
+
+import com.bloodbank.dto.BloodUnitRow;
+import com.bloodbank.entity.BloodUnit;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+/**
+ * Projection queries over blood units, mixed into {@link BloodUnitRepository}
+ */
+public interface BloodUnitRowQueries {
+
+    /**
+     * Up to limit rows matching the specification, ordered by (expiry_date, id)
+     */
+    List<BloodUnitRow> findRows(Specification<BloodUnit> spec, int limit);
+}
@@ -0,0 +1,51 @@
+package com.bloodbank.repository;
+
+import com.bloodbank.dto.BloodUnitRow;
+import com.bloodbank.entity.BloodUnit;
+import com.bloodbank.entity.Donor;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+/**
+ * Selects BloodUnitRow columns directly, so listing never materializes entities
+ * or touches the lazy donor association
+ */
+public class BloodUnitRowQueriesImpl implements BloodUnitRowQueries {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<BloodUnitRow> findRows(Specification<BloodUnit> spec, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<BloodUnitRow> query = cb.createQuery(BloodUnitRow.class);
+        Root<BloodUnit> root = query.from(BloodUnit.class);
+        Join<BloodUnit, Donor> donor = root.join("donor", JoinType.LEFT);
+
+        query.select(cb.construct(BloodUnitRow.class,
+                root.get("id"),
+                root.get("unitNumber"),
+                root.get("bloodType"),
+                root.get("component"),
+                root.get("collectionDate"),
+                root.get("expiryDate"),
+                root.get("status"),
+                root.get("version"),
+                donor.get("id"),
+                donor.get("name")));
+        if (spec != null) {
+            query.where(spec.toPredicate(root, query, cb));
+        }
+        query.orderBy(cb.asc(root.get("expiryDate")), cb.asc(root.get("id")));
+
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+}
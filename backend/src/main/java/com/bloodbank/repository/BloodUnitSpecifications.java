@@ -0,0 +1,59 @@
+package com.bloodbank.repository;
+
+import com.bloodbank.entity.BloodUnit;
+import com.bloodbank.entity.BloodUnit.BloodComponent;
+import com.bloodbank.entity.BloodUnit.UnitStatus;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+
+/**
+ * Composable filters for blood unit queries. A null argument yields a null
+ * specification, which Specification.where/and treat as "no filter", so only the
+ * filters a caller actually sets reach the SQL.
+ */
+public final class BloodUnitSpecifications {
+
+    private BloodUnitSpecifications() {
+    }
+
+    public static Specification<BloodUnit> inBank(Long bankId) {
+        return (root, query, cb) -> cb.equal(root.get("bloodBank").get("id"), bankId);
+    }
+
+    public static Specification<BloodUnit> hasStatus(UnitStatus status) {
+        return status == null ? null : (root, query, cb) -> cb.equal(root.get("status"), status);
+    }
+
+    public static Specification<BloodUnit> hasBloodType(String bloodType) {
+        return bloodType == null ? null : (root, query, cb) -> cb.equal(root.get("bloodType"), bloodType);
+    }
+
+    public static Specification<BloodUnit> hasComponent(BloodComponent component) {
+        return component == null ? null : (root, query, cb) -> cb.equal(root.get("component"), component);
+    }
+
+    public static Specification<BloodUnit> expiresOnOrAfter(LocalDate from) {
+        return from == null ? null : (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("expiryDate"), from);
+    }
+
+    public static Specification<BloodUnit> expiresOnOrBefore(LocalDate to) {
+        return to == null ? null : (root, query, cb) -> cb.lessThanOrEqualTo(root.get("expiryDate"), to);
+    }
+
+    public static Specification<BloodUnit> fromDonor(Long donorId) {
+        return donorId == null ? null : (root, query, cb) -> cb.equal(root.get("donor").get("id"), donorId);
+    }
+
+    /**
+     * Keyset condition: rows after (expiryDate, id) in (expiry_date, id) order
+     */
+    public static Specification<BloodUnit> after(LocalDate expiryDate, Long id) {
+        if (expiryDate == null || id == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.or(
+                cb.greaterThan(root.get("expiryDate"), expiryDate),
+                cb.and(cb.equal(root.get("expiryDate"), expiryDate), cb.greaterThan(root.get("id"), id)));
+    }
+}
@@ -1,8 +1,12 @@
 package com.bloodbank.repository;
 
 import com.bloodbank.entity.Donor;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -10,6 +14,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface DonorRepository extends JpaRepository<Donor, Long> {
@@ -24,6 +29,41 @@ public interface DonorRepository extends JpaRepository<Donor, Long> {
          */
         boolean existsByPhone(String phone);
 
+        /**
+         * First keyset page of donors, newest first; rows without a createdAt
+         * come first, as PostgreSQL sorts nulls in descending order
+         */
+        @Query("SELECT d FROM Donor d ORDER BY d.createdAt DESC NULLS FIRST, d.id DESC")
+        List<Donor> findFirstPage(Pageable pageable);
+
+        /**
+         * Keyset page of donors older than the (createdAt, id) cursor
+         */
+        @Query("SELECT d FROM Donor d " +
+                        "WHERE d.createdAt < :createdAt OR (d.createdAt = :createdAt AND d.id < :id) " +
+                        "ORDER BY d.createdAt DESC NULLS FIRST, d.id DESC")
+        List<Donor> findPageAfter(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id,
+                        Pageable pageable);
+
+        /**
+         * Keyset page after a cursor on a row without a createdAt: the rest of the
+         * undated rows, then every dated one
+         */
+        @Query("SELECT d FROM Donor d " +
+                        "WHERE (d.createdAt IS NULL AND d.id < :id) OR d.createdAt IS NOT NULL " +
+                        "ORDER BY d.createdAt DESC NULLS FIRST, d.id DESC")
+        List<Donor> findPageAfterUndated(@Param("id") Long id, Pageable pageable);
+
+        /**
+         * Cursor over every donor for exports; must be consumed inside a transaction
+         */
+        @QueryHints({
+                        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+                        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+        })
+        @Query("SELECT d FROM Donor d ORDER BY d.id")
+        Stream<Donor> streamAll();
+
         /**
          * Find all donors by blood type in a specific city
          */
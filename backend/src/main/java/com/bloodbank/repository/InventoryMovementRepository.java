@@ -0,0 +1,51 @@
+package com.bloodbank.repository;
+
+import com.bloodbank.entity.InventoryMovement;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface InventoryMovementRepository extends JpaRepository<InventoryMovement, Long> {
+
+        /**
+         * Net change for one bank and blood type over movements after afterId created
+         * at or before until
+         */
+        @Query("SELECT COALESCE(SUM(m.quantity), 0) FROM InventoryMovement m " +
+                        "WHERE m.bloodBankId = :bankId AND m.bloodType = :bloodType " +
+                        "AND m.id > :afterId AND m.createdAt <= :until")
+        long sumAfter(@Param("bankId") Long bankId, @Param("bloodType") String bloodType,
+                        @Param("afterId") long afterId, @Param("until") LocalDateTime until);
+
+        /**
+         * One row: net change and highest id (0 when none) of the movements of one
+         * bank and blood type after afterId
+         */
+        @Query("SELECT COALESCE(SUM(m.quantity), 0), COALESCE(MAX(m.id), 0) FROM InventoryMovement m " +
+                        "WHERE m.bloodBankId = :bankId AND m.bloodType = :bloodType AND m.id > :afterId")
+        List<Object[]> sumAfterId(@Param("bankId") Long bankId, @Param("bloodType") String bloodType,
+                        @Param("afterId") long afterId);
+
+        /**
+         * Oldest movement of one bank and blood type
+         */
+        Optional<InventoryMovement> findFirstByBloodBankIdAndBloodTypeOrderByCreatedAtAscIdAsc(Long bankId,
+                        String bloodType);
+
+        /**
+         * Movements for a bank (optionally one blood type) in [from, to], oldest first
+         */
+        @Query("SELECT m FROM InventoryMovement m WHERE m.bloodBankId = :bankId " +
+                        "AND (:bloodType IS NULL OR m.bloodType = :bloodType) " +
+                        "AND m.createdAt >= :from AND m.createdAt <= :to " +
+                        "ORDER BY m.createdAt ASC, m.id ASC")
+        List<InventoryMovement> findRange(@Param("bankId") Long bankId, @Param("bloodType") String bloodType,
+                        @Param("from") LocalDateTime from, @Param("to") LocalDateTime to, Pageable pageable);
+}
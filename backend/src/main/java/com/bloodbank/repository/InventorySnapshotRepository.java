@@ -0,0 +1,43 @@
+package com.bloodbank.repository;
+
+import com.bloodbank.entity.InventorySnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface InventorySnapshotRepository extends JpaRepository<InventorySnapshot, Long> {
+
+        /**
+         * Latest snapshot of one bank and blood type
+         */
+        Optional<InventorySnapshot> findFirstByBloodBankIdAndBloodTypeOrderByAsOfDescIdDesc(Long bloodBankId,
+                        String bloodType);
+
+        /**
+         * Latest snapshot at or before the given instant for each blood type of a bank
+         */
+        @Query("SELECT s FROM InventorySnapshot s WHERE s.bloodBankId = :bankId AND s.asOf = " +
+                        "(SELECT MAX(s2.asOf) FROM InventorySnapshot s2 " +
+                        "WHERE s2.bloodBankId = s.bloodBankId AND s2.bloodType = s.bloodType AND s2.asOf <= :at)")
+        List<InventorySnapshot> findLatestForBank(@Param("bankId") Long bankId, @Param("at") LocalDateTime at);
+
+        /**
+         * blood_inventory rows (bank id, blood type) never snapshotted or with movements
+         * past their latest snapshot, in lock order
+         */
+        @Query("SELECT bi.bloodBank.id, bi.bloodType FROM BloodInventory bi WHERE NOT EXISTS " +
+                        "(SELECT 1 FROM InventorySnapshot s " +
+                        "WHERE s.bloodBankId = bi.bloodBank.id AND s.bloodType = bi.bloodType) " +
+                        "OR EXISTS (SELECT 1 FROM InventoryMovement m " +
+                        "WHERE m.bloodBankId = bi.bloodBank.id AND m.bloodType = bi.bloodType AND m.id > " +
+                        "(SELECT MAX(s2.lastMovementId) FROM InventorySnapshot s2 " +
+                        "WHERE s2.bloodBankId = bi.bloodBank.id AND s2.bloodType = bi.bloodType)) " +
+                        "ORDER BY bi.bloodBank.id, bi.bloodType")
+        List<Object[]> findKeysToSnapshot();
+}
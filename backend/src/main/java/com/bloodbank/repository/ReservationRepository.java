@@ -1,26 +1,87 @@
 package com.bloodbank.repository;
 
 import com.bloodbank.entity.Reservation;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ReservationRepository extends JpaRepository<Reservation, Long> {
 
+        /**
+         * Row lock on one reservation, so status changes, hold changes and the expirer
+         * (which skips locked rows) never act on it at the same time
+         */
+        @Lock(LockModeType.PESSIMISTIC_WRITE)
+        @Query("SELECT r FROM Reservation r WHERE r.id = :id")
+        Optional<Reservation> findByIdForUpdate(@Param("id") Long id);
+
         /**
          * Find all reservations ordered by creation date (newest first)
          */
         List<Reservation> findAllByOrderByCreatedAtDesc();
 
+        /**
+         * First keyset page of reservations, newest first; rows without a createdAt
+         * come first, as PostgreSQL sorts nulls in descending order
+         */
+        @Query("SELECT r FROM Reservation r JOIN FETCH r.bloodBank ORDER BY r.createdAt DESC NULLS FIRST, r.id DESC")
+        List<Reservation> findFirstPage(Pageable pageable);
+
+        /**
+         * Keyset page of reservations older than the (createdAt, id) cursor
+         */
+        @Query("SELECT r FROM Reservation r JOIN FETCH r.bloodBank " +
+                        "WHERE r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :id) " +
+                        "ORDER BY r.createdAt DESC NULLS FIRST, r.id DESC")
+        List<Reservation> findPageAfter(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id,
+                        Pageable pageable);
+
+        /**
+         * Keyset page after a cursor on a row without a createdAt: the rest of the
+         * undated rows, then every dated one
+         */
+        @Query("SELECT r FROM Reservation r JOIN FETCH r.bloodBank " +
+                        "WHERE (r.createdAt IS NULL AND r.id < :id) OR r.createdAt IS NOT NULL " +
+                        "ORDER BY r.createdAt DESC NULLS FIRST, r.id DESC")
+        List<Reservation> findPageAfterUndated(@Param("id") Long id, Pageable pageable);
+
+        /**
+         * Cursor over every reservation for exports; must be consumed inside a transaction
+         */
+        @QueryHints({
+                        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+                        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+        })
+        @Query("SELECT r FROM Reservation r JOIN FETCH r.bloodBank ORDER BY r.id")
+        Stream<Reservation> streamAll();
+
         /**
          * Find reservations for a specific blood bank
          */
         List<Reservation> findByBloodBankIdOrderByCreatedAtDesc(Long bloodBankId);
 
+        /**
+         * Open reservations of every bank, as rows for the in-memory work queue
+         */
+        @Query("SELECT r.id, r.bloodBank.id, r.patientName, r.bloodType, r.component, r.unitsNeeded, " +
+                        "r.urgencyLevel, r.status, r.createdAt, r.expiresAt FROM Reservation r " +
+                        "WHERE r.status IN :statuses")
+        List<Object[]> findQueueRows(@Param("statuses") Collection<String> statuses);
+
         /**
          * Find reservations by status
          */
@@ -54,7 +115,8 @@ public interface ReservationRepository extends JpaRepository<Reservation, Long>
                         "SUM(CASE WHEN r.status = 'pending' THEN 1 ELSE 0 END), " +
                         "SUM(CASE WHEN r.status = 'confirmed' THEN 1 ELSE 0 END), " +
                         "SUM(CASE WHEN r.status = 'completed' THEN 1 ELSE 0 END), " +
-                        "SUM(CASE WHEN r.status = 'cancelled' THEN 1 ELSE 0 END) " +
+                        "SUM(CASE WHEN r.status = 'cancelled' THEN 1 ELSE 0 END), " +
+                        "SUM(CASE WHEN r.status = 'expired' THEN 1 ELSE 0 END) " +
                         "FROM Reservation r")
         Object[] getReservationStats();
 
@@ -66,7 +128,8 @@ public interface ReservationRepository extends JpaRepository<Reservation, Long>
                         "SUM(CASE WHEN r.status = 'pending' THEN 1 ELSE 0 END), " +
                         "SUM(CASE WHEN r.status = 'confirmed' THEN 1 ELSE 0 END), " +
                         "SUM(CASE WHEN r.status = 'completed' THEN 1 ELSE 0 END), " +
-                        "SUM(CASE WHEN r.status = 'cancelled' THEN 1 ELSE 0 END) " +
+                        "SUM(CASE WHEN r.status = 'cancelled' THEN 1 ELSE 0 END), " +
+                        "SUM(CASE WHEN r.status = 'expired' THEN 1 ELSE 0 END) " +
                         "FROM Reservation r WHERE r.bloodBank.id = :bankId")
         Object[] getReservationStatsByBankId(@Param("bankId") Long bankId);
 
@@ -0,0 +1,21 @@
+package com.bloodbank.repository;
+
+import com.bloodbank.entity.StockThreshold;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StockThresholdRepository extends JpaRepository<StockThreshold, Long> {
+
+        Optional<StockThreshold> findByBloodBankIdAndBloodType(Long bloodBankId, String bloodType);
+
+        List<StockThreshold> findByBloodBankId(Long bloodBankId);
+
+        /**
+         * Delete all thresholds for a blood bank (for cascade delete)
+         */
+        void deleteByBloodBankId(Long bloodBankId);
+}
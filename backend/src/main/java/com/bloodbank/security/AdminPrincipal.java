@@ -0,0 +1,13 @@
+package com.bloodbank.security;
+
+/**
+ * Principal for an authenticated admin; carries ROLE_ADMIN
+ */
+public class AdminPrincipal {
+
+    public static final String ROLE = "ROLE_ADMIN";
+
+    public String getName() {
+        return "admin";
+    }
+}
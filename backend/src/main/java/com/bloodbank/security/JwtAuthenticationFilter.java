@@ -11,6 +11,7 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
@@ -18,12 +19,15 @@ import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 import java.util.Collections;
+import java.util.List;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private static final Logger log = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
 
+    private static final String EVENT_STREAM_PATH = "/api/bank/events";
+
     private final JwtTokenProvider jwtTokenProvider;
     private final BloodBankRepository bloodBankRepository;
     private final DonorRepository donorRepository;
@@ -44,8 +48,15 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             String token = getTokenFromRequest(request);
 
             if (StringUtils.hasText(token) && jwtTokenProvider.validateToken(token)) {
-                // Check if it's a donor token or bank token
-                if (jwtTokenProvider.isDonorToken(token)) {
+                // Check if it's an admin, donor or bank token
+                if (jwtTokenProvider.isAdminToken(token)) {
+                    UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                            new AdminPrincipal(),
+                            null,
+                            List.of(new SimpleGrantedAuthority(AdminPrincipal.ROLE)));
+
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                } else if (jwtTokenProvider.isDonorToken(token)) {
                     // Handle donor authentication
                     Long donorId = jwtTokenProvider.getDonorIdFromToken(token);
                     Donor donor = donorRepository.findById(donorId).orElse(null);
@@ -96,7 +107,15 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private String getTokenFromRequest(HttpServletRequest request) {
         String bearerToken = request.getHeader("Authorization");
         if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
-            return bearerToken.substring(7);
+            String token = bearerToken.substring(7);
+            // Stream tokens open the event stream and nothing else
+            return jwtTokenProvider.isStreamToken(token) ? null : token;
+        }
+        // Browser EventSource cannot set headers, so the event stream takes a short-lived
+        // stream token (POST /api/bank/events/token) as a parameter; never the session JWT
+        if (EVENT_STREAM_PATH.equals(request.getRequestURI())) {
+            String token = request.getParameter("token");
+            return StringUtils.hasText(token) && jwtTokenProvider.isStreamToken(token) ? token : null;
         }
         return null;
     }
@@ -23,6 +23,9 @@ public class JwtTokenProvider {
     @Value("${jwt.expiration}")
     private long jwtExpiration;
 
+    @Value("${jwt.stream-expiration:60000}")
+    private long streamExpiration;
+
     private SecretKey getSigningKey() {
         byte[] keyBytes = jwtSecret.getBytes(StandardCharsets.UTF_8);
         return Keys.hmacShaKeyFor(keyBytes);
@@ -116,4 +119,74 @@ public class JwtTokenProvider {
             return false;
         }
     }
+
+    /**
+     * Generate token for admin authentication
+     */
+    public String generateAdminToken() {
+        Date now = new Date();
+        Date expiryDate = new Date(now.getTime() + jwtExpiration);
+
+        return Jwts.builder()
+                .subject("admin")
+                .claim("type", "admin")
+                .issuedAt(now)
+                .expiration(expiryDate)
+                .signWith(getSigningKey())
+                .compact();
+    }
+
+    /**
+     * Check if token is for the admin
+     */
+    public boolean isAdminToken(String token) {
+        try {
+            Claims claims = Jwts.parser()
+                    .verifyWith(getSigningKey())
+                    .build()
+                    .parseSignedClaims(token)
+                    .getPayload();
+            return "admin".equals(claims.get("type", String.class));
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Generate a short-lived token that only opens a bank's event stream. EventSource
+     * sends it in the query string, where it ends up in access logs and browser
+     * history, so it must be useless elsewhere and soon.
+     */
+    public String generateStreamToken(Long bankId) {
+        Date now = new Date();
+        Date expiryDate = new Date(now.getTime() + streamExpiration);
+
+        return Jwts.builder()
+                .subject(String.valueOf(bankId))
+                .claim("type", "stream")
+                .issuedAt(now)
+                .expiration(expiryDate)
+                .signWith(getSigningKey())
+                .compact();
+    }
+
+    public long getStreamExpiration() {
+        return streamExpiration;
+    }
+
+    /**
+     * Check if token is an event stream token
+     */
+    public boolean isStreamToken(String token) {
+        try {
+            Claims claims = Jwts.parser()
+                    .verifyWith(getSigningKey())
+                    .build()
+                    .parseSignedClaims(token)
+                    .getPayload();
+            return "stream".equals(claims.get("type", String.class));
+        } catch (Exception e) {
+            return false;
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package com.bloodbank.security;
 
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -53,6 +54,10 @@ public class SecurityConfig {
 
                 // Authorization rules
                 .authorizeHttpRequests(auth -> auth
+                        // Async re-dispatches of streams (bank event feed) were authorized on the original request
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
+                        // Admin exports stream donor PII - require an admin token (POST /api/auth/admin/login)
+                        .requestMatchers("/api/admin/export/**").hasAuthority(AdminPrincipal.ROLE)
                         // Bank portal - requires authentication
                         .requestMatchers("/api/bank/**").authenticated()
                         // Bank analytics - requires authentication
@@ -6,6 +6,7 @@ import com.bloodbank.repository.BloodBankRepository;
 import com.bloodbank.security.JwtTokenProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -22,13 +23,35 @@ public class AuthService {
         private final BloodBankRepository bloodBankRepository;
         private final PasswordEncoder passwordEncoder;
         private final JwtTokenProvider jwtTokenProvider;
+        private final String adminPasswordHash;
 
         public AuthService(BloodBankRepository bloodBankRepository,
                         PasswordEncoder passwordEncoder,
-                        JwtTokenProvider jwtTokenProvider) {
+                        JwtTokenProvider jwtTokenProvider,
+                        @Value("${admin.password-hash:}") String adminPasswordHash) {
                 this.bloodBankRepository = bloodBankRepository;
                 this.passwordEncoder = passwordEncoder;
                 this.jwtTokenProvider = jwtTokenProvider;
+                this.adminPasswordHash = adminPasswordHash;
+        }
+
+        /**
+         * Admin token for the configured admin password; admin login is disabled
+         * while no password hash is configured
+         */
+        public AuthRequest.AuthResponse adminLogin(String password) {
+                if (adminPasswordHash.isBlank() || !passwordEncoder.matches(password, adminPasswordHash)) {
+                        return AuthRequest.AuthResponse.builder()
+                                        .success(false)
+                                        .message("Invalid admin password")
+                                        .build();
+                }
+                log.info("Admin logged in");
+                return AuthRequest.AuthResponse.builder()
+                                .success(true)
+                                .message("Login successful")
+                                .token(jwtTokenProvider.generateAdminToken())
+                                .build();
         }
 
         @Transactional
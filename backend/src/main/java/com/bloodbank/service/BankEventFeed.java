@@ -0,0 +1,280 @@
+package com.bloodbank.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server-sent event streams for bank portal dashboards. Each open portal holds one
+ * emitter; committed changes to the bank's reservations and inventory, low-stock
+ * crossings and expiry alerts are pushed to it as they happen, so dashboards do
+ * not poll. Every client has its own bounded queue drained by a small sender pool:
+ * a client whose queue fills up, or whose socket write stalls past the send
+ * timeout, is dropped (its EventSource reconnects and reloads), so no queue grows
+ * without limit.
+ *
+ * A dropped client's sender stays blocked in its write until the servlet
+ * container's write timeout (server.tomcat.connection-timeout) fails it. So that
+ * stalled writes never hold every sender, the heartbeat adds one thread to the
+ * pool per send stalled past the send timeout and gives them back once those
+ * writes have returned.
+ */
+@Component
+public class BankEventFeed {
+
+    private static final Logger log = LoggerFactory.getLogger(BankEventFeed.class);
+
+    public static final String RESERVATION = "reservation";
+    public static final String INVENTORY = "inventory";
+    public static final String LOW_STOCK = "low-stock";
+    public static final String UNIT_EXPIRING = "unit-expiring";
+
+    // Events sent per drain before the client yields its sender thread
+    private static final int DRAIN_BATCH = 16;
+
+    private final long timeoutMs;
+    private final int maxPerBank;
+    private final int queueSize;
+    private final long sendTimeoutNanos;
+    private final int senderThreads;
+    private final Map<Long, Set<Client>> clients = new ConcurrentHashMap<>();
+    // Clients with a send in progress, registered or already dropped
+    private final Set<Client> sending = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor senders;
+
+    public BankEventFeed(@Value("${bank.feed.timeout-ms:1800000}") long timeoutMs,
+            @Value("${bank.feed.max-per-bank:50}") int maxPerBank,
+            @Value("${bank.feed.queue-size:64}") int queueSize,
+            @Value("${bank.feed.send-timeout-ms:10000}") long sendTimeoutMs,
+            @Value("${bank.feed.sender-threads:4}") int senderThreads) {
+        if (queueSize <= 0 || senderThreads <= 0) {
+            throw new IllegalArgumentException("bank.feed.queue-size and bank.feed.sender-threads must be positive");
+        }
+        this.timeoutMs = timeoutMs;
+        this.maxPerBank = maxPerBank;
+        this.queueSize = queueSize;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        this.senderThreads = senderThreads;
+        AtomicInteger threads = new AtomicInteger();
+        this.senders = new ThreadPoolExecutor(senderThreads, senderThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread thread = new Thread(r, "bank-event-feed-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * One open stream and the events waiting to be written to it
+     */
+    private static final class Client {
+        final Long bankId;
+        final SseEmitter emitter;
+        final BlockingQueue<SseEmitter.SseEventBuilder> queue;
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        // System.nanoTime() when the current send started, 0 while idle
+        volatile long sendingSince;
+        volatile boolean closed;
+
+        Client(Long bankId, SseEmitter emitter, int queueSize) {
+            this.bankId = bankId;
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(queueSize);
+        }
+    }
+
+    /**
+     * Open a stream for a bank; the first event confirms the connection
+     */
+    public SseEmitter subscribe(Long bankId) {
+        Client client = new Client(bankId, new SseEmitter(timeoutMs), queueSize);
+        Set<Client> bankClients = clients.compute(bankId, (id, set) -> {
+            Set<Client> current = set != null ? set : new CopyOnWriteArraySet<>();
+            if (current.size() < maxPerBank) {
+                current.add(client);
+            }
+            return current.isEmpty() ? null : current;
+        });
+        if (bankClients == null || !bankClients.contains(client)) {
+            throw new IllegalArgumentException("Too many open event streams for this blood bank");
+        }
+        client.emitter.onCompletion(() -> remove(client));
+        client.emitter.onTimeout(() -> remove(client));
+        client.emitter.onError(e -> remove(client));
+        enqueue(client, SseEmitter.event().name("connected").data(Map.of("bankId", bankId)));
+        log.debug("Event stream opened for bank {} ({} open)", bankId, bankClients.size());
+        return client.emitter;
+    }
+
+    public int subscribers(Long bankId) {
+        Set<Client> bankClients = clients.get(bankId);
+        return bankClients != null ? bankClients.size() : 0;
+    }
+
+    @EventListener
+    public void onReservation(ReservationEvent event) {
+        publish(event.bankId(), RESERVATION, event);
+    }
+
+    @EventListener
+    public void onInventoryChange(InventoryChangeEvent event) {
+        publish(event.bankId(), INVENTORY, event);
+    }
+
+    @EventListener
+    public void onLowStock(LowStockEvent event) {
+        publish(event.bankId(), LOW_STOCK, event);
+    }
+
+    @EventListener
+    public void onUnitExpiry(UnitExpiryEvent event) {
+        publish(event.bankId(), UNIT_EXPIRING, event);
+    }
+
+    /**
+     * Comment line every interval so proxies keep idle streams open and dead
+     * clients are noticed; clients stuck in one send past the timeout are dropped
+     * and the sender pool grows by one thread for each of those sends
+     */
+    @Scheduled(fixedDelayString = "${bank.feed.heartbeat-ms:25000}")
+    public void heartbeat() {
+        long now = System.nanoTime();
+        int stalled = 0;
+        for (Client client : sending) {
+            long since = client.sendingSince;
+            if (since != 0 && now - since > sendTimeoutNanos) {
+                stalled++;
+                drop(client, "send stalled");
+            }
+        }
+        resizeSenders(senderThreads + stalled);
+        for (Set<Client> bankClients : clients.values()) {
+            for (Client client : bankClients) {
+                enqueue(client, SseEmitter.event().comment("heartbeat"));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+        clients.values().forEach(set -> set.forEach(BankEventFeed::complete));
+        clients.clear();
+    }
+
+    private void publish(Long bankId, String name, Object data) {
+        Set<Client> bankClients = bankId != null ? clients.get(bankId) : null;
+        if (bankClients == null) {
+            return;
+        }
+        for (Client client : bankClients) {
+            enqueue(client, SseEmitter.event().name(name).data(data));
+        }
+    }
+
+    private void enqueue(Client client, SseEmitter.SseEventBuilder event) {
+        if (client.closed) {
+            return;
+        }
+        if (!client.queue.offer(event)) {
+            drop(client, "queue full");
+            return;
+        }
+        if (client.scheduled.compareAndSet(false, true)) {
+            senders.execute(() -> drain(client));
+        }
+    }
+
+    private void drain(Client client) {
+        try {
+            for (int i = 0; i < DRAIN_BATCH && !client.closed; i++) {
+                SseEmitter.SseEventBuilder event = client.queue.poll();
+                if (event == null) {
+                    break;
+                }
+                client.sendingSince = System.nanoTime();
+                sending.add(client);
+                try {
+                    client.emitter.send(event);
+                } catch (IOException | IllegalStateException e) {
+                    // Client went away, or the container's write timeout failed a stalled send
+                    remove(client);
+                } finally {
+                    client.sendingSince = 0;
+                    sending.remove(client);
+                }
+            }
+        } finally {
+            client.scheduled.set(false);
+            if (client.closed) {
+                complete(client);
+            } else if (!client.queue.isEmpty() && client.scheduled.compareAndSet(false, true)) {
+                // An event offered while this drain was finishing would otherwise wait for the next one
+                senders.execute(() -> drain(client));
+            }
+        }
+    }
+
+    /**
+     * Unregister a client and let a sender complete its emitter: complete() waits
+     * for a send in progress, which must never hold up the publishing thread
+     */
+    private void drop(Client client, String reason) {
+        if (client.closed) {
+            return;
+        }
+        log.warn("Dropping event stream for bank {}: {}", client.bankId, reason);
+        remove(client);
+        if (client.scheduled.compareAndSet(false, true)) {
+            senders.execute(() -> drain(client));
+        }
+    }
+
+    /**
+     * Grow or shrink the sender pool; threads above the new size end once idle
+     */
+    private synchronized void resizeSenders(int size) {
+        if (size > senders.getMaximumPoolSize()) {
+            senders.setMaximumPoolSize(size);
+            senders.setCorePoolSize(size);
+        } else if (size < senders.getCorePoolSize()) {
+            senders.setCorePoolSize(size);
+            senders.setMaximumPoolSize(size);
+        }
+    }
+
+    private static void complete(Client client) {
+        try {
+            client.emitter.complete();
+        } catch (RuntimeException e) {
+            log.debug("Event stream for bank {} already closed: {}", client.bankId, e.getMessage());
+        }
+    }
+
+    private void remove(Client client) {
+        client.closed = true;
+        client.queue.clear();
+        clients.computeIfPresent(client.bankId, (id, set) -> {
+            set.remove(client);
+            return set.isEmpty() ? null : set;
+        });
+    }
+}
@@ -0,0 +1,256 @@
+package com.bloodbank.service;
+
+import com.bloodbank.repository.BloodBankRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongPredicate;
+
+/**
+ * In-memory grid index over blood bank coordinates.
+ * The globe is cut into fixed cells of CELL_DEGREES; a nearest-bank query scans
+ * rings of cells outward from the caller's cell and stops as soon as no unseen
+ * ring can hold anything closer than the current k-th result. Rings stop at the
+ * cells the search radius can reach at the query latitude, and when that window
+ * has more cells than the index has occupied ones (wide radius, sparse area),
+ * the occupied cells are scanned directly instead.
+ */
+@Component
+public class BankSpatialIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(BankSpatialIndex.class);
+
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180.0;
+
+    // ~5.5 km of latitude per cell
+    private static final double CELL_DEGREES = 0.05;
+    private static final int LAT_CELLS = (int) Math.ceil(180.0 / CELL_DEGREES);
+    private static final int LNG_CELLS = (int) Math.ceil(360.0 / CELL_DEGREES);
+
+    private final BloodBankRepository bloodBankRepository;
+
+    // bankId -> {lat, lng}
+    private final Map<Long, double[]> coordinates = new ConcurrentHashMap<>();
+    // cell key -> bank ids in that cell
+    private final Map<Long, Set<Long>> cells = new ConcurrentHashMap<>();
+
+    public BankSpatialIndex(BloodBankRepository bloodBankRepository) {
+        this.bloodBankRepository = bloodBankRepository;
+    }
+
+    /**
+     * One nearest-bank result
+     */
+    public record Hit(Long bankId, double distanceKm) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        coordinates.clear();
+        cells.clear();
+        for (Object[] row : bloodBankRepository.findAllCoordinates()) {
+            put(((Number) row[0]).longValue(), (BigDecimal) row[1], (BigDecimal) row[2]);
+        }
+        log.info("Spatial index loaded with {} blood banks", coordinates.size());
+    }
+
+    /**
+     * Add, move or drop (null coordinates) a bank once the current transaction commits
+     */
+    public void update(Long bankId, BigDecimal latitude, BigDecimal longitude) {
+        TransactionHooks.afterCommit(() -> {
+            remove(bankId);
+            put(bankId, latitude, longitude);
+        });
+    }
+
+    public void removeBank(Long bankId) {
+        TransactionHooks.afterCommit(() -> remove(bankId));
+    }
+
+    /**
+     * The k nearest banks within radiusKm that pass the filter, closest first
+     */
+    public List<Hit> nearest(double lat, double lng, double radiusKm, int k, LongPredicate filter) {
+        if (k <= 0 || coordinates.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // Max-heap on distance holding the best k so far
+        PriorityQueue<Hit> best = new PriorityQueue<>(k + 1,
+                (a, b) -> Double.compare(b.distanceKm(), a.distanceKm()));
+
+        int centerLat = latCell(lat);
+        int centerLng = lngCell(lng);
+        int maxRing = maxRing(lat, radiusKm);
+
+        long windowCells = (2L * maxRing + 1) * (2L * maxRing + 1);
+        if (windowCells > cells.size()) {
+            scanOccupied(lat, lng, radiusKm, k, filter, best);
+            return sorted(best);
+        }
+        for (int ring = 0; ring <= maxRing; ring++) {
+            double ringMinKm = ringLowerBoundKm(lat, ring);
+            if (ringMinKm > radiusKm) {
+                break;
+            }
+            if (best.size() == k && ringMinKm > best.peek().distanceKm()) {
+                break;
+            }
+            scanRing(centerLat, centerLng, ring, lat, lng, radiusKm, k, filter, best);
+        }
+        return sorted(best);
+    }
+
+    /**
+     * Great-circle distance in kilometres
+     */
+    public static double haversineKm(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                        * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    /**
+     * Rings needed to cover every point within radiusKm: the latitude span is the
+     * radius over the length of a degree, the longitude span that of the radius's
+     * bounding box at the query latitude (every longitude once it reaches a pole).
+     * One extra ring covers the query's offset inside its own cell.
+     */
+    private static int maxRing(double lat, double radiusKm) {
+        int limit = Math.max(LAT_CELLS, LNG_CELLS / 2);
+        double radiusDegrees = radiusKm / KM_PER_DEGREE;
+        int latRings = (int) Math.ceil(radiusDegrees / CELL_DEGREES) + 1;
+        if (Math.abs(lat) + radiusDegrees >= 90.0) {
+            return Math.min(limit, Math.max(latRings, LNG_CELLS / 2));
+        }
+        double sinSpan = Math.sin(radiusKm / EARTH_RADIUS_KM) / Math.cos(Math.toRadians(lat));
+        double lngSpanDegrees = sinSpan >= 1.0 ? 180.0 : Math.toDegrees(Math.asin(sinSpan));
+        int lngRings = (int) Math.ceil(lngSpanDegrees / CELL_DEGREES) + 1;
+        return Math.min(limit, Math.max(latRings, lngRings));
+    }
+
+    private void scanOccupied(double lat, double lng, double radiusKm, int k, LongPredicate filter,
+            PriorityQueue<Hit> best) {
+        for (Set<Long> bankIds : cells.values()) {
+            offerAll(bankIds, lat, lng, radiusKm, k, filter, best);
+        }
+    }
+
+    private static List<Hit> sorted(PriorityQueue<Hit> best) {
+        List<Hit> result = new ArrayList<>(best);
+        result.sort((a, b) -> Double.compare(a.distanceKm(), b.distanceKm()));
+        return result;
+    }
+
+    private void scanRing(int centerLat, int centerLng, int ring, double lat, double lng,
+            double radiusKm, int k, LongPredicate filter, PriorityQueue<Hit> best) {
+        for (int dLat = -ring; dLat <= ring; dLat++) {
+            int cellLat = centerLat + dLat;
+            if (cellLat < 0 || cellLat >= LAT_CELLS) {
+                continue;
+            }
+            boolean edgeRow = Math.abs(dLat) == ring;
+            // Interior rows of the ring only contribute their two edge cells
+            int step = edgeRow || ring == 0 ? 1 : 2 * ring;
+            for (int dLng = -ring; dLng <= ring; dLng += step) {
+                int cellLng = Math.floorMod(centerLng + dLng, LNG_CELLS);
+                Set<Long> bankIds = cells.get(cellKey(cellLat, cellLng));
+                if (bankIds != null) {
+                    offerAll(bankIds, lat, lng, radiusKm, k, filter, best);
+                }
+            }
+        }
+    }
+
+    private void offerAll(Set<Long> bankIds, double lat, double lng, double radiusKm, int k,
+            LongPredicate filter, PriorityQueue<Hit> best) {
+        for (Long bankId : bankIds) {
+            double[] point = coordinates.get(bankId);
+            if (point == null) {
+                continue;
+            }
+            double distance = haversineKm(lat, lng, point[0], point[1]);
+            if (distance > radiusKm) {
+                continue;
+            }
+            if (best.size() == k && distance >= best.peek().distanceKm()) {
+                continue;
+            }
+            if (!filter.test(bankId)) {
+                continue;
+            }
+            best.offer(new Hit(bankId, distance));
+            if (best.size() > k) {
+                best.poll();
+            }
+        }
+    }
+
+    /**
+     * Smallest possible distance from the query point to any bank in the given
+     * ring. The query can sit anywhere in its own cell, so ring r is at least
+     * r - 1 whole cells away; longitude cells are narrowed by the widest latitude
+     * the ring reaches.
+     */
+    private static double ringLowerBoundKm(double lat, int ring) {
+        if (ring <= 1) {
+            return 0;
+        }
+        double farthestLat = Math.min(90.0, Math.abs(lat) + (ring + 1) * CELL_DEGREES);
+        double lngKmPerCell = CELL_DEGREES * KM_PER_DEGREE * Math.cos(Math.toRadians(farthestLat));
+        double latKmPerCell = CELL_DEGREES * KM_PER_DEGREE;
+        return (ring - 1) * Math.min(latKmPerCell, lngKmPerCell);
+    }
+
+    private void put(Long bankId, BigDecimal latitude, BigDecimal longitude) {
+        if (latitude == null || longitude == null) {
+            return;
+        }
+        double lat = latitude.doubleValue();
+        double lng = longitude.doubleValue();
+        coordinates.put(bankId, new double[] { lat, lng });
+        cells.computeIfAbsent(cellKey(latCell(lat), lngCell(lng)), key -> ConcurrentHashMap.newKeySet())
+                .add(bankId);
+    }
+
+    private void remove(Long bankId) {
+        double[] point = coordinates.remove(bankId);
+        if (point == null) {
+            return;
+        }
+        long key = cellKey(latCell(point[0]), lngCell(point[1]));
+        cells.computeIfPresent(key, (cell, bankIds) -> {
+            bankIds.remove(bankId);
+            return bankIds.isEmpty() ? null : bankIds;
+        });
+    }
+
+    private static int latCell(double lat) {
+        int cell = (int) Math.floor((lat + 90.0) / CELL_DEGREES);
+        return Math.max(0, Math.min(LAT_CELLS - 1, cell));
+    }
+
+    private static int lngCell(double lng) {
+        return Math.floorMod((int) Math.floor((lng + 180.0) / CELL_DEGREES), LNG_CELLS);
+    }
+
+    private static long cellKey(int latCell, int lngCell) {
+        return (long) latCell * LNG_CELLS + lngCell;
+    }
+}
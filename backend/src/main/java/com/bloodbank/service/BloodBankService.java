@@ -1,14 +1,17 @@
 package com.bloodbank.service;
 
 import com.bloodbank.dto.BloodBankDto;
+import com.bloodbank.dto.CursorPage;
+import com.bloodbank.dto.PageCursor;
 import com.bloodbank.entity.BloodBank;
-import com.bloodbank.entity.BloodInventory;
 import com.bloodbank.repository.BloodBankRepository;
 import com.bloodbank.repository.BloodInventoryRepository;
 import com.bloodbank.repository.BloodUnitRepository;
 import com.bloodbank.repository.DonationRepository;
 import com.bloodbank.repository.DonorRequestRepository;
 import com.bloodbank.repository.ReservationRepository;
+import com.bloodbank.repository.StockThresholdRepository;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -25,26 +28,49 @@ public class BloodBankService {
     private final BloodUnitRepository bloodUnitRepository;
     private final DonorRequestRepository donorRequestRepository;
     private final DonationRepository donationRepository;
+    private final InventoryMatrix inventoryMatrix;
+    private final BankSpatialIndex spatialIndex;
+    private final UnitStockCounters unitStockCounters;
+    private final StockThresholdRepository stockThresholdRepository;
+    private final LowStockDetector lowStockDetector;
+    private final UnitExpiryWheel unitExpiryWheel;
+    private final ReservationQueue reservationQueue;
 
     public BloodBankService(BloodBankRepository bloodBankRepository,
             BloodInventoryRepository inventoryRepository,
             ReservationRepository reservationRepository,
             BloodUnitRepository bloodUnitRepository,
             DonorRequestRepository donorRequestRepository,
-            DonationRepository donationRepository) {
+            DonationRepository donationRepository,
+            InventoryMatrix inventoryMatrix,
+            BankSpatialIndex spatialIndex,
+            UnitStockCounters unitStockCounters,
+            StockThresholdRepository stockThresholdRepository,
+            LowStockDetector lowStockDetector,
+            UnitExpiryWheel unitExpiryWheel,
+            ReservationQueue reservationQueue) {
         this.bloodBankRepository = bloodBankRepository;
         this.inventoryRepository = inventoryRepository;
         this.reservationRepository = reservationRepository;
         this.bloodUnitRepository = bloodUnitRepository;
         this.donorRequestRepository = donorRequestRepository;
         this.donationRepository = donationRepository;
+        this.inventoryMatrix = inventoryMatrix;
+        this.spatialIndex = spatialIndex;
+        this.unitStockCounters = unitStockCounters;
+        this.stockThresholdRepository = stockThresholdRepository;
+        this.lowStockDetector = lowStockDetector;
+        this.unitExpiryWheel = unitExpiryWheel;
+        this.reservationQueue = reservationQueue;
     }
 
-    public List<BloodBankDto> getAllBloodBanks() {
-        List<BloodBank> banks = bloodBankRepository.findAll();
-        return banks.stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+    /**
+     * Keyset page of blood banks in id order
+     */
+    public CursorPage<BloodBankDto> getBloodBanksPage(PageCursor cursor, int limit) {
+        Long afterId = cursor != null ? cursor.id() : 0L;
+        List<BloodBank> banks = bloodBankRepository.findPageAfter(afterId, PageRequest.of(0, limit + 1));
+        return CursorPage.of(banks, limit, b -> PageCursor.of(null, b.getId()), this::convertToDto);
     }
 
     public Optional<BloodBankDto> getBloodBankById(Long id) {
@@ -52,21 +78,83 @@ public class BloodBankService {
                 .map(this::convertToDto);
     }
 
-    public List<BloodBankDto> searchByBloodType(String bloodType) {
-        List<BloodBank> banks = bloodBankRepository.findByBloodTypeAvailable(bloodType);
-        return banks.stream()
+    public List<BloodBankDto> searchByBloodType(String bloodType, Double lat, Double lng) {
+        int typeIndex = BloodTypes.indexOf(bloodType);
+        if (typeIndex < 0) {
+            return Collections.emptyList();
+        }
+        // Exact-type search reads the stock bitset of that one type
+        List<Long> bankIds = inventoryMatrix.findBanksWithStock(1 << typeIndex, bloodType);
+        return loadInOrder(bankIds).stream()
+                .map(bank -> {
+                    BloodBankDto dto = convertToDto(bank);
+                    dto.setUnitsAvailable(inventoryMatrix.getUnits(bank.getId(), bloodType));
+                    applyDistance(dto, bank, lat, lng);
+                    return dto;
+                })
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Banks holding any blood a recipient of bloodType can receive; banks with the
+     * exact type come first, then the rest by compatible units held
+     */
+    public List<BloodBankDto> searchCompatible(String bloodType, Double lat, Double lng) {
+        int donorMask = BloodCompatibility.donorMask(bloodType);
+        if (donorMask == 0) {
+            return Collections.emptyList();
+        }
+
+        List<BloodBankDto> result = loadInOrder(inventoryMatrix.findBanksWithStock(donorMask, bloodType)).stream()
                 .map(bank -> {
                     BloodBankDto dto = convertToDto(bank);
-                    inventoryRepository.findByBloodBankIdAndBloodType(bank.getId(), bloodType)
-                            .ifPresent(inv -> dto.setUnitsAvailable(inv.getUnitsAvailable()));
-                    dto.setDistance(String.format("%.1f km", Math.random() * 10 + 1));
+                    int exactUnits = inventoryMatrix.getUnits(bank.getId(), bloodType);
+                    dto.setUnitsAvailable(exactUnits);
+                    dto.setExactMatch(exactUnits > 0);
+                    dto.setCompatibleUnits(inventoryMatrix.getUnits(bank.getId(), donorMask));
+                    applyDistance(dto, bank, lat, lng);
                     return dto;
                 })
                 .collect(Collectors.toList());
+
+        result.sort(Comparator.comparing(BloodBankDto::getExactMatch).reversed()
+                .thenComparing(BloodBankDto::getCompatibleUnits, Comparator.reverseOrder()));
+        return result;
+    }
+
+    /**
+     * Nearest banks with stock (of bloodType, or of any type when null), closest first
+     */
+    public List<BloodBankDto> findNearby(double lat, double lng, double radiusKm, String bloodType, int limit) {
+        List<BankSpatialIndex.Hit> hits = spatialIndex.nearest(lat, lng, radiusKm, limit,
+                bankId -> inventoryMatrix.hasStock(bankId, bloodType));
+        if (hits.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Map<Long, BloodBank> banksById = bloodBankRepository.findAllById(
+                hits.stream().map(BankSpatialIndex.Hit::bankId).collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.toMap(BloodBank::getId, bank -> bank));
+
+        List<BloodBankDto> result = new ArrayList<>();
+        for (BankSpatialIndex.Hit hit : hits) {
+            BloodBank bank = banksById.get(hit.bankId());
+            if (bank == null) {
+                continue;
+            }
+            BloodBankDto dto = convertToDto(bank);
+            if (bloodType != null) {
+                dto.setUnitsAvailable(inventoryMatrix.getUnits(bank.getId(), bloodType));
+            }
+            dto.setDistance(formatDistance(hit.distanceKm()));
+            result.add(dto);
+        }
+        return result;
     }
 
     public List<String> getBloodTypes() {
-        return Arrays.asList("A+", "A-", "B+", "B-", "AB+", "AB-", "O+", "O-");
+        return BloodTypes.all();
     }
 
     @Transactional
@@ -77,7 +165,9 @@ public class BloodBankService {
         if (bloodBank.getIsOpen() == null) {
             bloodBank.setIsOpen(true);
         }
-        return bloodBankRepository.save(bloodBank);
+        BloodBank saved = bloodBankRepository.save(bloodBank);
+        spatialIndex.update(saved.getId(), saved.getLatitude(), saved.getLongitude());
+        return saved;
     }
 
     @Transactional
@@ -102,7 +192,9 @@ public class BloodBankService {
                         bank.setLatitude(updates.getLatitude());
                     if (updates.getLongitude() != null)
                         bank.setLongitude(updates.getLongitude());
-                    return bloodBankRepository.save(bank);
+                    BloodBank saved = bloodBankRepository.save(bank);
+                    spatialIndex.update(saved.getId(), saved.getLatitude(), saved.getLongitude());
+                    return saved;
                 });
     }
 
@@ -124,26 +216,63 @@ public class BloodBankService {
             reservationRepository.deleteByBloodBankId(id);
             bloodUnitRepository.deleteByBloodBankId(id);
             inventoryRepository.deleteByBloodBankId(id);
+            stockThresholdRepository.deleteByBloodBankId(id);
             // Delete the blood bank
             bloodBankRepository.deleteById(id);
+            inventoryMatrix.removeBank(id);
+            spatialIndex.removeBank(id);
+            unitStockCounters.removeBank(id);
+            lowStockDetector.removeBank(id);
+            unitExpiryWheel.removeBank(id);
+            reservationQueue.removeBank(id);
             return true;
         }
         return false;
     }
 
-    private BloodBankDto convertToDto(BloodBank bank) {
-        List<BloodInventory> inventories = inventoryRepository
-                .findByBloodBankIdOrderByBloodType(bank.getId());
+    /**
+     * Fetch banks by id in one query, keeping the order of the ids
+     */
+    private List<BloodBank> loadInOrder(List<Long> bankIds) {
+        if (bankIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<Long, BloodBank> banksById = bloodBankRepository.findAllById(bankIds).stream()
+                .collect(Collectors.toMap(BloodBank::getId, bank -> bank));
+        List<BloodBank> banks = new ArrayList<>(bankIds.size());
+        for (Long bankId : bankIds) {
+            BloodBank bank = banksById.get(bankId);
+            if (bank != null) {
+                banks.add(bank);
+            }
+        }
+        return banks;
+    }
 
-        List<String> bloodTypes = inventories.stream()
-                .map(BloodInventory::getBloodType)
-                .collect(Collectors.toList());
+    // Distance is only known when the caller shares a location
+    private void applyDistance(BloodBankDto dto, BloodBank bank, Double lat, Double lng) {
+        if (lat != null && lng != null && bank.getLatitude() != null && bank.getLongitude() != null) {
+            dto.setDistance(formatDistance(BankSpatialIndex.haversineKm(lat, lng,
+                    bank.getLatitude().doubleValue(), bank.getLongitude().doubleValue())));
+        }
+    }
+
+    private String formatDistance(double distanceKm) {
+        return String.format("%.1f km", distanceKm);
+    }
 
-        Map<String, Integer> availableUnits = inventories.stream()
-                .collect(Collectors.toMap(
-                        BloodInventory::getBloodType,
-                        BloodInventory::getUnitsAvailable,
-                        (a, b) -> a));
+    private BloodBankDto convertToDto(BloodBank bank) {
+        // Stock figures come from the in-memory matrix, not a per-bank query
+        int[] units = inventoryMatrix.getUnits(bank.getId());
+
+        List<String> bloodTypes = new ArrayList<>();
+        Map<String, Integer> availableUnits = new HashMap<>();
+        for (int i = 0; i < units.length; i++) {
+            if (units[i] != InventoryMatrix.NO_ROW) {
+                bloodTypes.add(BloodTypes.nameOf(i));
+                availableUnits.put(BloodTypes.nameOf(i), units[i]);
+            }
+        }
 
         return BloodBankDto.builder()
                 .id(bank.getId())
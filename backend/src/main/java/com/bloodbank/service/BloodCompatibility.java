@@ -0,0 +1,81 @@
+package com.bloodbank.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ABO/Rh red cell compatibility as an 8x8 donor -> recipient bitmask.
+ * Bit d of {@link #donorMask(String)} is set when donor type d (a
+ * {@link BloodTypes} index) can be transfused to the recipient.
+ */
+public final class BloodCompatibility {
+
+    private static final int ANTIGEN_A = 1;
+    private static final int ANTIGEN_B = 2;
+    private static final int ANTIGEN_RH = 4;
+
+    // Indexed by recipient type
+    private static final int[] DONOR_MASKS = new int[BloodTypes.COUNT];
+
+    static {
+        // A donor is compatible when it carries no antigen the recipient lacks
+        for (int recipient = 0; recipient < BloodTypes.COUNT; recipient++) {
+            int recipientAntigens = antigens(BloodTypes.nameOf(recipient));
+            for (int donor = 0; donor < BloodTypes.COUNT; donor++) {
+                if ((antigens(BloodTypes.nameOf(donor)) & ~recipientAntigens) == 0) {
+                    DONOR_MASKS[recipient] |= 1 << donor;
+                }
+            }
+        }
+    }
+
+    private BloodCompatibility() {
+    }
+
+    /**
+     * Bitmask of donor type indexes a recipient can receive, or 0 for an unknown type
+     */
+    public static int donorMask(String recipientType) {
+        int recipient = BloodTypes.indexOf(recipientType);
+        return recipient < 0 ? 0 : DONOR_MASKS[recipient];
+    }
+
+    public static boolean canDonate(String donorType, String recipientType) {
+        int donor = BloodTypes.indexOf(donorType);
+        return donor >= 0 && (donorMask(recipientType) & (1 << donor)) != 0;
+    }
+
+    /**
+     * Donor types a recipient can receive, exact match first
+     */
+    public static List<String> compatibleDonorTypes(String recipientType) {
+        List<String> types = new ArrayList<>();
+        int recipient = BloodTypes.indexOf(recipientType);
+        if (recipient < 0) {
+            return types;
+        }
+        types.add(BloodTypes.nameOf(recipient));
+        int mask = DONOR_MASKS[recipient];
+        for (int donor = 0; donor < BloodTypes.COUNT; donor++) {
+            if (donor != recipient && (mask & (1 << donor)) != 0) {
+                types.add(BloodTypes.nameOf(donor));
+            }
+        }
+        return types;
+    }
+
+    private static int antigens(String bloodType) {
+        int antigens = 0;
+        String group = bloodType.substring(0, bloodType.length() - 1);
+        if (group.contains("A")) {
+            antigens |= ANTIGEN_A;
+        }
+        if (group.contains("B")) {
+            antigens |= ANTIGEN_B;
+        }
+        if (bloodType.endsWith("+")) {
+            antigens |= ANTIGEN_RH;
+        }
+        return antigens;
+    }
+}
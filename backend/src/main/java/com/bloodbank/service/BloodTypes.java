@@ -0,0 +1,49 @@
+package com.bloodbank.service;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The eight ABO/Rh blood types and their fixed array positions.
+ * In-memory stock structures index their per-type slots with {@link #indexOf(String)}.
+ */
+public final class BloodTypes {
+
+    public static final int COUNT = 8;
+
+    private static final String[] ALL = { "A+", "A-", "B+", "B-", "AB+", "AB-", "O+", "O-" };
+
+    private static final List<String> ALL_LIST = Collections.unmodifiableList(Arrays.asList(ALL));
+
+    private BloodTypes() {
+    }
+
+    public static List<String> all() {
+        return ALL_LIST;
+    }
+
+    public static String nameOf(int index) {
+        return ALL[index];
+    }
+
+    /**
+     * Position of a blood type in the canonical order, or -1 if it is not a known type
+     */
+    public static int indexOf(String bloodType) {
+        if (bloodType == null) {
+            return -1;
+        }
+        String normalized = bloodType.trim().toUpperCase();
+        for (int i = 0; i < COUNT; i++) {
+            if (ALL[i].equals(normalized)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public static boolean isValid(String bloodType) {
+        return indexOf(bloodType) >= 0;
+    }
+}
@@ -0,0 +1,162 @@
+package com.bloodbank.service;
+
+import com.bloodbank.entity.BloodUnit;
+import com.bloodbank.entity.Donation;
+import com.bloodbank.entity.Donor;
+import com.bloodbank.repository.DonationRepository;
+import com.bloodbank.repository.DonorRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Inserts many blood units in one transaction with JDBC batches.
+ * BloodUnit ids are IDENTITY, which stops Hibernate from batching inserts, so ids
+ * are drawn from the column's sequence in one round trip and written explicitly,
+ * and unit numbers come from the block allocator without touching the database.
+ */
+@Service
+public class BloodUnitBatchWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(BloodUnitBatchWriter.class);
+
+    private static final int INSERT_BATCH_SIZE = 500;
+
+    private static final String NEXT_IDS_SQL =
+            "SELECT nextval(pg_get_serial_sequence('blood_units', 'id')) FROM generate_series(1, ?)";
+
+    private static final String INSERT_SQL = "INSERT INTO blood_units " +
+            "(id, unit_number, blood_bank_id, blood_type, component, collection_date, expiry_date, status, " +
+            "donor_id, reservation_id, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UnitNumberAllocator unitNumberAllocator;
+    private final UnitStockCounters unitStockCounters;
+    private final UnitExpiryWheel unitExpiryWheel;
+    private final DonationRepository donationRepository;
+    private final DonorRepository donorRepository;
+
+    public BloodUnitBatchWriter(JdbcTemplate jdbcTemplate,
+            UnitNumberAllocator unitNumberAllocator,
+            UnitStockCounters unitStockCounters,
+            UnitExpiryWheel unitExpiryWheel,
+            DonationRepository donationRepository,
+            DonorRepository donorRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.unitNumberAllocator = unitNumberAllocator;
+        this.unitStockCounters = unitStockCounters;
+        this.unitExpiryWheel = unitExpiryWheel;
+        this.donationRepository = donationRepository;
+        this.donorRepository = donorRepository;
+    }
+
+    /**
+     * Insert new units; ids, missing unit numbers, expiry dates and timestamps are
+     * filled in on the given objects, which are returned
+     */
+    @Transactional
+    public List<BloodUnit> insertAll(List<BloodUnit> units) {
+        if (units.isEmpty()) {
+            return units;
+        }
+        List<Long> ids = jdbcTemplate.queryForList(NEXT_IDS_SQL, Long.class, units.size());
+        LocalDateTime now = LocalDateTime.now();
+
+        for (int i = 0; i < units.size(); i++) {
+            BloodUnit unit = units.get(i);
+            if (unit.getBloodBank() == null || unit.getComponent() == null || unit.getCollectionDate() == null) {
+                throw new IllegalArgumentException("Blood bank, component and collection date are required");
+            }
+            if (!BloodTypes.isValid(unit.getBloodType())) {
+                throw new IllegalArgumentException("Invalid blood type: " + unit.getBloodType());
+            }
+            unit.setId(ids.get(i));
+            if (unit.getUnitNumber() == null) {
+                unit.setUnitNumber(unitNumberAllocator.next(unit.getBloodBank().getId()));
+            }
+            // Same defaults as BloodUnit's @PrePersist
+            if (unit.getExpiryDate() == null) {
+                unit.setExpiryDate(unit.getCollectionDate().plusDays(unit.getComponent().getShelfLifeDays()));
+            }
+            if (unit.getStatus() == null) {
+                unit.setStatus(BloodUnit.UnitStatus.AVAILABLE);
+            }
+            unit.setCreatedAt(now);
+            unit.setUpdatedAt(now);
+        }
+
+        Timestamp timestamp = Timestamp.valueOf(now);
+        jdbcTemplate.batchUpdate(INSERT_SQL, units, INSERT_BATCH_SIZE, (ps, unit) -> {
+            ps.setLong(1, unit.getId());
+            ps.setString(2, unit.getUnitNumber());
+            ps.setLong(3, unit.getBloodBank().getId());
+            ps.setString(4, unit.getBloodType());
+            ps.setString(5, unit.getComponent().name());
+            ps.setDate(6, Date.valueOf(unit.getCollectionDate()));
+            ps.setDate(7, Date.valueOf(unit.getExpiryDate()));
+            ps.setString(8, unit.getStatus().name());
+            if (unit.getDonor() != null) {
+                ps.setLong(9, unit.getDonor().getId());
+            } else {
+                ps.setNull(9, Types.BIGINT);
+            }
+            if (unit.getReservationId() != null) {
+                ps.setLong(10, unit.getReservationId());
+            } else {
+                ps.setNull(10, Types.BIGINT);
+            }
+            ps.setTimestamp(11, timestamp);
+            ps.setTimestamp(12, timestamp);
+        });
+
+        for (BloodUnit unit : units) {
+            unitStockCounters.onCreated(unit);
+            unitExpiryWheel.onCreated(unit);
+        }
+        log.debug("Inserted {} blood units in batches of {}", units.size(), INSERT_BATCH_SIZE);
+        return units;
+    }
+
+    /**
+     * Insert the components of a pending donation and mark it processed, atomically
+     */
+    @Transactional
+    public List<BloodUnit> insertForDonation(Donation donation, List<BloodUnit> units) {
+        List<BloodUnit> inserted = insertAll(units);
+        donation.setComponentsAdded(true);
+        donationRepository.save(donation);
+        return inserted;
+    }
+
+    /**
+     * Insert the units of many donations and move each donor's last donation date
+     * forward, atomically
+     */
+    @Transactional
+    public List<BloodUnit> insertForDonations(List<BloodUnit> units) {
+        List<BloodUnit> inserted = insertAll(units);
+        Map<Long, Donor> donors = new HashMap<>();
+        for (BloodUnit unit : inserted) {
+            Donor donor = unit.getDonor();
+            if (donor == null) {
+                continue;
+            }
+            LocalDate last = donor.getLastDonationDate();
+            if (last == null || unit.getCollectionDate().isAfter(last)) {
+                donor.setLastDonationDate(unit.getCollectionDate());
+            }
+            donors.put(donor.getId(), donor);
+        }
+        donorRepository.saveAll(donors.values());
+        return inserted;
+    }
+}
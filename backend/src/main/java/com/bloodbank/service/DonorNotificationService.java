@@ -1,39 +1,117 @@
 package com.bloodbank.service;
 
 import com.bloodbank.entity.Donor;
+import com.bloodbank.repository.BloodBankRepository;
 import com.bloodbank.repository.DonorRepository;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Service
 public class DonorNotificationService {
 
     private static final Logger log = LoggerFactory.getLogger(DonorNotificationService.class);
     private static final int DONATION_GAP_DAYS = 90;
+    private static final Duration SHORTAGE_ALERT_COOLDOWN = Duration.ofHours(6);
 
     private final DonorRepository donorRepository;
-    private final WebClient webClient;
-    private final String whatsappServiceUrl;
+    private final BloodBankRepository bloodBankRepository;
+    private final NotificationOutbox notificationOutbox;
+    private final TransactionTemplate newTransaction;
+    private final boolean autoShortageAlerts;
+
+    // "bankId:bloodType" -> when the last automatic shortage alert went out
+    private final Map<String, Instant> lastShortageAlert = new ConcurrentHashMap<>();
+    private final ExecutorService shortageAlerts = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "shortage-alerts");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     public DonorNotificationService(
             DonorRepository donorRepository,
-            WebClient.Builder webClientBuilder,
-            @Value("${whatsapp.service.url}") String whatsappServiceUrl) {
+            BloodBankRepository bloodBankRepository,
+            NotificationOutbox notificationOutbox,
+            PlatformTransactionManager transactionManager,
+            @Value("${inventory.low-stock.auto-alert:true}") boolean autoShortageAlerts) {
         this.donorRepository = donorRepository;
-        this.webClient = webClientBuilder
-                .defaultHeader("ngrok-skip-browser-warning", "true")
-                .build();
-        this.whatsappServiceUrl = whatsappServiceUrl;
+        this.bloodBankRepository = bloodBankRepository;
+        this.notificationOutbox = notificationOutbox;
+        // Shortage alerts are queued off the thread that changed stock, so they
+        // always commit in a transaction of their own
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.autoShortageAlerts = autoShortageAlerts;
+    }
+
+    /**
+     * Alert donors automatically when a bank's blood type drops below its
+     * threshold, at most once per SHORTAGE_ALERT_COOLDOWN for the same pair.
+     * The event is published on the thread that changed stock, so the donor
+     * lookup and outbox fan-out run on shortageAlerts instead.
+     */
+    @EventListener
+    public void onLowStock(LowStockEvent event) {
+        if (!event.low() || !autoShortageAlerts) {
+            return;
+        }
+        String key = event.bankId() + ":" + event.bloodType();
+        Instant now = Instant.now();
+        // Claim the cooldown slot atomically, so simultaneous crossings alert once
+        AtomicBoolean claimed = new AtomicBoolean();
+        lastShortageAlert.compute(key, (k, last) -> {
+            if (last != null && last.plus(SHORTAGE_ALERT_COOLDOWN).isAfter(now)) {
+                return last;
+            }
+            claimed.set(true);
+            return now;
+        });
+        if (!claimed.get()) {
+            log.debug("Shortage alert for {} suppressed (cooldown)", key);
+            return;
+        }
+        try {
+            shortageAlerts.execute(() -> queueShortageAlert(event, key, now));
+        } catch (RejectedExecutionException e) {
+            lastShortageAlert.remove(key, now);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        shortageAlerts.shutdownNow();
+    }
+
+    private void queueShortageAlert(LowStockEvent event, String key, Instant claimedAt) {
+        try {
+            bloodBankRepository.findById(event.bankId())
+                    .filter(bank -> bank.getCity() != null)
+                    .ifPresent(bank -> sendBloodShortageAlert(event.bloodType(), bank.getCity(), bank.getName()));
+        } catch (RuntimeException e) {
+            // Nothing was queued; free the slot so the next crossing tries again
+            lastShortageAlert.remove(key, claimedAt);
+            log.error("Failed to queue shortage alert for {}: {}", key, e.getMessage());
+        }
     }
 
     /**
@@ -54,9 +132,9 @@ public class DonorNotificationService {
         for (Donor donor : eligibleDonors) {
             try {
                 sendEligibilityReminder(donor.getPhone(), donor.getName());
-                log.info("Sent eligibility reminder to: {}", donor.getName());
+                log.info("Queued eligibility reminder for: {}", donor.getName());
             } catch (Exception e) {
-                log.error("Failed to send reminder to donor {}: {}", donor.getId(), e.getMessage());
+                log.error("Failed to queue reminder for donor {}: {}", donor.getId(), e.getMessage());
             }
         }
 
@@ -64,34 +142,18 @@ public class DonorNotificationService {
     }
 
     /**
-     * Send eligibility reminder to a specific donor
+     * Queue an eligibility reminder for a specific donor
      */
     public void sendEligibilityReminder(String phone, String donorName) {
-        try {
-            Map<String, Object> payload = new HashMap<>();
-            payload.put("phoneNumber", phone);
-            payload.put("donorName", donorName);
-
-            webClient
-                    .post()
-                    .uri(whatsappServiceUrl + "/api/whatsapp/send-eligibility-reminder")
-                    .bodyValue(payload)
-                    .retrieve()
-                    .bodyToMono(Map.class)
-                    .timeout(Duration.ofSeconds(10))
-                    .subscribe(
-                            response -> log.info("Eligibility reminder sent to {}", donorName),
-                            error -> log.warn("Failed to send eligibility reminder: {}", error.getMessage()));
-        } catch (Exception e) {
-            log.error("Error sending eligibility reminder: {}", e.getMessage());
-        }
+        notificationOutbox.enqueue(NotificationOutbox.eligibilityReminder(phone, donorName));
     }
 
     /**
-     * Send blood shortage alert to all eligible donors of a specific blood type in
-     * a city
+     * Queue a blood shortage alert for all eligible donors of a specific blood
+     * type in a city. The alerts commit in their own transaction, so callers
+     * running after a commit (low-stock events) still persist them.
      */
-    public void sendBloodShortageAlert(String bloodType, String city, String bloodBankName) {
+    public int sendBloodShortageAlert(String bloodType, String city, String bloodBankName) {
         log.info("Sending blood shortage alert for {} in {}", bloodType, city);
 
         // Find eligible donors matching the blood type and city
@@ -100,46 +162,13 @@ public class DonorNotificationService {
 
         log.info("Found {} eligible donors for {} in {}", eligibleDonors.size(), bloodType, city);
 
+        List<NotificationOutbox.Message> alerts = new ArrayList<>(eligibleDonors.size());
         for (Donor donor : eligibleDonors) {
-            try {
-                sendBloodShortageAlertToOne(
-                        donor.getPhone(),
-                        donor.getName(),
-                        bloodType,
-                        city,
-                        bloodBankName);
-            } catch (Exception e) {
-                log.error("Failed to send shortage alert to donor {}: {}", donor.getId(), e.getMessage());
-            }
-        }
-    }
-
-    /**
-     * Send blood shortage alert to a single donor
-     */
-    private void sendBloodShortageAlertToOne(String phone, String donorName,
-            String bloodType, String city, String bloodBankName) {
-        try {
-            Map<String, Object> payload = new HashMap<>();
-            payload.put("phoneNumber", phone);
-            payload.put("donorName", donorName);
-            payload.put("bloodType", bloodType);
-            payload.put("city", city);
-            payload.put("bloodBankName", bloodBankName);
-
-            webClient
-                    .post()
-                    .uri(whatsappServiceUrl + "/api/whatsapp/send-blood-shortage-alert")
-                    .bodyValue(payload)
-                    .retrieve()
-                    .bodyToMono(Map.class)
-                    .timeout(Duration.ofSeconds(10))
-                    .subscribe(
-                            response -> log.debug("Shortage alert sent to {}", donorName),
-                            error -> log.warn("Failed to send shortage alert: {}", error.getMessage()));
-        } catch (Exception e) {
-            log.error("Error sending shortage alert: {}", e.getMessage());
+            alerts.add(NotificationOutbox.shortageAlert(donor.getPhone(), donor.getName(), bloodType, city,
+                    bloodBankName));
         }
+        Integer queued = newTransaction.execute(status -> notificationOutbox.enqueueAll(alerts));
+        return queued != null ? queued : 0;
     }
 
     /**
@@ -0,0 +1,152 @@
+package com.bloodbank.service;
+
+import com.bloodbank.entity.BloodUnit.BloodComponent;
+import com.bloodbank.entity.BloodUnit.UnitStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Flips AVAILABLE units past their expiry date to EXPIRED with set-based updates.
+ * Each batch is one UPDATE over at most batch-size rows in its own transaction,
+ * so a large backlog never holds long locks. Rows locked by a concurrent status
+ * change are skipped and picked up by the next run.
+ */
+@Service
+public class ExpirySweeper {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpirySweeper.class);
+
+    private static final String ALL_BANKS = "";
+    private static final String ONE_BANK = "AND blood_bank_id = ? ";
+
+    // Expires one batch and returns how many units of each bank/type/component it moved
+    private static final String SWEEP_SQL = "WITH batch AS (" +
+            "SELECT id FROM blood_units WHERE status = 'AVAILABLE' AND expiry_date < ? %s" +
+            "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED), " +
+            "expired AS (UPDATE blood_units bu SET status = 'EXPIRED', version = version + 1, " +
+            "updated_at = LOCALTIMESTAMP FROM batch WHERE bu.id = batch.id " +
+            "RETURNING bu.blood_bank_id, bu.blood_type, bu.component) " +
+            "SELECT blood_bank_id, blood_type, component, COUNT(*) FROM expired " +
+            "GROUP BY blood_bank_id, blood_type, component";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UnitStockCounters unitStockCounters;
+    private final int batchSize;
+
+    private final JobRuns<Run> runs = new JobRuns<Run>().total("totalExpired", Run::expired);
+
+    public ExpirySweeper(JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            UnitStockCounters unitStockCounters,
+            @Value("${units.expiry.sweep-batch-size:1000}") int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("units.expiry.sweep-batch-size must be positive");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.unitStockCounters = unitStockCounters;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Outcome of one sweep
+     */
+    public record Run(String trigger, Long bankId, LocalDateTime startedAt, long durationMs, int batches,
+            int expired, Map<Long, Integer> expiredByBank) {
+    }
+
+    /**
+     * Scheduled job: expire stale units across all banks
+     */
+    @Scheduled(cron = "${units.expiry.sweep-cron:0 5 * * * *}")
+    public void sweepScheduled() {
+        sweep("scheduled", null);
+    }
+
+    /**
+     * Expire stale units across all banks now
+     */
+    public Run sweepAll() {
+        return sweep("manual", null);
+    }
+
+    /**
+     * Expire stale units of one bank now
+     */
+    public Run sweepBank(Long bankId) {
+        return sweep("bank", bankId);
+    }
+
+    /**
+     * Batch size, the last sweep and units expired since startup
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("batchSize", batchSize);
+        runs.putStats(stats);
+        return stats;
+    }
+
+    private Run sweep(String trigger, Long bankId) {
+        LocalDateTime startedAt = LocalDateTime.now();
+        long start = System.nanoTime();
+        Date today = Date.valueOf(LocalDate.now());
+
+        Map<Long, Integer> expiredByBank = new TreeMap<>();
+        JobRuns.Batches batches = JobRuns.untilShort(batchSize,
+                () -> transactionTemplate.execute(status -> sweepBatch(today, bankId, expiredByBank)));
+
+        long durationMs = (System.nanoTime() - start) / 1_000_000;
+        Run run = runs.record(new Run(trigger, bankId, startedAt, durationMs, batches.count(), batches.items(),
+                Collections.unmodifiableMap(expiredByBank)));
+
+        if (run.expired() > 0) {
+            log.info("Expiry sweep ({}): {} units expired across {} banks in {} batches, {} ms", trigger,
+                    run.expired(), expiredByBank.size(), run.batches(), durationMs);
+        } else {
+            log.debug("Expiry sweep ({}): nothing to expire, {} ms", trigger, durationMs);
+        }
+        return run;
+    }
+
+    private int sweepBatch(Date today, Long bankId, Map<Long, Integer> expiredByBank) {
+        List<Object[]> rows = bankId == null
+                ? jdbcTemplate.query(String.format(SWEEP_SQL, ALL_BANKS), this::mapRow, today, batchSize)
+                : jdbcTemplate.query(String.format(SWEEP_SQL, ONE_BANK), this::mapRow, today, bankId, batchSize);
+
+        int moved = 0;
+        for (Object[] row : rows) {
+            Long bank = (Long) row[0];
+            int units = (Integer) row[3];
+            // Counter deltas apply after this batch commits
+            unitStockCounters.onBulkStatusChange(bank, (String) row[1], (BloodComponent) row[2],
+                    UnitStatus.AVAILABLE, UnitStatus.EXPIRED, units);
+            expiredByBank.merge(bank, units, Integer::sum);
+            moved += units;
+        }
+        return moved;
+    }
+
+    private Object[] mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return new Object[] {
+                rs.getLong(1),
+                rs.getString(2),
+                BloodComponent.valueOf(rs.getString(3)),
+                rs.getInt(4)
+        };
+    }
+}
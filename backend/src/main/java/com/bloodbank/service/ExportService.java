@@ -0,0 +1,180 @@
+package com.bloodbank.service;
+
+import com.bloodbank.entity.BloodUnit;
+import com.bloodbank.entity.Donor;
+import com.bloodbank.entity.Reservation;
+import com.bloodbank.repository.BloodUnitRepository;
+import com.bloodbank.repository.DonorRepository;
+import com.bloodbank.repository.ReservationRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Streams full-table exports as NDJSON or CSV.
+ * Rows come from a database cursor and are written and detached one at a time,
+ * so memory stays flat regardless of how many rows are exported.
+ */
+@Service
+public class ExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExportService.class);
+
+    public static final String FORMAT_NDJSON = "ndjson";
+    public static final String FORMAT_CSV = "csv";
+
+    private static final List<String> DONOR_COLUMNS = List.of("id", "name", "phone", "bloodType", "city",
+            "isVerified", "isAvailableForContact", "lastDonationDate", "createdAt", "eligible", "daysUntilEligible");
+    private static final List<String> UNIT_COLUMNS = List.of("id", "unitNumber", "bloodBankId", "bloodType",
+            "component", "status", "collectionDate", "expiryDate", "donorId", "createdAt");
+    private static final List<String> RESERVATION_COLUMNS = List.of("id", "patientName", "bloodType",
+            "unitsNeeded", "urgencyLevel", "status", "bloodBankId", "bloodBankName", "createdAt", "expiresAt");
+
+    private final DonorRepository donorRepository;
+    private final BloodUnitRepository bloodUnitRepository;
+    private final ReservationRepository reservationRepository;
+    private final ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public ExportService(DonorRepository donorRepository,
+            BloodUnitRepository bloodUnitRepository,
+            ReservationRepository reservationRepository,
+            ObjectMapper objectMapper) {
+        this.donorRepository = donorRepository;
+        this.bloodUnitRepository = bloodUnitRepository;
+        this.reservationRepository = reservationRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    public static boolean isSupportedFormat(String format) {
+        return FORMAT_NDJSON.equals(format) || FORMAT_CSV.equals(format);
+    }
+
+    @Transactional(readOnly = true)
+    public long exportDonors(OutputStream out, String format) throws IOException {
+        try (Stream<Donor> donors = donorRepository.streamAll()) {
+            return write(donors, out, format, DONOR_COLUMNS, d -> {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("id", d.getId());
+                row.put("name", d.getName());
+                row.put("phone", d.getPhone());
+                row.put("bloodType", d.getBloodType());
+                row.put("city", d.getCity());
+                row.put("isVerified", d.getIsVerified());
+                row.put("isAvailableForContact", d.getIsAvailableForContact());
+                row.put("lastDonationDate", d.getLastDonationDate() != null ? d.getLastDonationDate().toString() : null);
+                row.put("createdAt", d.getCreatedAt() != null ? d.getCreatedAt().toString() : null);
+                row.put("eligible", d.isEligible());
+                row.put("daysUntilEligible", d.getDaysUntilEligible());
+                return row;
+            });
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public long exportUnits(OutputStream out, String format) throws IOException {
+        try (Stream<BloodUnit> units = bloodUnitRepository.streamAll()) {
+            return write(units, out, format, UNIT_COLUMNS, u -> {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("id", u.getId());
+                row.put("unitNumber", u.getUnitNumber());
+                // Proxy ids are read without initializing the lazy associations
+                row.put("bloodBankId", u.getBloodBank().getId());
+                row.put("bloodType", u.getBloodType());
+                row.put("component", u.getComponent() != null ? u.getComponent().name() : null);
+                row.put("status", u.getStatus() != null ? u.getStatus().name() : null);
+                row.put("collectionDate", u.getCollectionDate() != null ? u.getCollectionDate().toString() : null);
+                row.put("expiryDate", u.getExpiryDate() != null ? u.getExpiryDate().toString() : null);
+                row.put("donorId", u.getDonor() != null ? u.getDonor().getId() : null);
+                row.put("createdAt", u.getCreatedAt() != null ? u.getCreatedAt().toString() : null);
+                return row;
+            });
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public long exportReservations(OutputStream out, String format) throws IOException {
+        try (Stream<Reservation> reservations = reservationRepository.streamAll()) {
+            return write(reservations, out, format, RESERVATION_COLUMNS, r -> {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("id", r.getId());
+                row.put("patientName", r.getPatientName());
+                row.put("bloodType", r.getBloodType());
+                row.put("unitsNeeded", r.getUnitsNeeded());
+                row.put("urgencyLevel", r.getUrgencyLevel());
+                row.put("status", r.getStatus());
+                row.put("bloodBankId", r.getBloodBank().getId());
+                row.put("bloodBankName", r.getBloodBank().getName());
+                row.put("createdAt", r.getCreatedAt() != null ? r.getCreatedAt().toString() : null);
+                row.put("expiresAt", r.getExpiresAt() != null ? r.getExpiresAt().toString() : null);
+                return row;
+            });
+        }
+    }
+
+    private <T> long write(Stream<T> rows, OutputStream out, String format, List<String> columns,
+            Function<T, Map<String, Object>> toRow) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        boolean csv = FORMAT_CSV.equals(format);
+        if (csv) {
+            writer.write(String.join(",", columns));
+            writer.write('\n');
+        }
+
+        long count = 0;
+        Iterator<T> iterator = rows.iterator();
+        while (iterator.hasNext()) {
+            T entity = iterator.next();
+            Map<String, Object> row = toRow.apply(entity);
+            // Nothing is kept in the persistence context once the row is written
+            entityManager.detach(entity);
+
+            writer.write(csv ? toCsvLine(row, columns) : objectMapper.writeValueAsString(row));
+            writer.write('\n');
+            count++;
+        }
+        writer.flush();
+        log.info("Exported {} rows as {}", count, format);
+        return count;
+    }
+
+    private static String toCsvLine(Map<String, Object> row, List<String> columns) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            Object value = row.get(columns.get(i));
+            if (value == null) {
+                continue;
+            }
+            String text = value.toString();
+            if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0
+                    || text.indexOf('\r') >= 0) {
+                line.append('"').append(text.replace("\"", "\"\"")).append('"');
+            } else {
+                line.append(text);
+            }
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,8 @@
+package com.bloodbank.service;
+
+/**
+ * Published after a bank's blood_inventory units of one blood type change;
+ * freeUnits is units minus the units held by open reservations
+ */
+public record InventoryChangeEvent(Long bankId, String bloodType, int units, int unitsHeld, int freeUnits) {
+}
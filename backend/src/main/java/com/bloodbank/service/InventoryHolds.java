@@ -0,0 +1,165 @@
+package com.bloodbank.service;
+
+import com.bloodbank.entity.Reservation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Soft holds of inventory units for reservations. A hold is one conditional
+ * UPDATE that raises units_held only while units_available - units_held covers
+ * it, so concurrent bookings for the last units of a type cannot all succeed and
+ * none of them waits on a row lock taken at read time. All methods run in the
+ * caller's transaction.
+ *
+ * A saved reservation's own units_held is moved first, with an UPDATE conditional
+ * on the value it replaces, so two callers working from the same stale entity
+ * (a double cancel, a cancel racing the expirer, two reopens) cannot both change
+ * blood_inventory: the second one finds the reservation already moved.
+ *
+ * Everything that shows or searches stock (the inventory matrix, the low-stock
+ * detector, dashboard events) works on free units, units_available - units_held;
+ * every change to either column ends in {@link #stockChanged}.
+ */
+@Service
+public class InventoryHolds {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryHolds.class);
+
+    static final String CLAIM_SQL = "UPDATE reservations SET units_held = ? WHERE id = ? AND units_held = ?";
+
+    static final String HOLD_SQL = "UPDATE blood_inventory SET units_held = units_held + ? " +
+            "WHERE blood_bank_id = ? AND blood_type = ? AND units_available - units_held >= ? " +
+            "RETURNING units_available, units_held";
+
+    static final String RELEASE_SQL = "UPDATE blood_inventory SET units_held = GREATEST(units_held - ?, 0) " +
+            "WHERE blood_bank_id = ? AND blood_type = ? RETURNING units_available, units_held";
+
+    static final String FREE_SQL = "SELECT GREATEST(units_available - units_held, 0) FROM blood_inventory " +
+            "WHERE blood_bank_id = ? AND blood_type = ?";
+
+    static final String FIGURES_SQL = "SELECT units_available, units_held FROM blood_inventory " +
+            "WHERE blood_bank_id = ? AND blood_type = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final InventoryMatrix inventoryMatrix;
+    private final LowStockDetector lowStockDetector;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Map<String, Object> publishLocks = new ConcurrentHashMap<>();
+
+    public InventoryHolds(JdbcTemplate jdbcTemplate,
+            InventoryMatrix inventoryMatrix,
+            LowStockDetector lowStockDetector,
+            ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.inventoryMatrix = inventoryMatrix;
+        this.lowStockDetector = lowStockDetector;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Hold the reservation's units; throws when the bank has too few unheld units,
+     * or when a saved reservation already holds units
+     */
+    public void hold(Reservation reservation) {
+        Long bankId = reservation.getBloodBank().getId();
+        int units = reservation.getUnitsNeeded();
+        if (reservation.getId() != null && !claim(reservation, 0, units)) {
+            throw new IllegalStateException("Reservation " + reservation.getId() + " already holds units");
+        }
+        List<int[]> updated = jdbcTemplate.query(HOLD_SQL, (rs, i) -> new int[] { rs.getInt(1), rs.getInt(2) },
+                units, bankId, reservation.getBloodType(), units);
+        if (updated.isEmpty()) {
+            throw new IllegalArgumentException(String.format("Insufficient blood units. Requested: %d, Available: %d",
+                    units, freeUnits(bankId, reservation.getBloodType())));
+        }
+        reservation.setUnitsHeld(units);
+        stockChanged(bankId, reservation.getBloodType());
+    }
+
+    /**
+     * Drop the reservation's hold; no-op without one. On cancel or expiry the units
+     * become bookable again, on completion they are deducted from units_available.
+     */
+    public void release(Reservation reservation) {
+        int held = heldBy(reservation);
+        if (held == 0) {
+            return;
+        }
+        if (reservation.getId() != null && !claim(reservation, held, 0)) {
+            // Released by a concurrent caller; units_held of the inventory row is already down
+            reservation.setUnitsHeld(0);
+            log.debug("Reservation {}: hold already released", reservation.getId());
+            return;
+        }
+        Long bankId = reservation.getBloodBank().getId();
+        List<int[]> updated = jdbcTemplate.query(RELEASE_SQL, (rs, i) -> new int[] { rs.getInt(1), rs.getInt(2) },
+                held, bankId, reservation.getBloodType());
+        reservation.setUnitsHeld(0);
+        if (!updated.isEmpty()) {
+            stockChanged(bankId, reservation.getBloodType());
+        }
+        log.debug("Reservation {}: released hold of {} {} units", reservation.getId(), held,
+                reservation.getBloodType());
+    }
+
+    /**
+     * Units of a type that are available and not held
+     */
+    public int freeUnits(Long bankId, String bloodType) {
+        return jdbcTemplate.queryForList(FREE_SQL, Integer.class, bankId, bloodType).stream()
+                .findFirst()
+                .orElse(0);
+    }
+
+    /**
+     * units_available or units_held of one type changed; once the transaction
+     * commits, passes the free figure to the matrix, the low-stock detector and
+     * dashboards. Commit callbacks of concurrent transactions run in any order, so
+     * the callback re-reads the committed row under a per-type lock: whichever
+     * callback reads last also applies last, and stale figures never win.
+     */
+    public void stockChanged(Long bankId, String bloodType) {
+        TransactionHooks.afterCommit(() -> publishCommitted(bankId, bloodType));
+    }
+
+    private void publishCommitted(Long bankId, String bloodType) {
+        Object lock = publishLocks.computeIfAbsent(bankId + ":" + bloodType, key -> new Object());
+        synchronized (lock) {
+            try {
+                List<int[]> rows = jdbcTemplate.query(FIGURES_SQL,
+                        (rs, i) -> new int[] { rs.getInt(1), rs.getInt(2) }, bankId, bloodType);
+                if (rows.isEmpty()) {
+                    return;
+                }
+                int available = rows.get(0)[0];
+                int held = rows.get(0)[1];
+                int free = Math.max(available - held, 0);
+                inventoryMatrix.setUnits(bankId, bloodType, free);
+                lowStockDetector.onStockChange(bankId, bloodType, free);
+                eventPublisher.publishEvent(new InventoryChangeEvent(bankId, bloodType, available, held, free));
+            } catch (RuntimeException e) {
+                // The change is committed; the next change of this type publishes it
+                log.warn("Could not publish stock of {} at bank {}: {}", bloodType, bankId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Move the reservation row's units_held from expected to units; false when it no
+     * longer holds expected
+     */
+    private boolean claim(Reservation reservation, int expected, int units) {
+        return jdbcTemplate.update(CLAIM_SQL, units, reservation.getId(), expected) == 1;
+    }
+
+    private static int heldBy(Reservation reservation) {
+        return reservation.getUnitsHeld() != null ? reservation.getUnitsHeld() : 0;
+    }
+}
@@ -0,0 +1,244 @@
+package com.bloodbank.service;
+
+import com.bloodbank.entity.BloodInventory;
+import com.bloodbank.entity.InventoryMovement;
+import com.bloodbank.entity.InventoryMovement.MovementType;
+import com.bloodbank.entity.InventorySnapshot;
+import com.bloodbank.repository.BloodInventoryRepository;
+import com.bloodbank.repository.InventoryMovementRepository;
+import com.bloodbank.repository.InventorySnapshotRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Append-only ledger of blood_inventory changes.
+ * Every write to units_available records a movement with its signed quantity.
+ * A scheduled job folds movements into per bank/type snapshots, so the stock at
+ * any past instant is the nearest earlier snapshot plus one range sum of movements.
+ * A snapshot covers the movements of its key up to a movement id, not a time, so a
+ * movement that commits late is still picked up by the next snapshot of its key.
+ */
+@Service
+public class InventoryLedger {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryLedger.class);
+
+    public static final int MAX_HISTORY_ROWS = 5000;
+
+    // Keys snapshotted per transaction, so no run holds more row locks than this
+    private static final int SNAPSHOT_BATCH_SIZE = 200;
+
+    private static final String INSERT_SQL = "INSERT INTO inventory_movements " +
+            "(blood_bank_id, blood_type, movement_type, quantity, balance_after, reference, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final int INSERT_BATCH_SIZE = 500;
+
+    private final InventoryMovementRepository movementRepository;
+    private final InventorySnapshotRepository snapshotRepository;
+    private final BloodInventoryRepository inventoryRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public InventoryLedger(InventoryMovementRepository movementRepository,
+            InventorySnapshotRepository snapshotRepository,
+            BloodInventoryRepository inventoryRepository,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager) {
+        this.movementRepository = movementRepository;
+        this.snapshotRepository = snapshotRepository;
+        this.inventoryRepository = inventoryRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Append one movement in the caller's transaction; zero-quantity changes are skipped
+     */
+    public void record(Long bankId, String bloodType, MovementType type, int quantity, int balanceAfter,
+            String reference) {
+        if (quantity == 0) {
+            return;
+        }
+        movementRepository.save(new InventoryMovement(bankId, bloodType, type, quantity, balanceAfter, reference));
+    }
+
+    /**
+     * Append many movements as JDBC batches in the caller's transaction
+     */
+    public void recordAll(List<InventoryMovement> movements) {
+        List<InventoryMovement> changes = movements.stream()
+                .filter(m -> m.getQuantity() != 0)
+                .collect(Collectors.toList());
+        if (changes.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, changes, INSERT_BATCH_SIZE, (ps, m) -> {
+            ps.setLong(1, m.getBloodBankId());
+            ps.setString(2, m.getBloodType());
+            ps.setString(3, m.getMovementType().name());
+            ps.setInt(4, m.getQuantity());
+            ps.setInt(5, m.getBalanceAfter());
+            ps.setString(6, m.getReference());
+            ps.setTimestamp(7, now);
+        });
+    }
+
+    /**
+     * Scheduled job: snapshot every bank/type with movements past its last
+     * snapshot, and every row never snapshotted (which first gets its opening
+     * balance). Keys are handled in batches, each in its own short transaction;
+     * a failed batch stays due and is retried by the next run.
+     */
+    @Scheduled(cron = "${inventory.ledger.snapshot-cron:0 */15 * * * *}")
+    public void takeSnapshots() {
+        List<Object[]> keys = snapshotRepository.findKeysToSnapshot();
+        int snapshots = 0;
+        int openings = 0;
+        for (int from = 0; from < keys.size(); from += SNAPSHOT_BATCH_SIZE) {
+            List<Object[]> batch = keys.subList(from, Math.min(from + SNAPSHOT_BATCH_SIZE, keys.size()));
+            try {
+                int[] counts = transactionTemplate.execute(status -> snapshotBatch(batch));
+                snapshots += counts[0];
+                openings += counts[1];
+            } catch (RuntimeException e) {
+                log.warn("Inventory ledger: snapshot batch of {} keys failed, left for the next run: {}",
+                        batch.size(), e.getMessage());
+            }
+        }
+        if (keys.isEmpty()) {
+            log.debug("Inventory ledger: nothing to snapshot");
+        } else {
+            log.info("Inventory ledger: {} snapshots ({} opening balances)", snapshots, openings);
+        }
+    }
+
+    /**
+     * Units per blood type at a bank as of the given instant
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Integer> getUnitsAt(Long bankId, LocalDateTime at) {
+        Map<String, InventorySnapshot> base = new HashMap<>();
+        for (InventorySnapshot snapshot : snapshotRepository.findLatestForBank(bankId, at)) {
+            base.put(snapshot.getBloodType(), snapshot);
+        }
+
+        // Movements folded into a snapshot were all created by its asOf, so the rest
+        // of the replay is the later movements created by the instant
+        Map<String, Integer> units = new LinkedHashMap<>();
+        for (String bloodType : BloodTypes.all()) {
+            InventorySnapshot snapshot = base.get(bloodType);
+            long afterId = snapshot != null ? lastMovementId(snapshot) : 0;
+            int start = snapshot != null ? snapshot.getUnits() : 0;
+            units.put(bloodType, start + (int) movementRepository.sumAfter(bankId, bloodType, afterId, at));
+        }
+        return units;
+    }
+
+    /**
+     * Movements for a bank in [from, to], oldest first (trend charts and audits)
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getMovements(Long bankId, String bloodType, LocalDateTime from,
+            LocalDateTime to, int limit) {
+        return movementRepository.findRange(bankId, bloodType, from, to, PageRequest.of(0, limit)).stream()
+                .map(m -> {
+                    Map<String, Object> item = new HashMap<>();
+                    item.put("id", m.getId());
+                    item.put("bloodType", m.getBloodType());
+                    item.put("type", m.getMovementType().name());
+                    item.put("quantity", m.getQuantity());
+                    item.put("balanceAfter", m.getBalanceAfter());
+                    item.put("reference", m.getReference());
+                    item.put("createdAt", m.getCreatedAt());
+                    return item;
+                })
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Snapshot each key at the moment its row lock is taken. Writers append
+     * movements while holding the same lock, so every movement of the key that
+     * will ever get an id up to the current maximum has committed by then, and
+     * every later one is created after the snapshot's asOf.
+     *
+     * @return snapshots written and opening balances recorded
+     */
+    private int[] snapshotBatch(List<Object[]> keys) {
+        int snapshots = 0;
+        int openings = 0;
+        for (Object[] key : keys) {
+            Long bankId = ((Number) key[0]).longValue();
+            String bloodType = (String) key[1];
+
+            Optional<BloodInventory> inventory = inventoryRepository.findForUpdate(bankId, bloodType);
+            if (inventory.isEmpty()) {
+                continue;
+            }
+            Optional<InventorySnapshot> previous = snapshotRepository
+                    .findFirstByBloodBankIdAndBloodTypeOrderByAsOfDescIdDesc(bankId, bloodType);
+            if (previous.isEmpty() && recordOpeningBalance(bankId, bloodType, inventory.get())) {
+                openings++;
+            }
+
+            long afterId = previous.map(InventoryLedger::lastMovementId).orElse(0L);
+            Object[] sum = movementRepository.sumAfterId(bankId, bloodType, afterId).get(0);
+            long lastId = ((Number) sum[1]).longValue();
+            if (previous.isPresent() && lastId == 0) {
+                continue;
+            }
+            // A row that never moved still gets a (zero) snapshot, so it is not due again
+            int units = previous.map(InventorySnapshot::getUnits).orElse(0) + ((Number) sum[0]).intValue();
+            snapshotRepository.save(new InventorySnapshot(bankId, bloodType, units, LocalDateTime.now(),
+                    lastId != 0 ? lastId : afterId));
+            snapshots++;
+        }
+        return new int[] { snapshots, openings };
+    }
+
+    /**
+     * Give a row that predates the ledger an opening-balance movement dated just
+     * before its first movement, worth the stock that movement started from, so
+     * getUnitsAt is right for every instant after the ledger began. A row with no
+     * movements opens at its current units. Called under the row lock, only for
+     * keys with no snapshot yet.
+     */
+    private boolean recordOpeningBalance(Long bankId, String bloodType, BloodInventory inventory) {
+        Optional<InventoryMovement> first = movementRepository
+                .findFirstByBloodBankIdAndBloodTypeOrderByCreatedAtAscIdAsc(bankId, bloodType);
+        int opening;
+        LocalDateTime at;
+        if (first.isPresent()) {
+            opening = first.get().getBalanceAfter() - first.get().getQuantity();
+            at = first.get().getCreatedAt().minus(1, ChronoUnit.MICROS);
+        } else {
+            opening = inventory.getUnitsAvailable() != null ? inventory.getUnitsAvailable() : 0;
+            at = LocalDateTime.now();
+        }
+        if (opening == 0) {
+            return false;
+        }
+        InventoryMovement movement = new InventoryMovement(bankId, bloodType, MovementType.ADJUSTMENT,
+                opening, opening, "opening-balance");
+        movement.setCreatedAt(at);
+        movementRepository.save(movement);
+        return true;
+    }
+
+    private static long lastMovementId(InventorySnapshot snapshot) {
+        return snapshot.getLastMovementId() != null ? snapshot.getLastMovementId() : 0;
+    }
+}
@@ -0,0 +1,242 @@
+package com.bloodbank.service;
+
+import com.bloodbank.repository.BloodInventoryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory bank x blood type stock matrix of free units (available and not
+ * held by open reservations). Each bank maps to an int[8] indexed by {@link BloodTypes}; {@link #NO_ROW}
+ * marks a type that has no blood_inventory row. Rows are replaced rather than
+ * mutated, so readers always see a consistent set of figures for a bank.
+ *
+ * Alongside the rows, every bank gets a dense slot number and each blood type
+ * keeps a bitset of the slots that currently hold stock, so "which banks have
+ * any of these types" is a handful of word-wide ORs instead of a query per type.
+ */
+@Component
+public class InventoryMatrix {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryMatrix.class);
+
+    public static final int NO_ROW = -1;
+
+    private final BloodInventoryRepository inventoryRepository;
+    private final Map<Long, int[]> unitsByBank = new ConcurrentHashMap<>();
+
+    // Guards the slot mapping and the per-type stock bitsets
+    private final ReadWriteLock stockLock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> slotByBank = new HashMap<>();
+    private final List<Long> bankBySlot = new ArrayList<>();
+    private final BitSet[] banksWithStock = new BitSet[BloodTypes.COUNT];
+
+    public InventoryMatrix(BloodInventoryRepository inventoryRepository) {
+        this.inventoryRepository = inventoryRepository;
+        for (int i = 0; i < BloodTypes.COUNT; i++) {
+            banksWithStock[i] = new BitSet();
+        }
+    }
+
+    /**
+     * Load every blood_inventory row once the application has started
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        Map<Long, int[]> loaded = new HashMap<>();
+        for (Object[] row : inventoryRepository.findAllUnitCounts()) {
+            int typeIndex = BloodTypes.indexOf((String) row[1]);
+            if (typeIndex < 0) {
+                continue;
+            }
+            Long bankId = ((Number) row[0]).longValue();
+            int[] units = loaded.computeIfAbsent(bankId, id -> emptyRow());
+            units[typeIndex] = row[2] != null ? ((Number) row[2]).intValue() : 0;
+        }
+
+        unitsByBank.clear();
+        unitsByBank.putAll(loaded);
+        rebuildStockBits(loaded);
+        log.info("Inventory matrix loaded for {} blood banks", loaded.size());
+    }
+
+    /**
+     * Copy of a bank's units per blood type (NO_ROW where the bank has no row)
+     */
+    public int[] getUnits(Long bankId) {
+        int[] units = unitsByBank.get(bankId);
+        return units != null ? units.clone() : emptyRow();
+    }
+
+    /**
+     * Units of one blood type at a bank, or 0 if the bank does not stock it
+     */
+    public int getUnits(Long bankId, String bloodType) {
+        int typeIndex = BloodTypes.indexOf(bloodType);
+        int[] units = unitsByBank.get(bankId);
+        if (typeIndex < 0 || units == null || units[typeIndex] == NO_ROW) {
+            return 0;
+        }
+        return units[typeIndex];
+    }
+
+    /**
+     * Whether a bank has units of the given type, or of any type when bloodType is null
+     */
+    public boolean hasStock(Long bankId, String bloodType) {
+        if (bloodType != null) {
+            return getUnits(bankId, bloodType) > 0;
+        }
+        int[] units = unitsByBank.get(bankId);
+        if (units == null) {
+            return false;
+        }
+        for (int unit : units) {
+            if (unit > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Overwrite the free units for one type with committed figures. Applied as
+     * given, so callers must order their calls (see InventoryHolds.stockChanged).
+     */
+    public void setUnits(Long bankId, String bloodType, int units) {
+        int typeIndex = BloodTypes.indexOf(bloodType);
+        if (typeIndex < 0) {
+            return;
+        }
+        unitsByBank.compute(bankId, (id, current) -> {
+            int[] next = current != null ? current.clone() : emptyRow();
+            next[typeIndex] = units;
+            return next;
+        });
+        updateStockBit(bankId, typeIndex);
+    }
+
+    public void removeBank(Long bankId) {
+        TransactionHooks.afterCommit(() -> {
+            unitsByBank.remove(bankId);
+            stockLock.writeLock().lock();
+            try {
+                Integer slot = slotByBank.get(bankId);
+                if (slot != null) {
+                    for (BitSet bits : banksWithStock) {
+                        bits.clear(slot);
+                    }
+                }
+            } finally {
+                stockLock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Banks holding stock of any type in donorMask (a {@link BloodCompatibility}
+     * mask), with banks that stock preferredType itself listed first
+     */
+    public List<Long> findBanksWithStock(int donorMask, String preferredType) {
+        int preferred = BloodTypes.indexOf(preferredType);
+        List<Long> exact = new ArrayList<>();
+        List<Long> others = new ArrayList<>();
+
+        stockLock.readLock().lock();
+        try {
+            BitSet any = new BitSet(bankBySlot.size());
+            for (int type = 0; type < BloodTypes.COUNT; type++) {
+                if ((donorMask & (1 << type)) != 0) {
+                    any.or(banksWithStock[type]);
+                }
+            }
+            BitSet exactBits = preferred >= 0 && (donorMask & (1 << preferred)) != 0
+                    ? banksWithStock[preferred]
+                    : new BitSet();
+            for (int slot = any.nextSetBit(0); slot >= 0; slot = any.nextSetBit(slot + 1)) {
+                (exactBits.get(slot) ? exact : others).add(bankBySlot.get(slot));
+            }
+        } finally {
+            stockLock.readLock().unlock();
+        }
+
+        exact.addAll(others);
+        return exact;
+    }
+
+    /**
+     * Total units a bank holds across the types in donorMask
+     */
+    public int getUnits(Long bankId, int donorMask) {
+        int[] units = unitsByBank.get(bankId);
+        if (units == null) {
+            return 0;
+        }
+        int total = 0;
+        for (int type = 0; type < BloodTypes.COUNT; type++) {
+            if ((donorMask & (1 << type)) != 0 && units[type] > 0) {
+                total += units[type];
+            }
+        }
+        return total;
+    }
+
+    private void rebuildStockBits(Map<Long, int[]> rows) {
+        stockLock.writeLock().lock();
+        try {
+            for (BitSet bits : banksWithStock) {
+                bits.clear();
+            }
+            for (Map.Entry<Long, int[]> entry : rows.entrySet()) {
+                int slot = slotOf(entry.getKey());
+                int[] units = entry.getValue();
+                for (int type = 0; type < BloodTypes.COUNT; type++) {
+                    banksWithStock[type].set(slot, units[type] > 0);
+                }
+            }
+        } finally {
+            stockLock.writeLock().unlock();
+        }
+    }
+
+    private void updateStockBit(Long bankId, int typeIndex) {
+        stockLock.writeLock().lock();
+        try {
+            // Read under the lock so the last writer always publishes the latest row
+            int[] units = unitsByBank.get(bankId);
+            boolean inStock = units != null && units[typeIndex] > 0;
+            banksWithStock[typeIndex].set(slotOf(bankId), inStock);
+        } finally {
+            stockLock.writeLock().unlock();
+        }
+    }
+
+    // Caller must hold the write lock
+    private int slotOf(Long bankId) {
+        Integer slot = slotByBank.get(bankId);
+        if (slot == null) {
+            slot = bankBySlot.size();
+            bankBySlot.add(bankId);
+            slotByBank.put(bankId, slot);
+        }
+        return slot;
+    }
+
+    private static int[] emptyRow() {
+        int[] row = new int[BloodTypes.COUNT];
+        Arrays.fill(row, NO_ROW);
+        return row;
+    }
+}
@@ -1,16 +1,24 @@
 package com.bloodbank.service;
 
 import com.bloodbank.dto.BloodInventoryDto;
+import com.bloodbank.dto.InventoryGrid;
 import com.bloodbank.entity.BloodBank;
 import com.bloodbank.entity.BloodInventory;
+import com.bloodbank.entity.InventoryMovement;
+import com.bloodbank.entity.InventoryMovement.MovementType;
+import com.bloodbank.entity.StockThreshold;
 import com.bloodbank.repository.BloodBankRepository;
 import com.bloodbank.repository.BloodInventoryRepository;
+import com.bloodbank.repository.StockThresholdRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -21,14 +29,42 @@ public class InventoryService {
 
     private final BloodInventoryRepository inventoryRepository;
     private final BloodBankRepository bloodBankRepository;
+    private final InventoryHolds inventoryHolds;
+    private final JdbcTemplate jdbcTemplate;
+    private final InventoryLedger inventoryLedger;
+    private final LowStockDetector lowStockDetector;
+    private final StockThresholdRepository thresholdRepository;
 
     public static final int DEFAULT_LOW_STOCK_THRESHOLD = 5;
     public static final int BLOOD_SHELF_LIFE_DAYS = 42;
+    public static final int MAX_BULK_ROWS = 5000;
+
+    private static final int UPSERT_BATCH_SIZE = 500;
+
+    // Relies on the (blood_bank_id, blood_type) unique constraint on blood_inventory
+    private static final String UPSERT_SQL = "INSERT INTO blood_inventory " +
+            "(blood_bank_id, blood_type, units_available, collection_date, expiry_date, last_updated) " +
+            "VALUES (?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (blood_bank_id, blood_type) DO UPDATE SET " +
+            "units_available = EXCLUDED.units_available, " +
+            "collection_date = EXCLUDED.collection_date, " +
+            "expiry_date = EXCLUDED.expiry_date, " +
+            "last_updated = EXCLUDED.last_updated";
 
     public InventoryService(BloodInventoryRepository inventoryRepository,
-            BloodBankRepository bloodBankRepository) {
+            BloodBankRepository bloodBankRepository,
+            InventoryHolds inventoryHolds,
+            JdbcTemplate jdbcTemplate,
+            InventoryLedger inventoryLedger,
+            LowStockDetector lowStockDetector,
+            StockThresholdRepository thresholdRepository) {
         this.inventoryRepository = inventoryRepository;
         this.bloodBankRepository = bloodBankRepository;
+        this.inventoryHolds = inventoryHolds;
+        this.jdbcTemplate = jdbcTemplate;
+        this.inventoryLedger = inventoryLedger;
+        this.lowStockDetector = lowStockDetector;
+        this.thresholdRepository = thresholdRepository;
     }
 
     public List<BloodInventoryDto> getInventoryByBankId(Long bankId) {
@@ -47,43 +83,259 @@ public class InventoryService {
         LocalDate expiry = collection.plusDays(BLOOD_SHELF_LIFE_DAYS);
 
         BloodInventory inventory = inventoryRepository
-                .findByBloodBankIdAndBloodType(bankId, bloodType)
+                .findForUpdate(bankId, bloodType)
                 .orElse(BloodInventory.builder()
                         .bloodBank(bank)
                         .bloodType(bloodType)
                         .build());
+        int previousUnits = inventory.getUnitsAvailable() != null ? inventory.getUnitsAvailable() : 0;
+        int held = inventory.getUnitsHeld() != null ? inventory.getUnitsHeld() : 0;
+        if (units < held) {
+            throw new IllegalArgumentException(heldError(held));
+        }
 
         inventory.setUnitsAvailable(units);
         inventory.setCollectionDate(collection);
         inventory.setExpiryDate(expiry);
 
         BloodInventory saved = inventoryRepository.save(inventory);
+        inventoryLedger.record(bankId, bloodType, movementType(units - previousUnits), units - previousUnits, units,
+                "manual");
+        inventoryHolds.stockChanged(bankId, bloodType);
         log.info("Inventory updated: {} {} units at bank {}", bloodType, units, bankId);
 
         return convertToDto(saved);
     }
 
-    public List<Map<String, Object>> getAllInventoryGroupedByBank() {
-        List<BloodBank> banks = bloodBankRepository.findAll();
-        List<Map<String, Object>> result = new ArrayList<>();
+    /**
+     * Apply many (bankId, bloodType, units, collectionDate) rows as batched upserts.
+     * Rows are validated first; valid rows are written in JDBC batches inside one
+     * transaction. When bankScope is set (bank portal), every row is applied to that
+     * bank and any bloodBankId in the row is ignored. Each (bank, blood type) may
+     * appear once per request; later rows repeating a key are rejected.
+     *
+     * @return one result per input row, in input order
+     */
+    @Transactional
+    public List<Map<String, Object>> bulkUpsertInventory(List<Map<String, Object>> rows, Long bankScope) {
+        List<Map<String, Object>> results = new ArrayList<>(rows.size());
+        List<Object[]> valid = new ArrayList<>();
+        Set<Long> bankIds = new HashSet<>();
+        // "bankId:bloodType" -> index of the row that claimed it
+        Map<String, Integer> firstIndex = new HashMap<>();
+        LocalDateTime now = LocalDateTime.now();
+
+        for (int i = 0; i < rows.size(); i++) {
+            Map<String, Object> result = new HashMap<>();
+            result.put("index", i);
+            results.add(result);
+
+            try {
+                Map<String, Object> row = rows.get(i);
+                Long bankId = bankScope != null ? bankScope : toLong(row.get("bloodBankId"));
+                String bloodType = row.get("bloodType") != null ? row.get("bloodType").toString().trim().toUpperCase()
+                        : null;
+                Object unitsObj = row.get("units");
+                result.put("bloodBankId", bankId);
+                result.put("bloodType", bloodType);
+
+                if (bankId == null || bloodType == null || unitsObj == null) {
+                    reject(result, "bloodBankId, bloodType, and units are required");
+                    continue;
+                }
+                if (!BloodTypes.isValid(bloodType)) {
+                    reject(result, "Unknown blood type: " + bloodType);
+                    continue;
+                }
+                int units = ((Number) unitsObj).intValue();
+                if (units < 0) {
+                    reject(result, "units cannot be negative");
+                    continue;
+                }
+
+                LocalDate collection = row.get("collectionDate") != null
+                        ? LocalDate.parse(row.get("collectionDate").toString())
+                        : LocalDate.now();
+                LocalDate expiry = collection.plusDays(BLOOD_SHELF_LIFE_DAYS);
+
+                // One upsert statement cannot touch the same row twice
+                Integer first = firstIndex.putIfAbsent(bankId + ":" + bloodType, i);
+                if (first != null) {
+                    reject(result, "Duplicate of row " + first + " for the same blood bank and blood type");
+                    continue;
+                }
+
+                valid.add(new Object[] { bankId, bloodType, units, collection, expiry, result });
+                bankIds.add(bankId);
+            } catch (RuntimeException e) {
+                reject(result, "Invalid row: " + e.getMessage());
+            }
+        }
 
-        for (BloodBank bank : banks) {
-            Map<String, Object> bankData = new HashMap<>();
-            bankData.put("id", bank.getId());
-            bankData.put("name", bank.getName());
+        // One existence check for every bank referenced by the batch
+        Set<Long> existing = bankIds.isEmpty() ? Set.of()
+                : new HashSet<>(bloodBankRepository.findExistingIds(bankIds));
+        List<Object[]> candidates = new ArrayList<>(valid.size());
+        for (Object[] row : valid) {
+            if (existing.contains((Long) row[0])) {
+                candidates.add(row);
+            } else {
+                reject(resultOf(row), "Blood bank not found");
+            }
+        }
+
+        List<Object[]> toApply = new ArrayList<>(candidates.size());
+        if (!candidates.isEmpty()) {
+            // Lock the affected rows so the ledger records the values actually replaced
+            // and the held units every new figure has to cover cannot change
+            Map<String, int[]> current = new HashMap<>();
+            for (BloodInventory inv : inventoryRepository.findAllForUpdate(existing)) {
+                current.put(inv.getBloodBank().getId() + ":" + inv.getBloodType(), new int[] {
+                        inv.getUnitsAvailable() != null ? inv.getUnitsAvailable() : 0,
+                        inv.getUnitsHeld() != null ? inv.getUnitsHeld() : 0 });
+            }
+            List<InventoryMovement> movements = new ArrayList<>(candidates.size());
+            for (Object[] row : candidates) {
+                int units = (Integer) row[2];
+                int[] before = current.getOrDefault(row[0] + ":" + row[1], new int[] { 0, 0 });
+                if (units < before[1]) {
+                    reject(resultOf(row), heldError(before[1]));
+                    continue;
+                }
+                resultOf(row).put("status", "upserted");
+                toApply.add(row);
+                movements.add(new InventoryMovement((Long) row[0], (String) row[1],
+                        movementType(units - before[0]), units - before[0], units, "bulk"));
+            }
 
-            List<BloodInventory> inventories = inventoryRepository
-                    .findByBloodBankIdOrderByBloodType(bank.getId());
+            if (!toApply.isEmpty()) {
+                Timestamp lastUpdated = Timestamp.valueOf(now);
+                jdbcTemplate.batchUpdate(UPSERT_SQL, toApply, UPSERT_BATCH_SIZE, (ps, row) -> {
+                    ps.setLong(1, (Long) row[0]);
+                    ps.setString(2, (String) row[1]);
+                    ps.setInt(3, (Integer) row[2]);
+                    ps.setObject(4, row[3]);
+                    ps.setObject(5, row[4]);
+                    ps.setTimestamp(6, lastUpdated);
+                });
+                for (Object[] row : toApply) {
+                    inventoryHolds.stockChanged((Long) row[0], (String) row[1]);
+                }
+                inventoryLedger.recordAll(movements);
+            }
+        }
+
+        log.info("Bulk inventory upsert: {} rows applied, {} rejected", toApply.size(),
+                rows.size() - toApply.size());
+        return results;
+    }
 
-            List<Map<String, Object>> inventoryList = inventories.stream()
-                    .map(inv -> {
-                        Map<String, Object> item = new HashMap<>();
-                        item.put("bloodType", inv.getBloodType());
-                        item.put("units", inv.getUnitsAvailable());
-                        return item;
-                    })
-                    .collect(Collectors.toList());
+    /**
+     * Issue units against a reservation: subtract (clamped at zero) under a row
+     * lock and record the amount actually taken in the ledger.
+     *
+     * @return units actually deducted
+     */
+    @Transactional
+    public int deductUnits(Long bankId, String bloodType, int units, String reference) {
+        Optional<BloodInventory> row = inventoryRepository.findForUpdate(bankId, bloodType);
+        if (row.isEmpty()) {
+            return 0;
+        }
+        BloodInventory inventory = row.get();
+        int before = inventory.getUnitsAvailable() != null ? inventory.getUnitsAvailable() : 0;
+        int deducted = Math.min(before, units);
+        inventory.setUnitsAvailable(before - deducted);
+        inventoryRepository.save(inventory);
+
+        inventoryLedger.record(bankId, bloodType, MovementType.DEDUCTION, -deducted, before - deducted, reference);
+        inventoryHolds.stockChanged(bankId, bloodType);
+        return deducted;
+    }
+
+    /**
+     * Inventory of every bank from one join query, folded in a single pass into
+     * columns. city narrows to one city; lowStockOnly keeps banks with at least one
+     * low blood type. With a null threshold "low" means low against the bank's own
+     * thresholds, exactly as in getLowStockAlerts(); a threshold overrides them for
+     * every bank and applies the ad-hoc rule of getLowStockAlerts(int).
+     */
+    public InventoryGrid getInventoryGrid(String city, boolean lowStockOnly, Integer threshold) {
+        String cityFilter = city != null && !city.isBlank() ? city.trim() : null;
+        List<Object[]> rows = inventoryRepository.findInventoryGrid(cityFilter);
+        Set<Long> lowBanks = lowStockOnly && threshold == null
+                ? lowStockDetector.getLowStock().stream().map(LowStockDetector.Entry::bankId)
+                        .collect(Collectors.toSet())
+                : Set.of();
+
+        List<Long> ids = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        List<String> cities = new ArrayList<>();
+        List<int[]> units = new ArrayList<>();
+        int[] current = null;
+        Long currentId = null;
+
+        for (Object[] row : rows) {
+            Long bankId = ((Number) row[0]).longValue();
+            if (!bankId.equals(currentId)) {
+                currentId = bankId;
+                current = new int[BloodTypes.COUNT];
+                Arrays.fill(current, InventoryGrid.NO_ROW);
+                ids.add(bankId);
+                names.add((String) row[1]);
+                cities.add((String) row[2]);
+                units.add(current);
+            }
+            int typeIndex = row[3] != null ? BloodTypes.indexOf((String) row[3]) : -1;
+            if (typeIndex >= 0) {
+                current[typeIndex] = row[4] != null ? ((Number) row[4]).intValue() : 0;
+            }
+        }
+
+        int kept = 0;
+        for (int i = 0; i < ids.size(); i++) {
+            boolean low = threshold == null ? lowBanks.contains(ids.get(i)) : hasLowStock(units.get(i), threshold);
+            if (!lowStockOnly || low) {
+                ids.set(kept, ids.get(i));
+                names.set(kept, names.get(i));
+                cities.set(kept, cities.get(i));
+                units.set(kept, units.get(i));
+                kept++;
+            }
+        }
+
+        long[] bankIds = new long[kept];
+        for (int i = 0; i < kept; i++) {
+            bankIds[i] = ids.get(i);
+        }
+        return new InventoryGrid(BloodTypes.all(), bankIds,
+                names.subList(0, kept).toArray(new String[0]),
+                cities.subList(0, kept).toArray(new String[0]),
+                units.subList(0, kept).toArray(new int[0][]));
+    }
+
+    /**
+     * Per-bank view of the grid in the shape the admin inventory screen expects
+     */
+    public List<Map<String, Object>> getAllInventoryGroupedByBank(String city, boolean lowStockOnly,
+            Integer threshold) {
+        InventoryGrid grid = getInventoryGrid(city, lowStockOnly, threshold);
+        List<String> bloodTypes = grid.getBloodTypes();
+        List<Map<String, Object>> result = new ArrayList<>(grid.size());
+
+        for (int i = 0; i < grid.size(); i++) {
+            int[] bankUnits = grid.getUnits()[i];
+            List<Map<String, Object>> inventoryList = new ArrayList<>();
+            for (int type = 0; type < bankUnits.length; type++) {
+                if (bankUnits[type] != InventoryGrid.NO_ROW) {
+                    inventoryList.add(Map.of("bloodType", bloodTypes.get(type), "units", bankUnits[type]));
+                }
+            }
 
+            Map<String, Object> bankData = new HashMap<>();
+            bankData.put("id", grid.getBankIds()[i]);
+            bankData.put("name", grid.getBankNames()[i]);
+            bankData.put("city", grid.getCities()[i]);
             bankData.put("inventory", inventoryList);
             result.add(bankData);
         }
@@ -91,6 +343,22 @@ public class InventoryService {
         return result;
     }
 
+    /**
+     * A typed-in figure above the previous one is stock received; below it, a correction
+     */
+    private static MovementType movementType(int delta) {
+        return delta > 0 ? MovementType.RECEIPT : MovementType.ADJUSTMENT;
+    }
+
+    private static boolean hasLowStock(int[] units, int threshold) {
+        for (int unit : units) {
+            if (unit > 0 && unit < threshold) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public Map<String, Object> getExpiringBlood(Long bankId) {
         LocalDate sevenDaysFromNow = LocalDate.now().plusDays(7);
         List<BloodInventory> expiring = inventoryRepository.findExpiringBlood(bankId, sevenDaysFromNow);
@@ -123,10 +391,67 @@ public class InventoryService {
         return result;
     }
 
+    /**
+     * Current low-stock pairs from the in-memory detector, each against its own threshold
+     */
     public List<Map<String, Object>> getLowStockAlerts() {
-        return getLowStockAlerts(DEFAULT_LOW_STOCK_THRESHOLD);
+        List<LowStockDetector.Entry> entries = lowStockDetector.getLowStock();
+        Set<Long> bankIds = entries.stream().map(LowStockDetector.Entry::bankId).collect(Collectors.toSet());
+        Map<Long, String> names = new HashMap<>();
+        bloodBankRepository.findAllById(bankIds).forEach(b -> names.put(b.getId(), b.getName()));
+
+        return entries.stream()
+                .filter(e -> names.containsKey(e.bankId()))
+                .map(e -> {
+                    Map<String, Object> alert = new HashMap<>();
+                    alert.put("bloodBankId", e.bankId());
+                    alert.put("bloodBankName", names.get(e.bankId()));
+                    alert.put("bloodType", e.bloodType());
+                    alert.put("units", e.units());
+                    alert.put("threshold", e.threshold());
+                    return alert;
+                })
+                .collect(Collectors.toList());
     }
 
+    /**
+     * Set (or with null, clear) a bank's low-stock threshold for one blood type
+     */
+    @Transactional
+    public Map<String, Object> setLowStockThreshold(Long bankId, String bloodType, Integer threshold) {
+        if (!bloodBankRepository.existsById(bankId)) {
+            throw new IllegalArgumentException("Blood bank not found");
+        }
+        if (!BloodTypes.isValid(bloodType)) {
+            throw new IllegalArgumentException("Unknown blood type: " + bloodType);
+        }
+        if (threshold != null && threshold < 0) {
+            throw new IllegalArgumentException("threshold cannot be negative");
+        }
+        String type = bloodType.trim().toUpperCase();
+
+        Optional<StockThreshold> existing = thresholdRepository.findByBloodBankIdAndBloodType(bankId, type);
+        if (threshold == null) {
+            existing.ifPresent(thresholdRepository::delete);
+        } else {
+            StockThreshold row = existing.orElseGet(() -> new StockThreshold(bankId, type, threshold));
+            row.setThreshold(threshold);
+            thresholdRepository.save(row);
+        }
+        lowStockDetector.setThreshold(bankId, type, threshold);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("bloodBankId", bankId);
+        result.put("bloodType", type);
+        result.put("threshold", threshold != null ? threshold : DEFAULT_LOW_STOCK_THRESHOLD);
+        result.put("isDefault", threshold == null);
+        return result;
+    }
+
+    /**
+     * Ad-hoc scan against one threshold for every bank, overriding per-bank
+     * thresholds; pairs with no free units at all are left out
+     */
     public List<Map<String, Object>> getLowStockAlerts(int threshold) {
         List<BloodInventory> lowStock = inventoryRepository.findLowStock(threshold);
 
@@ -136,7 +461,7 @@ public class InventoryService {
                     alert.put("bloodBankId", inv.getBloodBank().getId());
                     alert.put("bloodBankName", inv.getBloodBank().getName());
                     alert.put("bloodType", inv.getBloodType());
-                    alert.put("units", inv.getUnitsAvailable());
+                    alert.put("units", inv.getFreeUnits());
                     alert.put("threshold", threshold);
                     return alert;
                 })
@@ -160,8 +485,32 @@ public class InventoryService {
         return inventoryRepository.getTotalUnitsAvailable();
     }
 
+    private static void reject(Map<String, Object> result, String error) {
+        result.put("status", "rejected");
+        result.put("error", error);
+    }
+
+    private static Long toLong(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        return Long.parseLong(value.toString());
+    }
+
+    private static String heldError(int held) {
+        return "units cannot be below the " + held + " units held by open reservations";
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> resultOf(Object[] row) {
+        return (Map<String, Object>) row[5];
+    }
+
     private BloodInventoryDto convertToDto(BloodInventory inventory) {
-        return BloodInventoryDto.builder()
+        BloodInventoryDto dto = BloodInventoryDto.builder()
                 .id(inventory.getId())
                 .bloodType(inventory.getBloodType())
                 .unitsAvailable(inventory.getUnitsAvailable())
@@ -173,5 +522,8 @@ public class InventoryService {
                 .bloodBankId(inventory.getBloodBank().getId())
                 .bloodBankName(inventory.getBloodBank().getName())
                 .build();
+        dto.setUnitsHeld(inventory.getUnitsHeld());
+        dto.setFreeUnits(inventory.getFreeUnits());
+        return dto;
     }
 }
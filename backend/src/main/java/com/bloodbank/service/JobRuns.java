@@ -0,0 +1,67 @@
+package com.bloodbank.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Run bookkeeping shared by the batch jobs (expiry sweep, reservation expiry,
+ * notification relay): the outcome of the last run, the number of runs and
+ * per-field totals since startup, and the batch loop they all use.
+ */
+final class JobRuns<R> {
+
+    private final AtomicLong totalRuns = new AtomicLong();
+    private final Map<String, AtomicLong> totals = new LinkedHashMap<>();
+    private final Map<String, ToLongFunction<R>> amounts = new LinkedHashMap<>();
+    private volatile R lastRun;
+
+    /**
+     * Batches a loop took and the items they handled
+     */
+    record Batches(int count, int items) {
+    }
+
+    /**
+     * Keep a running total of one field of each run, reported under name
+     */
+    JobRuns<R> total(String name, ToLongFunction<R> amount) {
+        totals.put(name, new AtomicLong());
+        amounts.put(name, amount);
+        return this;
+    }
+
+    R record(R run) {
+        totalRuns.incrementAndGet();
+        amounts.forEach((name, amount) -> totals.get(name).addAndGet(amount.applyAsLong(run)));
+        lastRun = run;
+        return run;
+    }
+
+    /**
+     * Add totalRuns, the totals and lastRun to a stats map
+     */
+    void putStats(Map<String, Object> stats) {
+        stats.put("totalRuns", totalRuns.get());
+        totals.forEach((name, total) -> stats.put(name, total.get()));
+        stats.put("lastRun", lastRun);
+    }
+
+    /**
+     * Run batch until one handles fewer than batchSize items, the sign that
+     * nothing due is left
+     */
+    static Batches untilShort(int batchSize, IntSupplier batch) {
+        int count = 0;
+        int items = 0;
+        int handled;
+        do {
+            handled = batch.getAsInt();
+            items += handled;
+            count++;
+        } while (handled == batchSize);
+        return new Batches(count, items);
+    }
+}
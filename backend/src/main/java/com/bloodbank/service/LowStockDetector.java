@@ -0,0 +1,192 @@
+package com.bloodbank.service;
+
+import com.bloodbank.entity.StockThreshold;
+import com.bloodbank.repository.BloodInventoryRepository;
+import com.bloodbank.repository.StockThresholdRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the set of low-stock (bank, blood type) pairs in memory, judged on free
+ * units (available minus held by open reservations).
+ * Pairs are re-evaluated only when their stock or threshold changes, and a
+ * {@link LowStockEvent} is published only when a pair crosses its threshold.
+ * Thresholds are per bank and blood type, falling back to the default.
+ */
+@Component
+public class LowStockDetector {
+
+    private static final Logger log = LoggerFactory.getLogger(LowStockDetector.class);
+
+    private static final int NO_ROW = -1;
+    private static final int NO_OVERRIDE = -1;
+
+    private final BloodInventoryRepository inventoryRepository;
+    private final StockThresholdRepository thresholdRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Map<Long, BankState> banks = new ConcurrentHashMap<>();
+
+    public LowStockDetector(BloodInventoryRepository inventoryRepository,
+            StockThresholdRepository thresholdRepository,
+            ApplicationEventPublisher eventPublisher) {
+        this.inventoryRepository = inventoryRepository;
+        this.thresholdRepository = thresholdRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * One low-stock pair
+     */
+    public record Entry(Long bankId, String bloodType, int units, int threshold) {
+    }
+
+    private static final class BankState {
+        final int[] units = filled(NO_ROW);
+        final int[] thresholds = filled(NO_OVERRIDE);
+        int lowMask;
+    }
+
+    /**
+     * Load thresholds and current stock; the initial low set is built without events
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        banks.clear();
+        for (StockThreshold threshold : thresholdRepository.findAll()) {
+            int type = BloodTypes.indexOf(threshold.getBloodType());
+            if (type >= 0) {
+                state(threshold.getBloodBankId()).thresholds[type] = threshold.getThreshold();
+            }
+        }
+        for (Object[] row : inventoryRepository.findAllUnitCounts()) {
+            int type = BloodTypes.indexOf((String) row[1]);
+            if (type >= 0) {
+                state(((Number) row[0]).longValue()).units[type] = row[2] != null ? ((Number) row[2]).intValue() : 0;
+            }
+        }
+
+        int low = 0;
+        for (BankState state : banks.values()) {
+            for (int type = 0; type < BloodTypes.COUNT; type++) {
+                if (isLow(state, type)) {
+                    state.lowMask |= 1 << type;
+                    low++;
+                }
+            }
+        }
+        log.info("Low-stock detector loaded: {} low pairs across {} blood banks", low, banks.size());
+    }
+
+    /**
+     * Committed stock of one type is now units; evaluated immediately, so callers
+     * must order their calls (see InventoryHolds.stockChanged)
+     */
+    public void onStockChange(Long bankId, String bloodType, int units) {
+        int type = BloodTypes.indexOf(bloodType);
+        if (type < 0) {
+            return;
+        }
+        evaluate(bankId, type, units, null);
+    }
+
+    /**
+     * Override the threshold of one type (null restores the default)
+     */
+    public void setThreshold(Long bankId, String bloodType, Integer threshold) {
+        int type = BloodTypes.indexOf(bloodType);
+        if (type < 0) {
+            return;
+        }
+        TransactionHooks.afterCommit(() -> evaluate(bankId, type, null,
+                threshold != null ? threshold : NO_OVERRIDE));
+    }
+
+    public void removeBank(Long bankId) {
+        TransactionHooks.afterCommit(() -> banks.remove(bankId));
+    }
+
+    public int getThreshold(Long bankId, String bloodType) {
+        int type = BloodTypes.indexOf(bloodType);
+        BankState state = banks.get(bankId);
+        if (type < 0 || state == null) {
+            return InventoryService.DEFAULT_LOW_STOCK_THRESHOLD;
+        }
+        synchronized (state) {
+            return thresholdOf(state, type);
+        }
+    }
+
+    /**
+     * Current low-stock pairs, read from memory
+     */
+    public List<Entry> getLowStock() {
+        List<Entry> entries = new ArrayList<>();
+        for (Map.Entry<Long, BankState> bank : banks.entrySet()) {
+            BankState state = bank.getValue();
+            synchronized (state) {
+                for (int type = 0; type < BloodTypes.COUNT; type++) {
+                    if ((state.lowMask & (1 << type)) != 0) {
+                        entries.add(new Entry(bank.getKey(), BloodTypes.nameOf(type), state.units[type],
+                                thresholdOf(state, type)));
+                    }
+                }
+            }
+        }
+        return entries;
+    }
+
+    private void evaluate(Long bankId, int type, Integer units, Integer threshold) {
+        BankState state = state(bankId);
+        LowStockEvent event = null;
+        synchronized (state) {
+            if (units != null) {
+                state.units[type] = units;
+            }
+            if (threshold != null) {
+                state.thresholds[type] = threshold;
+            }
+            boolean wasLow = (state.lowMask & (1 << type)) != 0;
+            boolean low = isLow(state, type);
+            if (low != wasLow) {
+                state.lowMask ^= 1 << type;
+                event = new LowStockEvent(bankId, BloodTypes.nameOf(type), state.units[type],
+                        thresholdOf(state, type), low);
+            }
+        }
+        // Published outside the lock; listeners may do I/O
+        if (event != null) {
+            log.info("Stock of {} at bank {} is now {} ({} units, threshold {})", event.bloodType(), bankId,
+                    event.low() ? "LOW" : "OK", event.units(), event.threshold());
+            eventPublisher.publishEvent(event);
+        }
+    }
+
+    private BankState state(Long bankId) {
+        return banks.computeIfAbsent(bankId, id -> new BankState());
+    }
+
+    private static boolean isLow(BankState state, int type) {
+        return state.units[type] != NO_ROW && state.units[type] < thresholdOf(state, type);
+    }
+
+    private static int thresholdOf(BankState state, int type) {
+        int override = state.thresholds[type];
+        return override != NO_OVERRIDE ? override : InventoryService.DEFAULT_LOW_STOCK_THRESHOLD;
+    }
+
+    private static int[] filled(int value) {
+        int[] row = new int[BloodTypes.COUNT];
+        Arrays.fill(row, value);
+        return row;
+    }
+}
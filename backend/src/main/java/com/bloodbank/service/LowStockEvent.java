@@ -0,0 +1,8 @@
+package com.bloodbank.service;
+
+/**
+ * Published when a bank's blood type crosses its low-stock threshold in either
+ * direction: low = true on ok -> low, false on low -> ok.
+ */
+public record LowStockEvent(Long bankId, String bloodType, int units, int threshold, boolean low) {
+}
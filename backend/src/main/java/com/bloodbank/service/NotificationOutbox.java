@@ -0,0 +1,133 @@
+package com.bloodbank.service;
+
+import com.bloodbank.entity.OutboxMessage;
+import com.bloodbank.entity.Reservation;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Queues WhatsApp notifications in notification_outbox. Inserts run in the
+ * caller's transaction, so a message exists exactly when the change it announces
+ * committed; NotificationRelay delivers it afterwards and retries while the
+ * WhatsApp service is down. Messages without a phone number are dropped here.
+ */
+@Service
+public class NotificationOutbox {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationOutbox.class);
+
+    private static final String INSERT_SQL = "INSERT INTO notification_outbox " +
+            "(endpoint, payload, reference, status, attempts, next_attempt_at, created_at) " +
+            "VALUES (?, ?, ?, '" + OutboxMessage.Status.PENDING + "', 0, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public NotificationOutbox(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * A message to queue: WhatsApp service path, JSON body and a reference for tracing
+     */
+    public record Message(String endpoint, Map<String, Object> payload, String reference) {
+    }
+
+    /**
+     * Whether messages about a reservation with this number are queued at all
+     */
+    public static boolean hasRecipient(String whatsappNumber) {
+        return !isBlank(whatsappNumber);
+    }
+
+    public void reservationConfirmation(Reservation reservation) {
+        if (!hasRecipient(reservation.getWhatsappNumber())) {
+            return;
+        }
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("phoneNumber", reservation.getWhatsappNumber());
+        payload.put("patientName", reservation.getPatientName());
+        payload.put("bloodType", reservation.getBloodType());
+        payload.put("unitsNeeded", reservation.getUnitsNeeded());
+        payload.put("bloodBankName", reservation.getBloodBank().getName());
+        payload.put("reservationId", reservation.getId());
+        enqueue(new Message(WhatsAppService.SEND_CONFIRMATION, payload, "reservation:" + reservation.getId()));
+    }
+
+    public void statusUpdate(Reservation reservation, String status) {
+        if (!hasRecipient(reservation.getWhatsappNumber())) {
+            return;
+        }
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("phoneNumber", reservation.getWhatsappNumber());
+        payload.put("patientName", reservation.getPatientName());
+        payload.put("status", status);
+        payload.put("bloodBankName", reservation.getBloodBank().getName());
+        enqueue(new Message(WhatsAppService.SEND_STATUS_UPDATE, payload, "reservation:" + reservation.getId()));
+    }
+
+    public static Message eligibilityReminder(String phone, String donorName) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("phoneNumber", phone);
+        payload.put("donorName", donorName);
+        return new Message(WhatsAppService.SEND_ELIGIBILITY_REMINDER, payload, "eligibility");
+    }
+
+    public static Message shortageAlert(String phone, String donorName, String bloodType, String city,
+            String bloodBankName) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("phoneNumber", phone);
+        payload.put("donorName", donorName);
+        payload.put("bloodType", bloodType);
+        payload.put("city", city);
+        payload.put("bloodBankName", bloodBankName);
+        return new Message(WhatsAppService.SEND_SHORTAGE_ALERT, payload, "shortage:" + bloodType);
+    }
+
+    public void enqueue(Message message) {
+        enqueueAll(List.of(message));
+    }
+
+    /**
+     * Queue messages with one JDBC batch; returns how many were queued
+     */
+    public int enqueueAll(List<Message> messages) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            if (isBlank((String) message.payload().get("phoneNumber"))) {
+                continue;
+            }
+            rows.add(new Object[] { message.endpoint(), toJson(message.payload()), message.reference(), now, now });
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+            log.debug("Queued {} notifications", rows.size());
+        }
+        return rows.size();
+    }
+
+    private String toJson(Map<String, Object> payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize notification payload", e);
+        }
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
@@ -0,0 +1,347 @@
+package com.bloodbank.service;
+
+import com.bloodbank.entity.OutboxMessage;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Delivers notification_outbox messages to the WhatsApp service. Each worker
+ * claims a batch of due messages with FOR UPDATE SKIP LOCKED, marking them
+ * SENDING under a lease, and sends them outside any transaction; workers of
+ * this and other instances never claim the same row. A message whose relay dies
+ * mid-send is reclaimed once its lease runs out. Failures are retried with
+ * exponential backoff until max-attempts; outcomes are only written while the
+ * claim is still ours (same attempt number).
+ */
+@Component
+public class NotificationRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationRelay.class);
+
+    private static final String PENDING = OutboxMessage.Status.PENDING.name();
+    private static final String SENDING = OutboxMessage.Status.SENDING.name();
+    private static final String SENT = OutboxMessage.Status.SENT.name();
+    private static final String FAILED = OutboxMessage.Status.FAILED.name();
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    // Served by idx_notification_outbox_due; the claim commits on its own so the lease is visible at once
+    private static final String CLAIM_SQL = "UPDATE notification_outbox o " +
+            "SET status = '" + SENDING + "', attempts = o.attempts + 1, next_attempt_at = ? " +
+            "FROM (SELECT id FROM notification_outbox WHERE status IN ('" + PENDING + "', '" + SENDING + "') " +
+            "AND next_attempt_at <= ? ORDER BY next_attempt_at, id LIMIT ? FOR UPDATE SKIP LOCKED) due " +
+            "WHERE o.id = due.id RETURNING o.id, o.endpoint, o.payload, o.attempts";
+
+    private static final String SENT_SQL = "UPDATE notification_outbox SET status = '" + SENT + "', " +
+            "sent_at = ?, last_error = NULL WHERE id = ? AND status = '" + SENDING + "' AND attempts = ?";
+
+    private static final String RETRY_SQL = "UPDATE notification_outbox SET status = ?, next_attempt_at = ?, " +
+            "last_error = ? WHERE id = ? AND status = '" + SENDING + "' AND attempts = ?";
+
+    private static final String PURGE_SQL = "DELETE FROM notification_outbox WHERE id IN " +
+            "(SELECT id FROM notification_outbox WHERE status = '" + SENT + "' AND sent_at < ? LIMIT ?)";
+
+    private static final String RETRY_FAILED_SQL = "UPDATE notification_outbox SET status = '" + PENDING + "', " +
+            "attempts = 0, next_attempt_at = ? WHERE status = '" + FAILED + "'";
+
+    private static final String COUNTS_SQL = "SELECT status, COUNT(*) FROM notification_outbox GROUP BY status";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final WhatsAppService whatsAppService;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final int workers;
+    private final int maxAttempts;
+    private final long leaseSeconds;
+    private final long backoffBaseSeconds;
+    private final long backoffMaxSeconds;
+    private final int retentionDays;
+    private final ExecutorService pool;
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "notification-relay-dispatcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private final JobRuns<Run> runs = new JobRuns<Run>()
+            .total("totalSent", Run::sent)
+            .total("totalRetried", Run::retried)
+            .total("totalFailed", Run::failed);
+
+    public NotificationRelay(JdbcTemplate jdbcTemplate,
+            WhatsAppService whatsAppService,
+            ObjectMapper objectMapper,
+            @Value("${notifications.relay.batch-size:50}") int batchSize,
+            @Value("${notifications.relay.workers:2}") int workers,
+            @Value("${notifications.relay.max-attempts:8}") int maxAttempts,
+            @Value("${notifications.relay.lease-seconds:600}") long leaseSeconds,
+            @Value("${notifications.relay.backoff-base-seconds:10}") long backoffBaseSeconds,
+            @Value("${notifications.relay.backoff-max-seconds:3600}") long backoffMaxSeconds,
+            @Value("${notifications.outbox.retention-days:7}") int retentionDays) {
+        if (batchSize <= 0 || workers <= 0 || maxAttempts <= 0 || leaseSeconds <= 0 || backoffBaseSeconds <= 0) {
+            throw new IllegalArgumentException(
+                    "notifications.relay batch-size, workers, max-attempts, lease and backoff must be positive");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.whatsAppService = whatsAppService;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.workers = workers;
+        this.maxAttempts = maxAttempts;
+        this.leaseSeconds = leaseSeconds;
+        this.backoffBaseSeconds = backoffBaseSeconds;
+        this.backoffMaxSeconds = Math.max(backoffMaxSeconds, backoffBaseSeconds);
+        this.retentionDays = retentionDays;
+        AtomicInteger threads = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(workers, r -> {
+            Thread thread = new Thread(r, "notification-relay-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Outcome of one relay run
+     */
+    public record Run(String trigger, LocalDateTime startedAt, long durationMs, int batches, int sent, int retried,
+            int failed) {
+    }
+
+    private record Claimed(long id, String endpoint, String payload, int attempts) {
+    }
+
+    // Per-worker tally: batches, sent, retried, failed
+    private static final class Tally {
+        int batches;
+        int sent;
+        int retried;
+        int failed;
+    }
+
+    /**
+     * Scheduled job: deliver every due message. The run is handed to the relay's
+     * dispatcher thread, so a slow or hung WhatsApp service never holds up the
+     * shared scheduler; a tick that finds a run still in progress is skipped.
+     */
+    @Scheduled(fixedDelayString = "${notifications.relay.interval-ms:5000}")
+    public void relayScheduled() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            dispatcher.execute(() -> {
+                try {
+                    relay("scheduled");
+                } catch (RuntimeException e) {
+                    log.warn("Notification relay run failed: {}", e.getMessage());
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Deliver every due message now
+     */
+    public Run relayAll() {
+        return relay("manual");
+    }
+
+    /**
+     * Daily job: delete delivered messages older than the retention period
+     */
+    @Scheduled(cron = "${notifications.outbox.purge-cron:0 45 3 * * *}")
+    public void purgeSent() {
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minusDays(retentionDays));
+        int purged = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(PURGE_SQL, cutoff, 1000);
+            purged += deleted;
+        } while (deleted == 1000);
+        log.info("Notification outbox: purged {} messages sent before {}", purged, cutoff);
+    }
+
+    /**
+     * Put every FAILED message back in the queue with a fresh attempt budget
+     */
+    public int retryFailed() {
+        int requeued = jdbcTemplate.update(RETRY_FAILED_SQL, Timestamp.valueOf(LocalDateTime.now()));
+        log.info("Notification outbox: {} failed messages requeued", requeued);
+        return requeued;
+    }
+
+    /**
+     * Messages by status, metrics of the last run plus totals since startup
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Long> byStatus = new LinkedHashMap<>();
+        for (OutboxMessage.Status status : OutboxMessage.Status.values()) {
+            byStatus.put(status.name(), 0L);
+        }
+        jdbcTemplate.query(COUNTS_SQL, (RowCallbackHandler) rs -> byStatus.put(rs.getString(1), rs.getLong(2)));
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("batchSize", batchSize);
+        stats.put("workers", workers);
+        stats.put("maxAttempts", maxAttempts);
+        stats.put("messages", byStatus);
+        runs.putStats(stats);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+        pool.shutdownNow();
+    }
+
+    private Run relay(String trigger) {
+        LocalDateTime startedAt = LocalDateTime.now();
+        long start = System.nanoTime();
+
+        List<Callable<Tally>> tasks = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            tasks.add(this::drain);
+        }
+        Tally total = new Tally();
+        try {
+            for (Future<Tally> result : pool.invokeAll(tasks)) {
+                try {
+                    Tally tally = result.get();
+                    total.batches += tally.batches;
+                    total.sent += tally.sent;
+                    total.retried += tally.retried;
+                    total.failed += tally.failed;
+                } catch (ExecutionException e) {
+                    // Claimed messages are picked up again when their lease runs out
+                    log.warn("Notification relay worker failed: {}", e.getCause().getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Notification relay interrupted", e);
+        }
+
+        long durationMs = (System.nanoTime() - start) / 1_000_000;
+        Run run = runs.record(new Run(trigger, startedAt, durationMs, total.batches, total.sent, total.retried,
+                total.failed));
+
+        if (total.sent + total.retried + total.failed > 0) {
+            log.info("Notification relay ({}): {} sent, {} to retry, {} failed in {} batches, {} ms",
+                    trigger, total.sent, total.retried, total.failed, total.batches, durationMs);
+        }
+        return run;
+    }
+
+    private Tally drain() {
+        Tally tally = new Tally();
+        tally.batches = JobRuns.untilShort(batchSize, () -> relayBatch(tally)).count();
+        return tally;
+    }
+
+    private int relayBatch(Tally tally) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Claimed> batch = jdbcTemplate.query(CLAIM_SQL,
+                (rs, i) -> new Claimed(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getInt(4)),
+                Timestamp.valueOf(now.plusSeconds(leaseSeconds)), Timestamp.valueOf(now), batchSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        batch.sort(Comparator.comparingLong(Claimed::id));
+
+        List<Object[]> sent = new ArrayList<>();
+        List<Object[]> retries = new ArrayList<>();
+        for (Claimed message : batch) {
+            try {
+                whatsAppService.deliver(message.endpoint(), parse(message.payload()));
+                sent.add(new Object[] { Timestamp.valueOf(LocalDateTime.now()), message.id(), message.attempts() });
+                tally.sent++;
+            } catch (Exception e) {
+                boolean giveUp = message.attempts() >= maxAttempts || isPermanent(e);
+                String status = giveUp ? FAILED : PENDING;
+                LocalDateTime next = giveUp ? LocalDateTime.now() : LocalDateTime.now().plusSeconds(
+                        backoffSeconds(message.attempts()));
+                retries.add(new Object[] { status, Timestamp.valueOf(next), truncate(e.getMessage()), message.id(),
+                        message.attempts() });
+                if (giveUp) {
+                    tally.failed++;
+                    log.warn("Notification {} to {} failed after {} attempts: {}", message.id(), message.endpoint(),
+                            message.attempts(), e.getMessage());
+                } else {
+                    tally.retried++;
+                    log.debug("Notification {} attempt {} failed, retrying at {}: {}", message.id(),
+                            message.attempts(), next, e.getMessage());
+                }
+            }
+        }
+        if (!sent.isEmpty()) {
+            jdbcTemplate.batchUpdate(SENT_SQL, sent);
+        }
+        if (!retries.isEmpty()) {
+            jdbcTemplate.batchUpdate(RETRY_SQL, retries);
+        }
+        return batch.size();
+    }
+
+    /**
+     * Delay before attempt n + 1: base * 2^(n - 1), capped, with up to 20% jitter
+     * so messages that failed together do not retry together
+     */
+    private long backoffSeconds(int attempts) {
+        long delay = backoffBaseSeconds << Math.min(attempts - 1, 30);
+        delay = Math.min(delay, backoffMaxSeconds);
+        return delay + ThreadLocalRandom.current().nextLong(delay / 5 + 1);
+    }
+
+    // A 4xx other than timeout or rate limiting will not succeed on retry
+    private static boolean isPermanent(Exception e) {
+        if (e instanceof WebClientResponseException response) {
+            int status = response.getStatusCode().value();
+            return status >= 400 && status < 500 && status != 408 && status != 429;
+        }
+        return e instanceof IllegalArgumentException;
+    }
+
+    private Map<String, Object> parse(String payload) {
+        try {
+            return objectMapper.readValue(payload, new TypeReference<Map<String, Object>>() {
+            });
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Unreadable notification payload", e);
+        }
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() <= MAX_ERROR_LENGTH ? message : message.substring(0, MAX_ERROR_LENGTH);
+    }
+}
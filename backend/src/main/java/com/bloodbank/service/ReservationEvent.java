@@ -0,0 +1,17 @@
+package com.bloodbank.service;
+
+import com.bloodbank.entity.Reservation;
+
+/**
+ * Published after a reservation is created (previousStatus null) or changes status
+ */
+public record ReservationEvent(Long bankId, Long reservationId, String status, String previousStatus,
+        String bloodType, int unitsNeeded, String urgencyLevel) {
+
+    static ReservationEvent of(Reservation reservation, String previousStatus) {
+        return new ReservationEvent(reservation.getBloodBank().getId(), reservation.getId(), reservation.getStatus(),
+                previousStatus, reservation.getBloodType(),
+                reservation.getUnitsNeeded() != null ? reservation.getUnitsNeeded() : 0,
+                reservation.getUrgencyLevel());
+    }
+}
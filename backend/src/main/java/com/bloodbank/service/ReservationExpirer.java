@@ -0,0 +1,152 @@
+package com.bloodbank.service;
+
+import com.bloodbank.entity.Reservation;
+import com.bloodbank.repository.ReservationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Moves pending reservations past their expiresAt to "expired". Each batch of at
+ * most batch-size reservations is claimed with FOR UPDATE SKIP LOCKED and handled
+ * in its own transaction: holds are released and patient notifications are
+ * queued in the outbox with the status change. Status changes from the portal
+ * and the API lock the same row (ReservationRepository#findByIdForUpdate), so a
+ * reservation being changed concurrently is left to the next run, and one
+ * changed after the batch commits is seen there as expired.
+ */
+@Service
+public class ReservationExpirer {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservationExpirer.class);
+
+    // Served by idx_reservations_status_expires
+    private static final String OVERDUE_SQL = "SELECT id FROM reservations " +
+            "WHERE status = '" + Reservation.STATUS_PENDING + "' AND expires_at < ? " +
+            "ORDER BY expires_at, id LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ReservationRepository reservationRepository;
+    private final InventoryHolds inventoryHolds;
+    private final ReservationQueue reservationQueue;
+    private final UnitAllocator unitAllocator;
+    private final NotificationOutbox notificationOutbox;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+
+    private final JobRuns<Run> runs = new JobRuns<Run>().total("totalExpired", Run::expired);
+
+    public ReservationExpirer(JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            ReservationRepository reservationRepository,
+            InventoryHolds inventoryHolds,
+            ReservationQueue reservationQueue,
+            UnitAllocator unitAllocator,
+            NotificationOutbox notificationOutbox,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${reservations.expiry.batch-size:200}") int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("reservations.expiry.batch-size must be positive");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.reservationRepository = reservationRepository;
+        this.inventoryHolds = inventoryHolds;
+        this.reservationQueue = reservationQueue;
+        this.unitAllocator = unitAllocator;
+        this.notificationOutbox = notificationOutbox;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Outcome of one run
+     */
+    public record Run(String trigger, LocalDateTime startedAt, long durationMs, int batches, int expired,
+            Map<Long, Integer> expiredByBank) {
+    }
+
+    /**
+     * Scheduled job: expire overdue pending reservations
+     */
+    @Scheduled(cron = "${reservations.expiry.cron:0 */5 * * * *}")
+    public void expireScheduled() {
+        expire("scheduled");
+    }
+
+    /**
+     * Expire overdue pending reservations now
+     */
+    public Run expireAll() {
+        return expire("manual");
+    }
+
+    /**
+     * Batch size, the last run and reservations expired since startup
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("batchSize", batchSize);
+        runs.putStats(stats);
+        return stats;
+    }
+
+    private Run expire(String trigger) {
+        LocalDateTime startedAt = LocalDateTime.now();
+        long start = System.nanoTime();
+
+        Map<Long, Integer> expiredByBank = new TreeMap<>();
+        JobRuns.Batches batches = JobRuns.untilShort(batchSize,
+                () -> transactionTemplate.execute(status -> expireBatch(startedAt, expiredByBank)));
+
+        long durationMs = (System.nanoTime() - start) / 1_000_000;
+        Run run = runs.record(new Run(trigger, startedAt, durationMs, batches.count(), batches.items(),
+                Collections.unmodifiableMap(expiredByBank)));
+
+        if (run.expired() > 0) {
+            log.info("Reservation expiry ({}): {} reservations expired across {} banks in {} batches, {} ms",
+                    trigger, run.expired(), expiredByBank.size(), run.batches(), durationMs);
+        } else {
+            log.debug("Reservation expiry ({}): nothing to expire, {} ms", trigger, durationMs);
+        }
+        return run;
+    }
+
+    private int expireBatch(LocalDateTime now, Map<Long, Integer> expiredByBank) {
+        List<Long> ids = jdbcTemplate.queryForList(OVERDUE_SQL, Long.class, Timestamp.valueOf(now), batchSize);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        List<Reservation> reservations = reservationRepository.findAllById(ids);
+        List<ReservationEvent> events = new ArrayList<>(reservations.size());
+        for (Reservation reservation : reservations) {
+            if (!Reservation.STATUS_PENDING.equals(reservation.getStatus())) {
+                // Already moved on by a status change that committed before the claim
+                continue;
+            }
+            inventoryHolds.release(reservation);
+            // A reservation reopened after confirmation may still have units set aside
+            unitAllocator.release(reservation);
+            reservation.setStatus(Reservation.STATUS_EXPIRED);
+            events.add(ReservationEvent.of(reservation, Reservation.STATUS_PENDING));
+            expiredByBank.merge(reservation.getBloodBank().getId(), 1, Integer::sum);
+            notificationOutbox.statusUpdate(reservation, Reservation.STATUS_EXPIRED);
+        }
+        reservationRepository.saveAll(reservations);
+        reservations.forEach(reservationQueue::onSaved);
+
+        TransactionHooks.afterCommit(() -> events.forEach(eventPublisher::publishEvent));
+        return ids.size();
+    }
+}
@@ -0,0 +1,175 @@
+package com.bloodbank.service;
+
+import com.bloodbank.entity.BloodUnit.BloodComponent;
+import com.bloodbank.entity.Reservation;
+import com.bloodbank.repository.ReservationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Open (pending or confirmed) reservations of every bank, kept in memory in work
+ * order: emergency before urgent before normal, then oldest first, then largest
+ * request first. Built from the database at startup and updated as reservations
+ * are created or change status, so the portal queue is read without sorting.
+ */
+@Component
+public class ReservationQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservationQueue.class);
+
+    public static final Set<String> OPEN_STATUSES = Set.of(Reservation.STATUS_PENDING, Reservation.STATUS_CONFIRMED);
+
+    private static final Comparator<Entry> WORK_ORDER = Comparator
+            .comparingInt((Entry e) -> urgencyRank(e.urgencyLevel()))
+            .thenComparing(Entry::createdAt, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(Comparator.comparingInt(Entry::unitsNeeded).reversed())
+            .thenComparing(Entry::id);
+
+    private final ReservationRepository reservationRepository;
+    private final Map<Long, BankQueue> banks = new ConcurrentHashMap<>();
+
+    public ReservationQueue(ReservationRepository reservationRepository) {
+        this.reservationRepository = reservationRepository;
+    }
+
+    /**
+     * One open reservation
+     */
+    public record Entry(Long id, String patientName, String bloodType, BloodComponent component, int unitsNeeded,
+            String urgencyLevel, String status, LocalDateTime createdAt, LocalDateTime expiresAt) {
+    }
+
+    private static final class BankQueue {
+        final TreeSet<Entry> ordered = new TreeSet<>(WORK_ORDER);
+        final Map<Long, Entry> byId = new HashMap<>();
+    }
+
+    /**
+     * Load every open reservation
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        banks.clear();
+        int loaded = 0;
+        for (Object[] row : reservationRepository.findQueueRows(OPEN_STATUSES)) {
+            Entry entry = new Entry(((Number) row[0]).longValue(), (String) row[2], (String) row[3],
+                    (BloodComponent) row[4], row[5] != null ? ((Number) row[5]).intValue() : 1, (String) row[6],
+                    (String) row[7], (LocalDateTime) row[8], (LocalDateTime) row[9]);
+            put(queue(((Number) row[1]).longValue()), entry);
+            loaded++;
+        }
+        log.info("Reservation queue loaded: {} open reservations across {} blood banks", loaded, banks.size());
+    }
+
+    /**
+     * A reservation was created or saved; applied once the transaction commits
+     */
+    public void onSaved(Reservation reservation) {
+        Long bankId = reservation.getBloodBank().getId();
+        Entry entry = OPEN_STATUSES.contains(reservation.getStatus()) ? toEntry(reservation) : null;
+        Long id = reservation.getId();
+        TransactionHooks.afterCommit(() -> {
+            BankQueue queue = queue(bankId);
+            synchronized (queue) {
+                remove(queue, id);
+                if (entry != null) {
+                    put(queue, entry);
+                }
+            }
+        });
+    }
+
+    public void removeBank(Long bankId) {
+        TransactionHooks.afterCommit(() -> banks.remove(bankId));
+    }
+
+    /**
+     * The first limit open reservations of a bank in work order
+     */
+    public List<Entry> top(Long bankId, int limit) {
+        BankQueue queue = banks.get(bankId);
+        if (queue == null) {
+            return List.of();
+        }
+        List<Entry> entries = new ArrayList<>(Math.min(limit, 64));
+        synchronized (queue) {
+            for (Entry entry : queue.ordered) {
+                if (entries.size() >= limit) {
+                    break;
+                }
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Open reservations of a bank by urgency level
+     */
+    public Map<String, Integer> countByUrgency(Long bankId) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        BankQueue queue = banks.get(bankId);
+        if (queue == null) {
+            return counts;
+        }
+        synchronized (queue) {
+            for (Entry entry : queue.ordered) {
+                counts.merge(entry.urgencyLevel() != null ? entry.urgencyLevel() : "normal", 1, Integer::sum);
+            }
+        }
+        return counts;
+    }
+
+    public int size(Long bankId) {
+        BankQueue queue = banks.get(bankId);
+        if (queue == null) {
+            return 0;
+        }
+        synchronized (queue) {
+            return queue.byId.size();
+        }
+    }
+
+    private BankQueue queue(Long bankId) {
+        return banks.computeIfAbsent(bankId, id -> new BankQueue());
+    }
+
+    private static void put(BankQueue queue, Entry entry) {
+        synchronized (queue) {
+            queue.byId.put(entry.id(), entry);
+            queue.ordered.add(entry);
+        }
+    }
+
+    private static void remove(BankQueue queue, Long id) {
+        Entry previous = queue.byId.remove(id);
+        if (previous != null) {
+            queue.ordered.remove(previous);
+        }
+    }
+
+    private static Entry toEntry(Reservation reservation) {
+        return new Entry(reservation.getId(), reservation.getPatientName(), reservation.getBloodType(),
+                reservation.getComponent(), reservation.getUnitsNeeded() != null ? reservation.getUnitsNeeded() : 1,
+                reservation.getUrgencyLevel(), reservation.getStatus(), reservation.getCreatedAt(),
+                reservation.getExpiresAt());
+    }
+
+    private static int urgencyRank(String urgencyLevel) {
+        if (urgencyLevel == null) {
+            return 2;
+        }
+        return switch (urgencyLevel.toLowerCase()) {
+            case "emergency" -> 0;
+            case "urgent" -> 1;
+            default -> 2;
+        };
+    }
+}
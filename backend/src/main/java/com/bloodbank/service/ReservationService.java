@@ -1,17 +1,22 @@
 package com.bloodbank.service;
 
 import com.bloodbank.dto.CreateReservationRequest;
+import com.bloodbank.dto.CursorPage;
+import com.bloodbank.dto.PageCursor;
 import com.bloodbank.dto.ReservationDto;
 import com.bloodbank.entity.BloodBank;
+import com.bloodbank.entity.BloodUnit.BloodComponent;
 import com.bloodbank.entity.Reservation;
 import com.bloodbank.repository.BloodBankRepository;
-import com.bloodbank.repository.BloodInventoryRepository;
 import com.bloodbank.repository.ReservationRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -22,19 +27,34 @@ public class ReservationService {
 
     private static final Logger log = LoggerFactory.getLogger(ReservationService.class);
 
+    // How long a pending reservation holds its units before ReservationExpirer expires it
+    private static final Duration PENDING_TTL = Duration.ofHours(24);
+
     private final ReservationRepository reservationRepository;
     private final BloodBankRepository bloodBankRepository;
-    private final BloodInventoryRepository inventoryRepository;
-    private final WhatsAppService whatsAppService;
+    private final NotificationOutbox notificationOutbox;
+    private final InventoryService inventoryService;
+    private final UnitAllocator unitAllocator;
+    private final InventoryHolds inventoryHolds;
+    private final ReservationQueue reservationQueue;
+    private final ApplicationEventPublisher eventPublisher;
 
     public ReservationService(ReservationRepository reservationRepository,
             BloodBankRepository bloodBankRepository,
-            BloodInventoryRepository inventoryRepository,
-            WhatsAppService whatsAppService) {
+            NotificationOutbox notificationOutbox,
+            InventoryService inventoryService,
+            UnitAllocator unitAllocator,
+            InventoryHolds inventoryHolds,
+            ReservationQueue reservationQueue,
+            ApplicationEventPublisher eventPublisher) {
         this.reservationRepository = reservationRepository;
         this.bloodBankRepository = bloodBankRepository;
-        this.inventoryRepository = inventoryRepository;
-        this.whatsAppService = whatsAppService;
+        this.notificationOutbox = notificationOutbox;
+        this.inventoryService = inventoryService;
+        this.unitAllocator = unitAllocator;
+        this.inventoryHolds = inventoryHolds;
+        this.reservationQueue = reservationQueue;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional
@@ -42,18 +62,6 @@ public class ReservationService {
         BloodBank bloodBank = bloodBankRepository.findById(request.getBloodBankId())
                 .orElseThrow(() -> new RuntimeException("Blood bank not found"));
 
-        // Validate that requested units don't exceed available inventory
-        int availableUnits = inventoryRepository.findByBloodBankIdAndBloodType(
-                request.getBloodBankId(), request.getBloodType())
-                .map(inv -> inv.getUnitsAvailable())
-                .orElse(0);
-
-        if (request.getUnitsNeeded() > availableUnits) {
-            throw new RuntimeException(
-                    String.format("Insufficient blood units. Requested: %d, Available: %d",
-                            request.getUnitsNeeded(), availableUnits));
-        }
-
         String whatsappNumber = "+91" + request.getWhatsappNumber().replaceAll("[^0-9]", "");
 
         Reservation reservation = Reservation.builder()
@@ -65,31 +73,46 @@ public class ReservationService {
                 .additionalNotes(request.getAdditionalNotes())
                 .bloodBank(bloodBank)
                 .status(Reservation.STATUS_PENDING)
-                .expiresAt(LocalDateTime.now().plusHours(24))
+                .expiresAt(LocalDateTime.now().plus(PENDING_TTL))
                 .build();
 
         // Set prescription and doctor (required fields)
         reservation.setPrescriptionPath(request.getPrescriptionPath());
         reservation.setReferringDoctor(request.getReferringDoctor());
+        if (request.getComponent() != null && !request.getComponent().isBlank()) {
+            reservation.setComponent(parseComponent(request.getComponent()));
+        }
+
+        // Claims the units atomically; fails if they are already held by other reservations
+        inventoryHolds.hold(reservation);
 
         Reservation saved = reservationRepository.save(reservation);
+        reservationQueue.onSaved(saved);
+        publishChange(saved, null);
         log.info("New reservation created: {}", saved.getId());
 
-        ReservationDto dto = convertToDto(saved, bloodBank.getName());
+        // Queued with the reservation; delivered by the relay once committed
+        notificationOutbox.reservationConfirmation(saved);
 
-        try {
-            whatsAppService.sendReservationConfirmation(dto);
-        } catch (Exception e) {
-            log.warn("Failed to send WhatsApp notification: {}", e.getMessage());
-        }
-
-        return dto;
+        return convertToDto(saved, bloodBank.getName());
     }
 
-    public List<ReservationDto> getAllReservations() {
-        return reservationRepository.findAllByOrderByCreatedAtDesc().stream()
-                .map(r -> convertToDto(r, r.getBloodBank().getName()))
-                .collect(Collectors.toList());
+    /**
+     * Keyset page of reservations, newest first
+     */
+    public CursorPage<ReservationDto> getReservationsPage(PageCursor cursor, int limit) {
+        PageRequest page = PageRequest.of(0, limit + 1);
+        List<Reservation> reservations;
+        if (cursor == null) {
+            reservations = reservationRepository.findFirstPage(page);
+        } else if (cursor.timestamp() == null) {
+            reservations = reservationRepository.findPageAfterUndated(cursor.id(), page);
+        } else {
+            reservations = reservationRepository.findPageAfter(cursor.timestamp(), cursor.id(), page);
+        }
+        return CursorPage.of(reservations, limit,
+                r -> PageCursor.of(r.getCreatedAt(), r.getId()),
+                r -> convertToDto(r, r.getBloodBank().getName()));
     }
 
     public Optional<ReservationDto> getReservationById(Long id) {
@@ -103,86 +126,48 @@ public class ReservationService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Status changes lock the reservation row, so the hold they move matches the
+     * status they replace even with concurrent requests or the expirer running
+     */
     @Transactional
     public Optional<ReservationDto> updateStatus(Long id, String status) {
-        return reservationRepository.findById(id)
-                .map(reservation -> {
-                    String previousStatus = reservation.getStatus();
-                    reservation.setStatus(status);
-                    Reservation updated = reservationRepository.save(reservation);
-
-                    log.info("Reservation {} status updated to {}", id, status);
-
-                    // Deduct inventory when reservation is completed
-                    if (Reservation.STATUS_COMPLETED.equals(status) &&
-                            !Reservation.STATUS_COMPLETED.equals(previousStatus)) {
-                        inventoryRepository.deductUnits(
-                                reservation.getBloodBank().getId(),
-                                reservation.getBloodType(),
-                                reservation.getUnitsNeeded());
-                        log.info("Deducted {} units of {} from bank {}",
-                                reservation.getUnitsNeeded(),
-                                reservation.getBloodType(),
-                                reservation.getBloodBank().getId());
-                    }
-
-                    try {
-                        whatsAppService.sendStatusUpdate(
-                                updated.getWhatsappNumber(),
-                                updated.getPatientName(),
-                                status,
-                                updated.getBloodBank().getName());
-                    } catch (Exception e) {
-                        log.warn("Failed to send WhatsApp status update: {}", e.getMessage());
-                    }
-
-                    return convertToDto(updated, updated.getBloodBank().getName());
-                });
+        return reservationRepository.findByIdForUpdate(id)
+                .map(reservation -> applyStatus(reservation, status));
     }
 
     @Transactional
     public Optional<ReservationDto> updateStatusForBank(Long reservationId, Long bankId, String status) {
-        return reservationRepository.findById(reservationId)
+        return reservationRepository.findByIdForUpdate(reservationId)
                 .filter(r -> r.getBloodBank().getId().equals(bankId))
-                .map(reservation -> {
-                    reservation.setStatus(status);
-                    Reservation updated = reservationRepository.save(reservation);
-
-                    if (Reservation.STATUS_COMPLETED.equals(status)) {
-                        inventoryRepository.deductUnits(
-                                bankId,
-                                reservation.getBloodType(),
-                                reservation.getUnitsNeeded());
-                        log.info("Deducted {} units of {} from bank {}",
-                                reservation.getUnitsNeeded(),
-                                reservation.getBloodType(),
-                                bankId);
-                    }
-
-                    try {
-                        whatsAppService.sendStatusUpdate(
-                                updated.getWhatsappNumber(),
-                                updated.getPatientName(),
-                                status,
-                                updated.getBloodBank().getName());
-                    } catch (Exception e) {
-                        log.warn("Failed to send WhatsApp status update: {}", e.getMessage());
-                    }
-
-                    return convertToDto(updated, updated.getBloodBank().getName());
-                });
+                .map(reservation -> applyStatus(reservation, status));
     }
 
     @Transactional
     public Optional<ReservationDto> cancelReservation(Long id) {
-        return reservationRepository.findById(id)
+        return reservationRepository.findByIdForUpdate(id)
                 .map(reservation -> {
+                    String previousStatus = reservation.getStatus();
+                    requireNotCompleted(reservation, Reservation.STATUS_CANCELLED);
+                    inventoryHolds.release(reservation);
                     reservation.setStatus(Reservation.STATUS_CANCELLED);
                     Reservation updated = reservationRepository.save(reservation);
+                    reservationQueue.onSaved(updated);
+                    publishChange(updated, previousStatus);
+                    applyUnitAllocation(reservation, previousStatus, Reservation.STATUS_CANCELLED);
                     return convertToDto(updated, updated.getBloodBank().getName());
                 });
     }
 
+    /**
+     * Units held by or issued to a bank's reservation
+     */
+    public Optional<List<UnitAllocator.AllocatedUnit>> getAllocatedUnits(Long reservationId, Long bankId) {
+        return reservationRepository.findById(reservationId)
+                .filter(r -> r.getBloodBank().getId().equals(bankId))
+                .map(r -> unitAllocator.getAllocatedUnits(r.getId()));
+    }
+
     public Object[] getStats() {
         return reservationRepository.getReservationStats();
     }
@@ -197,6 +182,114 @@ public class ReservationService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Move a locked reservation to status: hold, queue, dashboard event, unit
+     * allocation, stock deduction on completion and the patient notification
+     */
+    private ReservationDto applyStatus(Reservation reservation, String status) {
+        String previousStatus = reservation.getStatus();
+        requireNotCompleted(reservation, status);
+        applyHold(reservation, previousStatus, status);
+        if (ReservationQueue.OPEN_STATUSES.contains(status) && !ReservationQueue.OPEN_STATUSES.contains(previousStatus)) {
+            // A reopened reservation gets a fresh deadline, or the next expiry run would expire it again
+            reservation.setExpiresAt(LocalDateTime.now().plus(PENDING_TTL));
+        }
+        reservation.setStatus(status);
+        Reservation updated = reservationRepository.save(reservation);
+        reservationQueue.onSaved(updated);
+        publishChange(updated, previousStatus);
+
+        log.info("Reservation {} status updated to {}", updated.getId(), status);
+        applyUnitAllocation(updated, previousStatus, status);
+
+        // Deduct inventory when reservation is completed
+        if (Reservation.STATUS_COMPLETED.equals(status) &&
+                !Reservation.STATUS_COMPLETED.equals(previousStatus)) {
+            Long bankId = updated.getBloodBank().getId();
+            inventoryService.deductUnits(
+                    bankId,
+                    updated.getBloodType(),
+                    updated.getUnitsNeeded(),
+                    "reservation:" + updated.getId());
+            log.info("Deducted {} units of {} from bank {}",
+                    updated.getUnitsNeeded(),
+                    updated.getBloodType(),
+                    bankId);
+        }
+
+        notificationOutbox.statusUpdate(updated, status);
+
+        return convertToDto(updated, updated.getBloodBank().getName());
+    }
+
+    /**
+     * Completion is final: its units are issued and deducted from stock, and a
+     * reopened reservation would hold, allocate and deduct them a second time
+     */
+    private static void requireNotCompleted(Reservation reservation, String status) {
+        if (Reservation.STATUS_COMPLETED.equals(reservation.getStatus()) && !status.equals(reservation.getStatus())) {
+            throw new IllegalArgumentException("Reservation " + reservation.getId() +
+                    " is completed and cannot be moved to " + status);
+        }
+    }
+
+    private void publishChange(Reservation reservation, String previousStatus) {
+        if (reservation.getStatus().equals(previousStatus)) {
+            return;
+        }
+        ReservationEvent event = ReservationEvent.of(reservation, previousStatus);
+        TransactionHooks.afterCommit(() -> eventPublisher.publishEvent(event));
+    }
+
+    /**
+     * Cancelling or completing drops the inventory hold (completion deducts the units
+     * instead); reopening a cancelled or expired reservation has to win a new hold
+     */
+    private void applyHold(Reservation reservation, String previousStatus, String status) {
+        if (status.equals(previousStatus)) {
+            return;
+        }
+        switch (status) {
+            case Reservation.STATUS_CANCELLED, Reservation.STATUS_COMPLETED -> inventoryHolds.release(reservation);
+            case Reservation.STATUS_PENDING, Reservation.STATUS_CONFIRMED -> {
+                // Moving between pending and confirmed keeps the existing hold
+                if (!ReservationQueue.OPEN_STATUSES.contains(previousStatus)) {
+                    inventoryHolds.hold(reservation);
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Confirming reserves units FEFO, completing issues them (reserving first if the
+     * reservation skipped confirmation), cancelling returns them to stock
+     */
+    private void applyUnitAllocation(Reservation reservation, String previousStatus, String status) {
+        if (status.equals(previousStatus)) {
+            return;
+        }
+        switch (status) {
+            case Reservation.STATUS_CONFIRMED -> unitAllocator.allocate(reservation);
+            case Reservation.STATUS_COMPLETED -> {
+                unitAllocator.allocate(reservation);
+                unitAllocator.issue(reservation);
+            }
+            case Reservation.STATUS_CANCELLED, Reservation.STATUS_PENDING -> unitAllocator.release(reservation);
+            default -> {
+            }
+        }
+    }
+
+    private static BloodComponent parseComponent(String component) {
+        try {
+            return BloodComponent.valueOf(component.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid blood component: " + component);
+        }
+    }
+
     private ReservationDto convertToDto(Reservation reservation, String bloodBankName) {
         ReservationDto dto = ReservationDto.builder()
                 .id(reservation.getId())
@@ -215,6 +308,7 @@ public class ReservationService {
                 .build();
         dto.setPrescriptionPath(reservation.getPrescriptionPath());
         dto.setReferringDoctor(reservation.getReferringDoctor());
+        dto.setComponent(reservation.getComponent() != null ? reservation.getComponent().name() : null);
         return dto;
     }
 }
@@ -0,0 +1,210 @@
+package com.bloodbank.service;
+
+import com.bloodbank.entity.BloodUnit.BloodComponent;
+import com.bloodbank.entity.BloodUnit.UnitStatus;
+import com.bloodbank.entity.Reservation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * First-expiry-first-out allocation of blood units to reservations.
+ * Units are picked and flipped to RESERVED in one statement with
+ * FOR UPDATE SKIP LOCKED, so concurrent confirmations at one bank take
+ * different units instead of waiting on each other. All methods run in the
+ * caller's transaction.
+ */
+@Service
+public class UnitAllocator {
+
+    private static final Logger log = LoggerFactory.getLogger(UnitAllocator.class);
+
+    // Packed red cells carry little donor plasma and follow red-cell ABO/Rh
+    // compatibility; every other component, whole blood included, must be identical
+    private static final Set<BloodComponent> CROSS_MATCHED_COMPONENTS = EnumSet.of(
+            BloodComponent.PRBC, BloodComponent.PRBC_SAGM);
+
+    // Allocated when a reservation names no component
+    private static final Set<BloodComponent> DEFAULT_COMPONENTS = EnumSet.of(
+            BloodComponent.WHOLE_BLOOD, BloodComponent.PRBC, BloodComponent.PRBC_SAGM);
+
+    private static final String UNIT_COLUMNS = "id, unit_number, blood_type, component, expiry_date, status";
+
+    // Exact blood type first, then other compatible types; soonest expiry first within each
+    private static final String ALLOCATE_SQL = "WITH picked AS (" +
+            "SELECT id FROM blood_units WHERE blood_bank_id = ? AND status = 'AVAILABLE' AND expiry_date >= ? " +
+            "AND (%s) " +
+            "ORDER BY (blood_type = ?) DESC, expiry_date, id LIMIT ? FOR UPDATE SKIP LOCKED) " +
+            "UPDATE blood_units bu SET status = 'RESERVED', reservation_id = ?, version = version + 1, " +
+            "updated_at = LOCALTIMESTAMP FROM picked WHERE bu.id = picked.id RETURNING " + UNIT_COLUMNS;
+
+    // Units that expired while held go straight to EXPIRED
+    private static final String RELEASE_SQL = "UPDATE blood_units SET reservation_id = NULL, " +
+            "status = CASE WHEN expiry_date < ? THEN 'EXPIRED' ELSE 'AVAILABLE' END, version = version + 1, " +
+            "updated_at = LOCALTIMESTAMP WHERE reservation_id = ? AND status = 'RESERVED' RETURNING " + UNIT_COLUMNS;
+
+    private static final String ISSUE_SQL = "UPDATE blood_units SET status = 'USED', version = version + 1, " +
+            "updated_at = LOCALTIMESTAMP WHERE reservation_id = ? AND status = 'RESERVED' RETURNING " + UNIT_COLUMNS;
+
+    private static final String FIND_SQL = "SELECT " + UNIT_COLUMNS + " FROM blood_units " +
+            "WHERE reservation_id = ? ORDER BY expiry_date, id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UnitStockCounters unitStockCounters;
+    private final UnitExpiryWheel unitExpiryWheel;
+
+    public UnitAllocator(JdbcTemplate jdbcTemplate,
+            UnitStockCounters unitStockCounters,
+            UnitExpiryWheel unitExpiryWheel) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.unitStockCounters = unitStockCounters;
+        this.unitExpiryWheel = unitExpiryWheel;
+    }
+
+    /**
+     * One unit allocated to a reservation
+     */
+    public record AllocatedUnit(Long id, String unitNumber, String bloodType, BloodComponent component,
+            LocalDate expiryDate, UnitStatus status) {
+    }
+
+    /**
+     * Reserve units until the reservation holds or was issued unitsNeeded of them;
+     * returns the units newly reserved. Falls short, with a warning, when the bank
+     * has too few.
+     */
+    public List<AllocatedUnit> allocate(Reservation reservation) {
+        Long bankId = reservation.getBloodBank().getId();
+        // Issued units still carry the reservation and count as allocated
+        int held = (int) getAllocatedUnits(reservation.getId()).stream()
+                .filter(u -> u.status() == UnitStatus.RESERVED || u.status() == UnitStatus.USED)
+                .count();
+        int needed = reservation.getUnitsNeeded() - held;
+        List<Object> filterArgs = new ArrayList<>();
+        String filter = eligibleUnits(reservation, filterArgs);
+        if (needed <= 0 || filter == null) {
+            return List.of();
+        }
+
+        List<Object> args = new ArrayList<>();
+        args.add(bankId);
+        args.add(Date.valueOf(LocalDate.now()));
+        args.addAll(filterArgs);
+        args.add(reservation.getBloodType());
+        args.add(needed);
+        args.add(reservation.getId());
+        String sql = String.format(ALLOCATE_SQL, filter);
+        List<AllocatedUnit> units = jdbcTemplate.query(sql, this::mapUnit, args.toArray());
+
+        for (AllocatedUnit unit : units) {
+            unitStockCounters.onBulkStatusChange(bankId, unit.bloodType(), unit.component(),
+                    UnitStatus.AVAILABLE, UnitStatus.RESERVED, 1);
+            unitExpiryWheel.onUnavailable(bankId, unit.id());
+        }
+        if (units.size() < needed) {
+            log.warn("Reservation {}: allocated {} of {} units of {} at bank {}", reservation.getId(),
+                    held + units.size(), reservation.getUnitsNeeded(), reservation.getBloodType(), bankId);
+        } else {
+            log.info("Reservation {}: allocated {} units at bank {}", reservation.getId(), units.size(), bankId);
+        }
+        return sortedByExpiry(units);
+    }
+
+    /**
+     * Return the reservation's held units to stock; returns how many were released
+     */
+    public int release(Reservation reservation) {
+        Long bankId = reservation.getBloodBank().getId();
+        List<AllocatedUnit> units = jdbcTemplate.query(RELEASE_SQL, this::mapUnit,
+                Date.valueOf(LocalDate.now()), reservation.getId());
+        for (AllocatedUnit unit : units) {
+            unitStockCounters.onBulkStatusChange(bankId, unit.bloodType(), unit.component(),
+                    UnitStatus.RESERVED, unit.status(), 1);
+            if (unit.status() == UnitStatus.AVAILABLE) {
+                unitExpiryWheel.onAvailable(bankId, unit.id(), unit.bloodType(), unit.component(),
+                        unit.expiryDate());
+            }
+        }
+        if (!units.isEmpty()) {
+            log.info("Reservation {}: released {} units at bank {}", reservation.getId(), units.size(), bankId);
+        }
+        return units.size();
+    }
+
+    /**
+     * Mark the reservation's held units as issued (USED); returns how many were issued
+     */
+    public int issue(Reservation reservation) {
+        Long bankId = reservation.getBloodBank().getId();
+        List<AllocatedUnit> units = jdbcTemplate.query(ISSUE_SQL, this::mapUnit, reservation.getId());
+        for (AllocatedUnit unit : units) {
+            unitStockCounters.onBulkStatusChange(bankId, unit.bloodType(), unit.component(),
+                    UnitStatus.RESERVED, UnitStatus.USED, 1);
+        }
+        return units.size();
+    }
+
+    /**
+     * Units held by or issued to a reservation, soonest expiry first
+     */
+    public List<AllocatedUnit> getAllocatedUnits(Long reservationId) {
+        return jdbcTemplate.query(FIND_SQL, this::mapUnit, reservationId);
+    }
+
+    /**
+     * SQL condition on component and blood_type for the units a reservation may
+     * take, adding its arguments to args; null when no unit qualifies
+     */
+    private static String eligibleUnits(Reservation reservation, List<Object> args) {
+        Set<BloodComponent> components = reservation.getComponent() != null
+                ? EnumSet.of(reservation.getComponent()) : DEFAULT_COMPONENTS;
+        List<String> crossMatched = new ArrayList<>();
+        List<String> identical = new ArrayList<>();
+        for (BloodComponent component : components) {
+            (CROSS_MATCHED_COMPONENTS.contains(component) ? crossMatched : identical).add(component.name());
+        }
+
+        List<String> conditions = new ArrayList<>();
+        List<String> donorTypes = BloodCompatibility.compatibleDonorTypes(reservation.getBloodType());
+        if (!crossMatched.isEmpty() && !donorTypes.isEmpty()) {
+            conditions.add("(component IN (" + placeholders(crossMatched.size()) + ") AND blood_type IN ("
+                    + placeholders(donorTypes.size()) + "))");
+            args.addAll(crossMatched);
+            args.addAll(donorTypes);
+        }
+        if (!identical.isEmpty() && !donorTypes.isEmpty()) {
+            // The recipient's own type comes first
+            conditions.add("(component IN (" + placeholders(identical.size()) + ") AND blood_type = ?)");
+            args.addAll(identical);
+            args.add(donorTypes.get(0));
+        }
+        return conditions.isEmpty() ? null : String.join(" OR ", conditions);
+    }
+
+    private static List<AllocatedUnit> sortedByExpiry(List<AllocatedUnit> units) {
+        List<AllocatedUnit> sorted = new ArrayList<>(units);
+        sorted.sort(Comparator.comparing(AllocatedUnit::expiryDate).thenComparing(AllocatedUnit::id));
+        return sorted;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private AllocatedUnit mapUnit(ResultSet rs, int rowNum) throws SQLException {
+        return new AllocatedUnit(
+                rs.getLong("id"),
+                rs.getString("unit_number"),
+                rs.getString("blood_type"),
+                BloodComponent.valueOf(rs.getString("component")),
+                rs.getDate("expiry_date").toLocalDate(),
+                UnitStatus.valueOf(rs.getString("status")));
+    }
+}
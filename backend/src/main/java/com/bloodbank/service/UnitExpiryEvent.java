@@ -0,0 +1,11 @@
+package com.bloodbank.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Published when available units of a bank come within an alert threshold of
+ * expiry (hoursLeft is the threshold crossed, expiresAt the end of their expiry day).
+ */
+public record UnitExpiryEvent(Long bankId, int hoursLeft, LocalDateTime expiresAt, List<Long> unitIds) {
+}
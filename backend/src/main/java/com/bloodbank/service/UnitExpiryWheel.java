@@ -0,0 +1,399 @@
+package com.bloodbank.service;
+
+import com.bloodbank.dto.ExpiryHistogram;
+import com.bloodbank.entity.BloodUnit;
+import com.bloodbank.entity.BloodUnit.BloodComponent;
+import com.bloodbank.entity.BloodUnit.UnitStatus;
+import com.bloodbank.repository.BloodUnitRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel over the expiry instant of every available unit, one
+ * wheel per bank. Ticks are wall-clock hours; level 0 has a slot per hour of the
+ * current day, level 1 a slot per day of the current 64-day block, level 2 a slot
+ * per block, and anything further out waits in an overflow set. Timers cascade
+ * down a level when the wheel crosses the matching boundary.
+ *
+ * "Expiring within N hours" reads only the slots that cover the window, and a
+ * {@link UnitExpiryEvent} is published when units reach an alert threshold.
+ */
+@Component
+public class UnitExpiryWheel {
+
+    private static final Logger log = LoggerFactory.getLogger(UnitExpiryWheel.class);
+
+    private static final int HOUR_SLOTS = 24;
+    private static final int DAY_SLOTS = 64;
+    private static final int BLOCK_SLOTS = 64;
+    private static final long DAY_HOURS = HOUR_SLOTS;
+    private static final long BLOCK_HOURS = DAY_HOURS * DAY_SLOTS;
+    private static final long EPOCH_HOURS = BLOCK_HOURS * BLOCK_SLOTS;
+
+    private final BloodUnitRepository bloodUnitRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int[] alertHours;
+    private final Clock clock;
+    private final Map<Long, BankWheel> banks = new ConcurrentHashMap<>();
+
+    @Autowired
+    public UnitExpiryWheel(BloodUnitRepository bloodUnitRepository,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${units.expiry.alert-hours:72,24}") int[] alertHours) {
+        this(bloodUnitRepository, eventPublisher, alertHours, Clock.systemDefaultZone());
+    }
+
+    // Tests drive the wheel with their own clock
+    UnitExpiryWheel(BloodUnitRepository bloodUnitRepository, ApplicationEventPublisher eventPublisher,
+            int[] alertHours, Clock clock) {
+        this.bloodUnitRepository = bloodUnitRepository;
+        this.eventPublisher = eventPublisher;
+        this.alertHours = alertHours;
+        this.clock = clock;
+    }
+
+    private static final class Timer {
+        final Long unitId;
+        final String bloodType;
+        final BloodComponent component;
+        final long tick;
+        Set<Timer> slot;
+
+        Timer(Long unitId, String bloodType, BloodComponent component, long tick) {
+            this.unitId = unitId;
+            this.bloodType = bloodType;
+            this.component = component;
+            this.tick = tick;
+        }
+    }
+
+    private static final class BankWheel {
+        final List<Set<Timer>> hours = slots(HOUR_SLOTS);
+        final List<Set<Timer>> days = slots(DAY_SLOTS);
+        final List<Set<Timer>> blocks = slots(BLOCK_SLOTS);
+        final Set<Timer> overflow = new HashSet<>();
+        final Map<Long, Timer> timers = new HashMap<>();
+        // Hour tick the wheel has advanced to; every timer is later than this
+        long current;
+
+        BankWheel(long current) {
+            this.current = current;
+        }
+    }
+
+    /**
+     * Load every available unit that has not yet expired
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long now = tickOf(LocalDateTime.now(clock));
+        Map<Long, BankWheel> loaded = new HashMap<>();
+        int count = 0;
+        for (Object[] row : bloodUnitRepository.findAvailableExpiries()) {
+            if (row[4] == null) {
+                continue;
+            }
+            long tick = expiryTick((LocalDate) row[4]);
+            if (tick <= now) {
+                continue;
+            }
+            BankWheel wheel = loaded.computeIfAbsent(((Number) row[1]).longValue(), id -> new BankWheel(now));
+            add(wheel, new Timer(((Number) row[0]).longValue(), (String) row[2], (BloodComponent) row[3], tick));
+            count++;
+        }
+        banks.clear();
+        banks.putAll(loaded);
+        log.info("Unit expiry wheel loaded: {} units across {} blood banks", count, loaded.size());
+    }
+
+    /**
+     * Scheduled job: advance every wheel to the current hour, dropping expired
+     * timers and publishing threshold crossings
+     */
+    @Scheduled(fixedDelayString = "${units.expiry.wheel-tick-ms:60000}")
+    public void advance() {
+        long now = tickOf(LocalDateTime.now(clock));
+        for (Map.Entry<Long, BankWheel> bank : banks.entrySet()) {
+            List<UnitExpiryEvent> events = new ArrayList<>();
+            BankWheel wheel = bank.getValue();
+            synchronized (wheel) {
+                advanceTo(bank.getKey(), wheel, now, events);
+            }
+            // Published outside the lock; listeners may do I/O
+            for (UnitExpiryEvent event : events) {
+                log.info("{} units at bank {} expire within {} hours", event.unitIds().size(), event.bankId(),
+                        event.hoursLeft());
+                eventPublisher.publishEvent(event);
+            }
+        }
+    }
+
+    // ==================== CHANGES ====================
+
+    public void onCreated(BloodUnit unit) {
+        if (unit.getStatus() == UnitStatus.AVAILABLE) {
+            schedule(unit);
+        }
+    }
+
+    public void onStatusChange(BloodUnit unit, UnitStatus from, UnitStatus to) {
+        if (from == to) {
+            return;
+        }
+        if (to == UnitStatus.AVAILABLE) {
+            schedule(unit);
+        } else if (from == UnitStatus.AVAILABLE) {
+            cancel(unit);
+        }
+    }
+
+    public void onDeleted(BloodUnit unit) {
+        cancel(unit);
+    }
+
+    /**
+     * A unit became available, for set-based updates that carry no entity
+     */
+    public void onAvailable(Long bankId, Long unitId, String bloodType, BloodComponent component,
+            LocalDate expiryDate) {
+        if (unitId == null || expiryDate == null) {
+            return;
+        }
+        Timer timer = new Timer(unitId, bloodType, component, expiryTick(expiryDate));
+        TransactionHooks.afterCommit(() -> {
+            BankWheel wheel = banks.computeIfAbsent(bankId, id -> new BankWheel(tickOf(LocalDateTime.now(clock))));
+            synchronized (wheel) {
+                remove(wheel, timer.unitId);
+                if (timer.tick > wheel.current) {
+                    add(wheel, timer);
+                }
+            }
+        });
+    }
+
+    /**
+     * A unit stopped being available, for set-based updates that carry no entity
+     */
+    public void onUnavailable(Long bankId, Long unitId) {
+        TransactionHooks.afterCommit(() -> {
+            BankWheel wheel = banks.get(bankId);
+            if (wheel != null) {
+                synchronized (wheel) {
+                    remove(wheel, unitId);
+                }
+            }
+        });
+    }
+
+    public void removeBank(Long bankId) {
+        TransactionHooks.afterCommit(() -> banks.remove(bankId));
+    }
+
+    // ==================== READS ====================
+
+    /**
+     * Ids of available units expiring within the next hours, soonest first
+     */
+    public List<Long> unitsExpiringWithin(Long bankId, int hours) {
+        return unitsExpiringBefore(bankId, LocalDateTime.now(clock).plusHours(hours));
+    }
+
+    /**
+     * Ids of available units expiring at or before the given instant, soonest first
+     */
+    public List<Long> unitsExpiringBefore(Long bankId, LocalDateTime until) {
+        List<Timer> found = new ArrayList<>();
+        read(bankId, until, found::add);
+        found.sort(Comparator.comparingLong((Timer t) -> t.tick).thenComparing(t -> t.unitId));
+        List<Long> ids = new ArrayList<>(found.size());
+        for (Timer timer : found) {
+            ids.add(timer.unitId);
+        }
+        return ids;
+    }
+
+    /**
+     * Days-to-expiry x component x blood type counts of available units expiring
+     * within the given days of today, built in one pass over the covering slots
+     */
+    public ExpiryHistogram histogram(Long bankId, LocalDate today, int days) {
+        ExpiryHistogram histogram = new ExpiryHistogram(BloodTypes.all(), days);
+        long firstDay = today.toEpochDay();
+        read(bankId, today.plusDays(days + 1L).atStartOfDay(), timer -> {
+            int type = BloodTypes.indexOf(timer.bloodType);
+            // A timer fires at the midnight that ends its expiry date
+            long daysLeft = timer.tick / DAY_HOURS - 1 - firstDay;
+            if (type >= 0 && timer.component != null && daysLeft >= 0 && daysLeft <= days) {
+                histogram.add((int) daysLeft, timer.component, type);
+            }
+        });
+        return histogram;
+    }
+
+    // ==================== INTERNALS ====================
+
+    private void schedule(BloodUnit unit) {
+        onAvailable(unit.getBloodBank().getId(), unit.getId(), unit.getBloodType(), unit.getComponent(),
+                unit.getExpiryDate());
+    }
+
+    private void cancel(BloodUnit unit) {
+        onUnavailable(unit.getBloodBank().getId(), unit.getId());
+    }
+
+    private void read(Long bankId, LocalDateTime until, Consumer<Timer> sink) {
+        BankWheel wheel = banks.get(bankId);
+        if (wheel == null) {
+            return;
+        }
+        long limit = tickOf(until);
+        synchronized (wheel) {
+            long cur = wheel.current;
+            // Level 0: each slot holds exactly one hour of the current day
+            long dayEnd = Math.min(limit, endOf(cur, DAY_HOURS));
+            for (long tick = cur + 1; tick <= dayEnd; tick++) {
+                drain(wheel.hours.get((int) (tick % HOUR_SLOTS)), Long.MAX_VALUE, sink);
+            }
+            // Level 1: one slot per later day of the current block
+            long lastDay = Math.min(limit, endOf(cur, BLOCK_HOURS)) / DAY_HOURS;
+            for (long day = cur / DAY_HOURS + 1; day <= lastDay; day++) {
+                drain(wheel.days.get((int) (day % DAY_SLOTS)), limit, sink);
+            }
+            // Level 2: one slot per later block of the current epoch
+            long lastBlock = Math.min(limit, endOf(cur, EPOCH_HOURS)) / BLOCK_HOURS;
+            for (long block = cur / BLOCK_HOURS + 1; block <= lastBlock; block++) {
+                drain(wheel.blocks.get((int) (block % BLOCK_SLOTS)), limit, sink);
+            }
+            if (limit > endOf(cur, EPOCH_HOURS)) {
+                drain(wheel.overflow, limit, sink);
+            }
+        }
+    }
+
+    private void advanceTo(Long bankId, BankWheel wheel, long now, List<UnitExpiryEvent> events) {
+        while (wheel.current < now) {
+            long tick = ++wheel.current;
+            if (tick % EPOCH_HOURS == 0) {
+                cascade(wheel, wheel.overflow);
+            }
+            if (tick % BLOCK_HOURS == 0) {
+                cascade(wheel, wheel.blocks.get((int) ((tick / BLOCK_HOURS) % BLOCK_SLOTS)));
+            }
+            if (tick % DAY_HOURS == 0) {
+                cascade(wheel, wheel.days.get((int) ((tick / DAY_HOURS) % DAY_SLOTS)));
+            }
+
+            // Units whose expiry instant is this hour are expired; the sweeper updates their rows
+            Set<Timer> due = wheel.hours.get((int) (tick % HOUR_SLOTS));
+            for (Timer timer : due) {
+                wheel.timers.remove(timer.unitId);
+            }
+            due.clear();
+
+            for (int hours : alertHours) {
+                List<Long> crossing = new ArrayList<>();
+                long target = tick + hours;
+                for (Timer timer : slotFor(wheel, target)) {
+                    if (timer.tick == target) {
+                        crossing.add(timer.unitId);
+                    }
+                }
+                if (!crossing.isEmpty()) {
+                    Collections.sort(crossing);
+                    events.add(new UnitExpiryEvent(bankId, hours, dateTimeOf(target), crossing));
+                }
+            }
+        }
+    }
+
+    private static void cascade(BankWheel wheel, Set<Timer> slot) {
+        if (slot.isEmpty()) {
+            return;
+        }
+        List<Timer> moving = new ArrayList<>(slot);
+        slot.clear();
+        for (Timer timer : moving) {
+            timer.slot = null;
+            add(wheel, timer);
+        }
+    }
+
+    private static void add(BankWheel wheel, Timer timer) {
+        Set<Timer> slot = slotFor(wheel, timer.tick);
+        slot.add(timer);
+        timer.slot = slot;
+        wheel.timers.put(timer.unitId, timer);
+    }
+
+    private static void remove(BankWheel wheel, Long unitId) {
+        Timer timer = wheel.timers.remove(unitId);
+        if (timer != null && timer.slot != null) {
+            timer.slot.remove(timer);
+        }
+    }
+
+    // The slot a timer for this tick lives in, given how far the wheel has advanced
+    private static Set<Timer> slotFor(BankWheel wheel, long tick) {
+        long cur = wheel.current;
+        if (tick / DAY_HOURS == cur / DAY_HOURS) {
+            return wheel.hours.get((int) (tick % HOUR_SLOTS));
+        }
+        if (tick / BLOCK_HOURS == cur / BLOCK_HOURS) {
+            return wheel.days.get((int) ((tick / DAY_HOURS) % DAY_SLOTS));
+        }
+        if (tick / EPOCH_HOURS == cur / EPOCH_HOURS) {
+            return wheel.blocks.get((int) ((tick / BLOCK_HOURS) % BLOCK_SLOTS));
+        }
+        return wheel.overflow;
+    }
+
+    private static void drain(Set<Timer> slot, long limit, Consumer<Timer> sink) {
+        for (Timer timer : slot) {
+            if (timer.tick <= limit) {
+                sink.accept(timer);
+            }
+        }
+    }
+
+    // Last tick of the span (day, block or epoch) containing tick
+    private static long endOf(long tick, long span) {
+        return (tick / span + 1) * span - 1;
+    }
+
+    // Ticks count wall-clock hours, so day slots line up with calendar dates
+    private static long tickOf(LocalDateTime at) {
+        return Math.floorDiv(at.toEpochSecond(ZoneOffset.UTC), 3600);
+    }
+
+    private static LocalDateTime dateTimeOf(long tick) {
+        return LocalDateTime.ofEpochSecond(tick * 3600, 0, ZoneOffset.UTC);
+    }
+
+    // A unit expires at the end of its expiry day
+    private static long expiryTick(LocalDate expiryDate) {
+        return tickOf(expiryDate.plusDays(1).atStartOfDay());
+    }
+
+    private static List<Set<Timer>> slots(int count) {
+        List<Set<Timer>> slots = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            slots.add(new HashSet<>());
+        }
+        return slots;
+    }
+}
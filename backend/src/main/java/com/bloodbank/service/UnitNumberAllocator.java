@@ -0,0 +1,114 @@
+package com.bloodbank.service;
+
+import com.bloodbank.repository.BloodBankRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Hands out blood unit numbers as PREFIX + YY + 6-digit serial (ISBT 128 style:
+ * facility code, year, sequence). Serials come from a database sequence in hi/lo
+ * blocks: one nextval reserves blockSize serials that are then handed out from an
+ * AtomicLong, so numbering is collision-free across threads and nodes and needs no
+ * query until the block runs out.
+ */
+@Component
+public class UnitNumberAllocator {
+
+    private static final Logger log = LoggerFactory.getLogger(UnitNumberAllocator.class);
+
+    private static final String SEQUENCE = "blood_unit_number_seq";
+    private static final Pattern PREFIX_PATTERN = Pattern.compile("^[A-Z0-9]{1,8}$");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BloodBankRepository bloodBankRepository;
+    // Must be the same on every node sharing the database
+    private final int blockSize;
+
+    // bankId -> prefix, filled lazily
+    private final Map<Long, String> prefixes = new ConcurrentHashMap<>();
+    private volatile Block block = new Block(0, 0);
+
+    public UnitNumberAllocator(JdbcTemplate jdbcTemplate,
+            BloodBankRepository bloodBankRepository,
+            @Value("${units.number.block-size:100}") int blockSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.bloodBankRepository = bloodBankRepository;
+        this.blockSize = Math.max(1, blockSize);
+    }
+
+    /**
+     * Serials [next, end) reserved by one nextval
+     */
+    private static final class Block {
+        final AtomicLong next;
+        final long end;
+
+        Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+
+    @PostConstruct
+    void createSequence() {
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS " + SEQUENCE);
+    }
+
+    public static boolean isValidPrefix(String prefix) {
+        return prefix != null && PREFIX_PATTERN.matcher(prefix).matches();
+    }
+
+    /**
+     * Next unit number for a bank
+     */
+    public String next(Long bankId) {
+        int year = LocalDate.now().getYear() % 100;
+        return String.format("%s%02d%06d", prefixOf(bankId), year, nextSerial());
+    }
+
+    /**
+     * Use a new prefix for the bank once the current transaction commits
+     */
+    public void setPrefix(Long bankId, String prefix) {
+        TransactionHooks.afterCommit(() -> prefixes.put(bankId, prefix != null ? prefix : defaultPrefix(bankId)));
+    }
+
+    public String prefixOf(Long bankId) {
+        return prefixes.computeIfAbsent(bankId, id -> bloodBankRepository.findById(id)
+                .map(bank -> bank.getUnitPrefix())
+                .filter(UnitNumberAllocator::isValidPrefix)
+                .orElse(defaultPrefix(id)));
+    }
+
+    long nextSerial() {
+        while (true) {
+            Block current = block;
+            long serial = current.next.getAndIncrement();
+            if (serial < current.end) {
+                return serial;
+            }
+            synchronized (this) {
+                // Only one thread refills; the others retry against the new block
+                if (block == current) {
+                    long hi = jdbcTemplate.queryForObject("SELECT nextval('" + SEQUENCE + "')", Long.class);
+                    block = new Block(hi * blockSize, (hi + 1) * blockSize);
+                    log.debug("Reserved unit serials {}..{}", hi * blockSize, (hi + 1) * blockSize - 1);
+                }
+            }
+        }
+    }
+
+    private static String defaultPrefix(Long bankId) {
+        return String.format("B%04d", bankId);
+    }
+}
@@ -0,0 +1,99 @@
+package com.bloodbank.service;
+
+import com.bloodbank.entity.BloodUnit.UnitStatus;
+import com.bloodbank.service.UnitStateMachine.TransitionResult;
+import com.bloodbank.service.UnitStateMachine.UnitState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Bulk barcode scans: resolves many unit numbers in one query and applies a target
+ * status to all of them through the unit state machine. Every scanned number gets
+ * an outcome, so scanner UIs can flag problem labels.
+ */
+@Service
+public class UnitScanService {
+
+    private static final Logger log = LoggerFactory.getLogger(UnitScanService.class);
+
+    public static final int MAX_SCAN_SIZE = 1000;
+
+    public static final String FOUND = "FOUND";
+    public static final String NOT_FOUND = UnitStateMachine.NOT_FOUND;
+
+    private final UnitStateMachine unitStateMachine;
+
+    public UnitScanService(UnitStateMachine unitStateMachine) {
+        this.unitStateMachine = unitStateMachine;
+    }
+
+    /**
+     * Outcome for one scanned unit number
+     */
+    public record ScanResult(String unitNumber, String outcome, Long unitId, String bloodType, String component,
+            LocalDate expiryDate, String previousStatus, String status) {
+    }
+
+    /**
+     * Resolve scanned unit numbers of a bank and, when target is given, move them to it.
+     * Results follow scan order; duplicate scans are reported once.
+     */
+    @Transactional
+    public List<ScanResult> scan(Long bankId, List<String> unitNumbers, UnitStatus target) {
+        Set<String> numbers = new LinkedHashSet<>();
+        for (String number : unitNumbers) {
+            if (number != null && !number.isBlank()) {
+                numbers.add(number.trim());
+            }
+        }
+        if (numbers.size() > MAX_SCAN_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_SCAN_SIZE + " unit numbers per scan");
+        }
+        if (numbers.isEmpty()) {
+            return List.of();
+        }
+
+        Map<String, UnitState> found = new HashMap<>();
+        for (UnitState state : unitStateMachine.findByUnitNumbers(bankId, numbers)) {
+            found.put(state.unitNumber(), state);
+        }
+        List<UnitState> states = new ArrayList<>(found.size());
+        for (String number : numbers) {
+            if (found.containsKey(number)) {
+                states.add(found.get(number));
+            }
+        }
+
+        Map<Long, TransitionResult> transitions = new HashMap<>();
+        if (target != null) {
+            int updated = 0;
+            for (TransitionResult result : unitStateMachine.apply(bankId, states, target)) {
+                transitions.put(result.unitId(), result);
+                if (UnitStateMachine.UPDATED.equals(result.outcome())) {
+                    updated++;
+                }
+            }
+            log.info("Scan at bank {}: {} of {} units moved to {}", bankId, updated, numbers.size(), target);
+        }
+
+        List<ScanResult> results = new ArrayList<>(numbers.size());
+        for (String number : numbers) {
+            UnitState state = found.get(number);
+            if (state == null) {
+                results.add(new ScanResult(number, NOT_FOUND, null, null, null, null, null, null));
+                continue;
+            }
+            TransitionResult transition = transitions.get(state.id());
+            String outcome = transition != null ? transition.outcome() : FOUND;
+            UnitStatus status = transition != null ? transition.status() : state.status();
+            results.add(new ScanResult(number, outcome, state.id(), state.bloodType(), state.component().name(),
+                    state.expiryDate(), state.status().name(), status.name()));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,248 @@
+package com.bloodbank.service;
+
+import com.bloodbank.entity.BloodUnit;
+import com.bloodbank.entity.BloodUnit.BloodComponent;
+import com.bloodbank.entity.BloodUnit.UnitStatus;
+import com.bloodbank.repository.BloodUnitRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Blood unit status transitions. Allowed moves come from a fixed transition table,
+ * and each move is a conditional UPDATE on id, version and status, so of two
+ * concurrent changes to one unit exactly one wins and the other is reported as
+ * CONFLICT, without row locks held across the request. Units allocated to a
+ * reservation are left to the reservation's status changes (UnitAllocator), so
+ * they are reported as ALLOCATED instead of being moved by hand.
+ */
+@Service
+public class UnitStateMachine {
+
+    private static final Logger log = LoggerFactory.getLogger(UnitStateMachine.class);
+
+    public static final int MAX_TRANSITION_SIZE = 1000;
+
+    public static final String UPDATED = "UPDATED";
+    public static final String UNCHANGED = "UNCHANGED";
+    public static final String NOT_FOUND = "NOT_FOUND";
+    public static final String INVALID = "INVALID";
+    public static final String EXPIRED = "EXPIRED";
+    public static final String CONFLICT = "CONFLICT";
+    public static final String ALLOCATED = "ALLOCATED";
+
+    private static final Map<UnitStatus, Set<UnitStatus>> TRANSITIONS = new EnumMap<>(UnitStatus.class);
+
+    static {
+        TRANSITIONS.put(UnitStatus.AVAILABLE, EnumSet.of(
+                UnitStatus.RESERVED, UnitStatus.USED, UnitStatus.EXPIRED, UnitStatus.DISCARDED));
+        TRANSITIONS.put(UnitStatus.RESERVED, EnumSet.of(
+                UnitStatus.AVAILABLE, UnitStatus.USED, UnitStatus.EXPIRED, UnitStatus.DISCARDED));
+        TRANSITIONS.put(UnitStatus.EXPIRED, EnumSet.of(UnitStatus.DISCARDED));
+        // USED and DISCARDED are final
+        TRANSITIONS.put(UnitStatus.USED, EnumSet.noneOf(UnitStatus.class));
+        TRANSITIONS.put(UnitStatus.DISCARDED, EnumSet.noneOf(UnitStatus.class));
+    }
+
+    // Update count 0 means the unit changed since it was read
+    private static final String TRANSITION_SQL = "UPDATE blood_units SET status = ?, version = version + 1, " +
+            "updated_at = LOCALTIMESTAMP WHERE id = ? AND version = ? AND status = ?";
+
+    private static final int UPDATE_BATCH_SIZE = 500;
+
+    private final BloodUnitRepository bloodUnitRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final UnitStockCounters unitStockCounters;
+    private final UnitExpiryWheel unitExpiryWheel;
+
+    public UnitStateMachine(BloodUnitRepository bloodUnitRepository,
+            JdbcTemplate jdbcTemplate,
+            UnitStockCounters unitStockCounters,
+            UnitExpiryWheel unitExpiryWheel) {
+        this.bloodUnitRepository = bloodUnitRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.unitStockCounters = unitStockCounters;
+        this.unitExpiryWheel = unitExpiryWheel;
+    }
+
+    /**
+     * The columns of a unit a transition is checked against
+     */
+    public record UnitState(Long id, String unitNumber, String bloodType, BloodComponent component,
+            LocalDate expiryDate, UnitStatus status, Long version, Long reservationId) {
+
+        static UnitState fromRow(Object[] row) {
+            return new UnitState(((Number) row[0]).longValue(), (String) row[1], (String) row[2],
+                    (BloodComponent) row[3], (LocalDate) row[4], (UnitStatus) row[5],
+                    row[6] != null ? ((Number) row[6]).longValue() : 0L,
+                    row[7] != null ? ((Number) row[7]).longValue() : null);
+        }
+    }
+
+    /**
+     * Outcome of one requested transition; version is the unit's version afterwards
+     */
+    public record TransitionResult(Long unitId, String outcome, UnitStatus previousStatus, UnitStatus status,
+            Long version) {
+    }
+
+    public static boolean canTransition(UnitStatus from, UnitStatus to) {
+        return TRANSITIONS.getOrDefault(from, Set.of()).contains(to);
+    }
+
+    public static Set<UnitStatus> allowedTargets(UnitStatus from) {
+        return Collections.unmodifiableSet(TRANSITIONS.getOrDefault(from, Set.of()));
+    }
+
+    public List<UnitState> findByIds(Long bankId, Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return bloodUnitRepository.findStatesById(bankId, ids).stream().map(UnitState::fromRow).toList();
+    }
+
+    public List<UnitState> findByUnitNumbers(Long bankId, Collection<String> unitNumbers) {
+        if (unitNumbers.isEmpty()) {
+            return List.of();
+        }
+        return bloodUnitRepository.findStatesByUnitNumber(bankId, unitNumbers).stream()
+                .map(UnitState::fromRow)
+                .toList();
+    }
+
+    /**
+     * Move one unit of a bank to target. When expectedVersion is given the move only
+     * happens if the unit is still at that version.
+     */
+    @Transactional
+    public TransitionResult transition(Long bankId, Long unitId, UnitStatus target, Long expectedVersion) {
+        List<UnitState> states = findByIds(bankId, List.of(unitId));
+        if (states.isEmpty()) {
+            return new TransitionResult(unitId, NOT_FOUND, null, null, null);
+        }
+        UnitState state = states.get(0);
+        if (expectedVersion != null && !expectedVersion.equals(state.version())) {
+            return new TransitionResult(unitId, CONFLICT, state.status(), state.status(), state.version());
+        }
+        return apply(bankId, states, target).get(0);
+    }
+
+    /**
+     * Move many units of a bank to target; results follow the order of ids, with
+     * duplicates reported once
+     */
+    @Transactional
+    public List<TransitionResult> transitionAll(Long bankId, List<Long> unitIds, UnitStatus target) {
+        Set<Long> ids = new LinkedHashSet<>();
+        for (Long id : unitIds) {
+            if (id != null) {
+                ids.add(id);
+            }
+        }
+        if (ids.size() > MAX_TRANSITION_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_TRANSITION_SIZE + " units per transition");
+        }
+        Map<Long, UnitState> found = new HashMap<>();
+        for (UnitState state : findByIds(bankId, ids)) {
+            found.put(state.id(), state);
+        }
+
+        List<UnitState> present = new ArrayList<>();
+        for (Long id : ids) {
+            if (found.containsKey(id)) {
+                present.add(found.get(id));
+            }
+        }
+        Map<Long, TransitionResult> applied = new HashMap<>();
+        for (TransitionResult result : apply(bankId, present, target)) {
+            applied.put(result.unitId(), result);
+        }
+
+        List<TransitionResult> results = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            TransitionResult result = applied.get(id);
+            results.add(result != null ? result : new TransitionResult(id, NOT_FOUND, null, null, null));
+        }
+        return results;
+    }
+
+    /**
+     * Check each unit against the transition table and move the eligible ones in one
+     * JDBC batch of conditional UPDATEs. Must run inside a transaction; in-memory
+     * stock counters and the expiry wheel follow on commit.
+     */
+    public List<TransitionResult> apply(Long bankId, List<UnitState> states, UnitStatus target) {
+        TransitionResult[] results = new TransitionResult[states.size()];
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < states.size(); i++) {
+            UnitState state = states.get(i);
+            String outcome = null;
+            if (state.status() == target) {
+                outcome = UNCHANGED;
+            } else if (state.reservationId() != null) {
+                outcome = ALLOCATED;
+            } else if (!canTransition(state.status(), target)) {
+                outcome = INVALID;
+            } else if (BloodUnit.isExpired(state.expiryDate()) && target != UnitStatus.EXPIRED
+                    && target != UnitStatus.DISCARDED) {
+                // An expired unit can only be marked expired or discarded
+                outcome = EXPIRED;
+            }
+            if (outcome != null) {
+                results[i] = new TransitionResult(state.id(), outcome, state.status(), state.status(),
+                        state.version());
+            } else {
+                pending.add(i);
+            }
+        }
+        if (pending.isEmpty()) {
+            return Arrays.asList(results);
+        }
+
+        int[][] counts = jdbcTemplate.batchUpdate(TRANSITION_SQL, pending, UPDATE_BATCH_SIZE, (ps, i) -> {
+            UnitState state = states.get(i);
+            ps.setString(1, target.name());
+            ps.setLong(2, state.id());
+            ps.setLong(3, state.version());
+            ps.setString(4, state.status().name());
+        });
+
+        int updated = 0;
+        int next = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                int i = pending.get(next++);
+                UnitState state = states.get(i);
+                if (count == 0) {
+                    results[i] = new TransitionResult(state.id(), CONFLICT, state.status(), state.status(),
+                            state.version());
+                    continue;
+                }
+                results[i] = new TransitionResult(state.id(), UPDATED, state.status(), target, state.version() + 1);
+                onMoved(bankId, state, target);
+                updated++;
+            }
+        }
+        if (updated < pending.size()) {
+            log.info("Bank {}: {} of {} units moved to {}, {} changed concurrently", bankId, updated,
+                    pending.size(), target, pending.size() - updated);
+        } else {
+            log.debug("Bank {}: {} units moved to {}", bankId, updated, target);
+        }
+        return Arrays.asList(results);
+    }
+
+    private void onMoved(Long bankId, UnitState state, UnitStatus target) {
+        unitStockCounters.onBulkStatusChange(bankId, state.bloodType(), state.component(), state.status(), target, 1);
+        if (target == UnitStatus.AVAILABLE) {
+            unitExpiryWheel.onAvailable(bankId, state.id(), state.bloodType(), state.component(), state.expiryDate());
+        } else if (state.status() == UnitStatus.AVAILABLE) {
+            unitExpiryWheel.onUnavailable(bankId, state.id());
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.bloodbank.service;
+
+import com.bloodbank.entity.BloodUnit;
+import com.bloodbank.entity.BloodUnit.BloodComponent;
+import com.bloodbank.entity.BloodUnit.UnitStatus;
+import com.bloodbank.repository.BloodUnitRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Incrementally maintained blood_units counts per bank x status x blood type x component.
+ * Every unit add, status transition and delete applies a +1/-1 delta, so per-bank
+ * summaries are array reads instead of GROUP BY queries. A scheduled reconciler
+ * recounts from the database and repairs any drift. A bank is only repaired when no
+ * delta for it was in flight or started while the recount ran, since the recount
+ * cannot tell whether such a delta is already in it.
+ */
+@Component
+public class UnitStockCounters {
+
+    private static final Logger log = LoggerFactory.getLogger(UnitStockCounters.class);
+
+    private static final int STATUSES = UnitStatus.values().length;
+    private static final int COMPONENTS = BloodComponent.values().length;
+    private static final int CELLS = STATUSES * BloodTypes.COUNT * COMPONENTS;
+    private static final long BUSY = -1;
+
+    private final BloodUnitRepository bloodUnitRepository;
+    private final Map<Long, BankCounts> countsByBank = new ConcurrentHashMap<>();
+
+    public UnitStockCounters(BloodUnitRepository bloodUnitRepository) {
+        this.bloodUnitRepository = bloodUnitRepository;
+    }
+
+    /**
+     * Counts of one bank. generation moves whenever a delta starts or ends and
+     * inFlight counts deltas whose transaction has not ended; cells are written
+     * under the object's lock.
+     */
+    private static final class BankCounts {
+        final AtomicIntegerArray cells = new AtomicIntegerArray(CELLS);
+        final AtomicLong generation = new AtomicLong();
+        final AtomicInteger inFlight = new AtomicInteger();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        Map<Long, AtomicIntegerArray> counted = recount();
+        countsByBank.clear();
+        counted.forEach((bankId, cells) -> copy(cells, bank(bankId).cells));
+        log.info("Unit stock counters loaded for {} blood banks", counted.size());
+    }
+
+    /**
+     * Scheduled job: compare the counters with a full recount and repair drift.
+     * Banks with deltas in flight or started during the recount are left for the
+     * next run.
+     */
+    @Scheduled(fixedDelayString = "${units.counters.reconcile-interval-ms:900000}",
+            initialDelayString = "${units.counters.reconcile-interval-ms:900000}")
+    public void reconcile() {
+        // Generation of every bank before the recount; BUSY when a delta is in flight.
+        // A bank first seen afterwards started at generation 0.
+        Map<Long, Long> before = new HashMap<>();
+        countsByBank.forEach((bankId, counts) -> before.put(bankId,
+                counts.inFlight.get() == 0 ? counts.generation.get() : BUSY));
+        Map<Long, AtomicIntegerArray> counted = recount();
+
+        int drifted = 0;
+        int skipped = 0;
+        Set<Long> bankIds = new HashSet<>(counted.keySet());
+        bankIds.addAll(countsByBank.keySet());
+        for (Long bankId : bankIds) {
+            BankCounts counts = bank(bankId);
+            AtomicIntegerArray recounted = counted.get(bankId);
+            synchronized (counts) {
+                long generation = before.getOrDefault(bankId, 0L);
+                if (generation == BUSY || generation != counts.generation.get() || counts.inFlight.get() != 0) {
+                    skipped++;
+                    continue;
+                }
+                if (!sameCounts(counts.cells, recounted)) {
+                    drifted++;
+                    copy(recounted, counts.cells);
+                }
+            }
+        }
+
+        if (drifted > 0) {
+            log.warn("Unit stock counters drifted for {} blood banks; repaired from recount ({} busy, skipped)",
+                    drifted, skipped);
+        } else {
+            log.debug("Unit stock counters match the database ({} busy blood banks skipped)", skipped);
+        }
+    }
+
+    // ==================== DELTAS ====================
+
+    public void onCreated(BloodUnit unit) {
+        apply(unit.getBloodBank().getId(), unit.getBloodType(), unit.getComponent(), unit.getStatus(), 1);
+    }
+
+    public void onDeleted(BloodUnit unit) {
+        apply(unit.getBloodBank().getId(), unit.getBloodType(), unit.getComponent(), unit.getStatus(), -1);
+    }
+
+    public void onStatusChange(BloodUnit unit, UnitStatus from, UnitStatus to) {
+        if (from == to) {
+            return;
+        }
+        Long bankId = unit.getBloodBank().getId();
+        apply(bankId, unit.getBloodType(), unit.getComponent(), from, -1);
+        apply(bankId, unit.getBloodType(), unit.getComponent(), to, 1);
+    }
+
+    /**
+     * Delta for set-based updates that move many units of one kind at once
+     */
+    public void onBulkStatusChange(Long bankId, String bloodType, BloodComponent component,
+            UnitStatus from, UnitStatus to, int units) {
+        if (from == to || units == 0) {
+            return;
+        }
+        apply(bankId, bloodType, component, from, -units);
+        apply(bankId, bloodType, component, to, units);
+    }
+
+    public void removeBank(Long bankId) {
+        TransactionHooks.afterCommit(() -> countsByBank.remove(bankId));
+    }
+
+    // ==================== READS ====================
+
+    public long count(Long bankId, UnitStatus status) {
+        AtomicIntegerArray counts = cellsOf(bankId);
+        if (counts == null) {
+            return 0;
+        }
+        long total = 0;
+        for (int type = 0; type < BloodTypes.COUNT; type++) {
+            for (int component = 0; component < COMPONENTS; component++) {
+                total += counts.get(cell(status.ordinal(), type, component));
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Units in the given status per blood type, only types with units
+     */
+    public Map<String, Long> countByBloodType(Long bankId, UnitStatus status) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        AtomicIntegerArray counts = cellsOf(bankId);
+        if (counts == null) {
+            return result;
+        }
+        for (int type = 0; type < BloodTypes.COUNT; type++) {
+            long total = 0;
+            for (int component = 0; component < COMPONENTS; component++) {
+                total += counts.get(cell(status.ordinal(), type, component));
+            }
+            if (total > 0) {
+                result.put(BloodTypes.nameOf(type), total);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Units in the given status per component, only components with units
+     */
+    public Map<BloodComponent, Long> countByComponent(Long bankId, UnitStatus status) {
+        Map<BloodComponent, Long> result = new LinkedHashMap<>();
+        AtomicIntegerArray counts = cellsOf(bankId);
+        if (counts == null) {
+            return result;
+        }
+        for (BloodComponent component : BloodComponent.values()) {
+            long total = 0;
+            for (int type = 0; type < BloodTypes.COUNT; type++) {
+                total += counts.get(cell(status.ordinal(), type, component.ordinal()));
+            }
+            if (total > 0) {
+                result.put(component, total);
+            }
+        }
+        return result;
+    }
+
+    public int count(Long bankId, UnitStatus status, String bloodType, BloodComponent component) {
+        int type = BloodTypes.indexOf(bloodType);
+        AtomicIntegerArray counts = cellsOf(bankId);
+        if (counts == null || type < 0) {
+            return 0;
+        }
+        return counts.get(cell(status.ordinal(), type, component.ordinal()));
+    }
+
+    // ==================== INTERNALS ====================
+
+    private AtomicIntegerArray cellsOf(Long bankId) {
+        BankCounts counts = countsByBank.get(bankId);
+        return counts != null ? counts.cells : null;
+    }
+
+    private void apply(Long bankId, String bloodType, BloodComponent component, UnitStatus status, int delta) {
+        int type = BloodTypes.indexOf(bloodType);
+        if (type < 0 || component == null || status == null) {
+            return;
+        }
+        int cell = cell(status.ordinal(), type, component.ordinal());
+        BankCounts counts = bank(bankId);
+        counts.inFlight.incrementAndGet();
+        counts.generation.incrementAndGet();
+        TransactionHooks.afterCompletion(committed -> {
+            synchronized (counts) {
+                if (committed) {
+                    counts.cells.addAndGet(cell, delta);
+                }
+                counts.generation.incrementAndGet();
+                counts.inFlight.decrementAndGet();
+            }
+        });
+    }
+
+    private BankCounts bank(Long bankId) {
+        return countsByBank.computeIfAbsent(bankId, id -> new BankCounts());
+    }
+
+    private Map<Long, AtomicIntegerArray> recount() {
+        Map<Long, AtomicIntegerArray> counted = new HashMap<>();
+        for (Object[] row : bloodUnitRepository.countAllGrouped()) {
+            int type = BloodTypes.indexOf((String) row[1]);
+            if (type < 0) {
+                continue;
+            }
+            Long bankId = ((Number) row[0]).longValue();
+            BloodComponent component = (BloodComponent) row[2];
+            UnitStatus status = (UnitStatus) row[3];
+            counted.computeIfAbsent(bankId, id -> new AtomicIntegerArray(CELLS))
+                    .addAndGet(cell(status.ordinal(), type, component.ordinal()), ((Number) row[4]).intValue());
+        }
+        return counted;
+    }
+
+    private static void copy(AtomicIntegerArray from, AtomicIntegerArray to) {
+        for (int i = 0; i < CELLS; i++) {
+            to.set(i, from != null ? from.get(i) : 0);
+        }
+    }
+
+    private static boolean sameCounts(AtomicIntegerArray a, AtomicIntegerArray b) {
+        for (int i = 0; i < CELLS; i++) {
+            int left = a != null ? a.get(i) : 0;
+            int right = b != null ? b.get(i) : 0;
+            if (left != right) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int cell(int status, int type, int component) {
+        return (status * BloodTypes.COUNT + type) * COMPONENTS + component;
+    }
+}
@@ -0,0 +1,268 @@
+package com.bloodbank.service;
+
+import com.bloodbank.entity.BloodUnit.BloodComponent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Projects how many available units each bank will waste in the next 1, 3 and 7
+ * days. A nightly job forecasts all banks in parallel on a fork/join pool: each
+ * bank's available units are streamed once and bucketed by days to expiry, then
+ * each blood type / component is consumed first-expiry-first-out at the bank's
+ * recent issue rate. Results are cached per bank until the next run.
+ */
+@Service
+public class WastageForecaster {
+
+    private static final Logger log = LoggerFactory.getLogger(WastageForecaster.class);
+
+    public static final int[] HORIZONS = { 1, 3, 7 };
+    private static final int MAX_HORIZON = HORIZONS[HORIZONS.length - 1];
+    // Bucket for units expiring after the longest horizon
+    private static final int BEYOND = MAX_HORIZON;
+
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    private static final String BANK_IDS_SQL = "SELECT id FROM blood_banks ORDER BY id";
+
+    private static final String AVAILABLE_SQL = "SELECT blood_type, component, expiry_date FROM blood_units " +
+            "WHERE blood_bank_id = ? AND status = 'AVAILABLE'";
+
+    // USED is final, so updated_at of a USED unit is when it was issued
+    private static final String ISSUED_SQL = "SELECT blood_type, component, COUNT(*) FROM blood_units " +
+            "WHERE blood_bank_id = ? AND status = 'USED' AND updated_at >= ? GROUP BY blood_type, component";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ForkJoinPool pool;
+    private final int lookbackDays;
+
+    private final Map<Long, BankForecast> forecasts = new ConcurrentHashMap<>();
+    private volatile Run lastRun;
+
+    public WastageForecaster(JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${units.wastage.lookback-days:28}") int lookbackDays,
+            @Value("${units.wastage.parallelism:4}") int parallelism) {
+        if (lookbackDays <= 0 || parallelism <= 0) {
+            throw new IllegalArgumentException("units.wastage.lookback-days and parallelism must be positive");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        // PostgreSQL only streams with a fetch size inside a transaction
+        this.streamingJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.streamingJdbcTemplate.setFetchSize(STREAM_FETCH_SIZE);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.pool = new ForkJoinPool(parallelism);
+        this.lookbackDays = lookbackDays;
+    }
+
+    /**
+     * Forecast for one blood type and component; maps are keyed by horizon in days
+     */
+    public record Line(String bloodType, BloodComponent component, int available, double issuesPerDay,
+            Map<Integer, Integer> expiring, Map<Integer, Integer> projectedWaste) {
+    }
+
+    /**
+     * Forecast for one bank, lines sorted by projected waste over the longest horizon
+     */
+    public record BankForecast(Long bankId, LocalDate forecastDate, LocalDateTime generatedAt, int lookbackDays,
+            Map<Integer, Integer> projectedWaste, List<Line> lines) {
+    }
+
+    /**
+     * Outcome of one forecast run
+     */
+    public record Run(String trigger, LocalDateTime startedAt, long durationMs, int banks, int failed) {
+    }
+
+    // Per bank: available units by component x type x days to expiry, and units issued in the lookback
+    private static final class BankCounts {
+        final int[][][] expiring = new int[BloodComponent.values().length][BloodTypes.COUNT][MAX_HORIZON + 1];
+        final int[][] issued = new int[BloodComponent.values().length][BloodTypes.COUNT];
+    }
+
+    /**
+     * Nightly job: refresh the forecasts of all banks
+     */
+    @Scheduled(cron = "${units.wastage.forecast-cron:0 30 2 * * *}")
+    public void forecastScheduled() {
+        forecastAll("scheduled");
+    }
+
+    /**
+     * Forecast every bank in parallel and replace the cache; a failing bank keeps
+     * its previous forecast
+     */
+    public Run forecastAll(String trigger) {
+        LocalDateTime startedAt = LocalDateTime.now();
+        long start = System.nanoTime();
+        LocalDate today = LocalDate.now();
+        List<Long> bankIds = jdbcTemplate.queryForList(BANK_IDS_SQL, Long.class);
+
+        List<Callable<BankForecast>> tasks = new ArrayList<>(bankIds.size());
+        for (Long bankId : bankIds) {
+            tasks.add(() -> forecastBank(bankId, today));
+        }
+        int failed = 0;
+        List<Future<BankForecast>> results = pool.invokeAll(tasks);
+        for (int i = 0; i < results.size(); i++) {
+            try {
+                BankForecast forecast = results.get(i).get();
+                forecasts.put(forecast.bankId(), forecast);
+            } catch (ExecutionException e) {
+                failed++;
+                log.warn("Wastage forecast failed for bank {}: {}", bankIds.get(i), e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Wastage forecast interrupted", e);
+            }
+        }
+        forecasts.keySet().retainAll(new HashSet<>(bankIds));
+
+        Run run = new Run(trigger, startedAt, (System.nanoTime() - start) / 1_000_000, bankIds.size(), failed);
+        lastRun = run;
+        log.info("Wastage forecast ({}): {} banks in {} ms, {} failed", trigger, run.banks(), run.durationMs(),
+                failed);
+        return run;
+    }
+
+    /**
+     * Cached forecast of a bank; computed on the spot only when the bank has none yet
+     */
+    public BankForecast getForecast(Long bankId) {
+        BankForecast forecast = forecasts.get(bankId);
+        if (forecast == null) {
+            forecast = forecastBank(bankId, LocalDate.now());
+            forecasts.put(bankId, forecast);
+        }
+        return forecast;
+    }
+
+    /**
+     * Cached forecasts of all banks, most projected waste first
+     */
+    public List<BankForecast> getForecasts() {
+        List<BankForecast> all = new ArrayList<>(forecasts.values());
+        all.sort(Comparator.comparingInt((BankForecast f) -> f.projectedWaste().get(MAX_HORIZON)).reversed()
+                .thenComparing(BankForecast::bankId));
+        return all;
+    }
+
+    public Run getLastRun() {
+        return lastRun;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private BankForecast forecastBank(Long bankId, LocalDate today) {
+        BankCounts counts = readOnlyTransaction.execute(status -> load(bankId, today));
+        BloodComponent[] components = BloodComponent.values();
+
+        List<Line> lines = new ArrayList<>();
+        int[] bankWaste = new int[HORIZONS.length];
+        for (BloodComponent component : components) {
+            for (int type = 0; type < BloodTypes.COUNT; type++) {
+                int[] buckets = counts.expiring[component.ordinal()][type];
+                int available = Arrays.stream(buckets).sum();
+                if (available == 0) {
+                    continue;
+                }
+                double issuesPerDay = (double) counts.issued[component.ordinal()][type] / lookbackDays;
+                double[] wasteByDay = simulate(buckets, issuesPerDay);
+
+                Map<Integer, Integer> expiring = new LinkedHashMap<>();
+                Map<Integer, Integer> waste = new LinkedHashMap<>();
+                for (int h = 0; h < HORIZONS.length; h++) {
+                    int horizon = HORIZONS[h];
+                    expiring.put(horizon, Arrays.stream(buckets, 0, horizon).sum());
+                    int wasted = (int) Math.round(wasteByDay[horizon - 1]);
+                    waste.put(horizon, wasted);
+                    bankWaste[h] += wasted;
+                }
+                lines.add(new Line(BloodTypes.nameOf(type), component, available,
+                        Math.round(issuesPerDay * 100) / 100.0, expiring, waste));
+            }
+        }
+        lines.sort(Comparator.comparingInt((Line l) -> l.projectedWaste().get(MAX_HORIZON)).reversed());
+
+        Map<Integer, Integer> projectedWaste = new LinkedHashMap<>();
+        for (int h = 0; h < HORIZONS.length; h++) {
+            projectedWaste.put(HORIZONS[h], bankWaste[h]);
+        }
+        return new BankForecast(bankId, today, LocalDateTime.now(), lookbackDays, projectedWaste, lines);
+    }
+
+    private BankCounts load(Long bankId, LocalDate today) {
+        BankCounts counts = new BankCounts();
+        Timestamp since = Timestamp.valueOf(today.minusDays(lookbackDays).atStartOfDay());
+        jdbcTemplate.query(ISSUED_SQL, (RowCallbackHandler) rs -> {
+            int type = BloodTypes.indexOf(rs.getString(1));
+            if (type >= 0) {
+                counts.issued[BloodComponent.valueOf(rs.getString(2)).ordinal()][type] = rs.getInt(3);
+            }
+        }, bankId, since);
+
+        streamingJdbcTemplate.query(AVAILABLE_SQL, (RowCallbackHandler) rs -> {
+            int type = BloodTypes.indexOf(rs.getString(1));
+            long daysLeft = ChronoUnit.DAYS.between(today, rs.getDate(3).toLocalDate());
+            // Units already past expiry are left to the expiry sweeper
+            if (type >= 0 && daysLeft >= 0) {
+                int bucket = (int) Math.min(daysLeft, BEYOND);
+                counts.expiring[BloodComponent.valueOf(rs.getString(2)).ordinal()][type][bucket]++;
+            }
+        }, bankId);
+        return counts;
+    }
+
+    /**
+     * Consume units soonest expiry first at issuesPerDay and return the cumulative
+     * number wasted by the end of each day. buckets[d] holds units expiring d days
+     * from today; the last bucket never expires within the horizon.
+     */
+    static double[] simulate(int[] buckets, double issuesPerDay) {
+        double[] remaining = new double[buckets.length];
+        for (int d = 0; d < buckets.length; d++) {
+            remaining[d] = buckets[d];
+        }
+        double[] wasted = new double[MAX_HORIZON];
+        double total = 0;
+        for (int day = 0; day < MAX_HORIZON; day++) {
+            double demand = issuesPerDay;
+            for (int d = day; d < remaining.length && demand > 0; d++) {
+                double taken = Math.min(remaining[d], demand);
+                remaining[d] -= taken;
+                demand -= taken;
+            }
+            // Whatever expires today and was not issued is lost
+            total += remaining[day];
+            remaining[day] = 0;
+            wasted[day] = total;
+        }
+        return wasted;
+    }
+}
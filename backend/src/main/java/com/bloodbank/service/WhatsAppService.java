@@ -1,6 +1,5 @@
 package com.bloodbank.service;
 
-import com.bloodbank.dto.ReservationDto;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -17,6 +16,13 @@ public class WhatsAppService {
 
     private static final Logger log = LoggerFactory.getLogger(WhatsAppService.class);
 
+    public static final String SEND_CONFIRMATION = "/api/whatsapp/send-confirmation";
+    public static final String SEND_STATUS_UPDATE = "/api/whatsapp/send-status-update";
+    public static final String SEND_ELIGIBILITY_REMINDER = "/api/whatsapp/send-eligibility-reminder";
+    public static final String SEND_SHORTAGE_ALERT = "/api/whatsapp/send-blood-shortage-alert";
+
+    private static final Duration DELIVERY_TIMEOUT = Duration.ofSeconds(10);
+
     private final String whatsappServiceUrl;
     private final WebClient webClient;
 
@@ -50,53 +56,20 @@ public class WhatsAppService {
         }
     }
 
-    public void sendReservationConfirmation(ReservationDto reservation) {
-        try {
-            Map<String, Object> payload = new HashMap<>();
-            payload.put("phoneNumber", reservation.getWhatsappNumber());
-            payload.put("patientName", reservation.getPatientName());
-            payload.put("bloodType", reservation.getBloodType());
-            payload.put("unitsNeeded", reservation.getUnitsNeeded());
-            payload.put("bloodBankName", reservation.getBloodBankName());
-            payload.put("reservationId", reservation.getId());
-
-            webClient
-                    .post()
-                    .uri(whatsappServiceUrl + "/api/whatsapp/send-confirmation")
-                    .bodyValue(payload)
-                    .retrieve()
-                    .bodyToMono(Map.class)
-                    .timeout(Duration.ofSeconds(10))
-                    .subscribe(
-                            response -> log.info("WhatsApp confirmation sent for reservation {}", reservation.getId()),
-                            error -> log.warn("Failed to send WhatsApp confirmation: {}", error.getMessage()));
-        } catch (Exception e) {
-            log.warn("Failed to send reservation confirmation: {}", e.getMessage());
-        }
-    }
-
-    public void sendStatusUpdate(String phoneNumber, String patientName,
-            String status, String bloodBankName) {
-        try {
-            Map<String, Object> payload = new HashMap<>();
-            payload.put("phoneNumber", phoneNumber);
-            payload.put("patientName", patientName);
-            payload.put("status", status);
-            payload.put("bloodBankName", bloodBankName);
-
-            webClient
-                    .post()
-                    .uri(whatsappServiceUrl + "/api/whatsapp/send-status-update")
-                    .bodyValue(payload)
-                    .retrieve()
-                    .bodyToMono(Map.class)
-                    .timeout(Duration.ofSeconds(10))
-                    .subscribe(
-                            response -> log.info("WhatsApp status update sent: {} -> {}", patientName, status),
-                            error -> log.warn("Failed to send WhatsApp status update: {}", error.getMessage()));
-        } catch (Exception e) {
-            log.warn("Failed to send status update: {}", e.getMessage());
-        }
+    /**
+     * Post a payload to the WhatsApp service and wait for the reply; throws when
+     * the service is unreachable, times out or rejects the message. Used by the
+     * notification relay, which owns retries.
+     */
+    public void deliver(String path, Map<String, Object> payload) {
+        webClient
+                .post()
+                .uri(whatsappServiceUrl + path)
+                .bodyValue(payload)
+                .retrieve()
+                .toBodilessEntity()
+                .timeout(DELIVERY_TIMEOUT)
+                .block();
     }
 
     public String getQRCode() {
@@ -0,0 +1,103 @@
+package com.bloodbank.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.function.LongPredicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks nearest-bank queries against a brute-force haversine scan of the same
+ * banks, over dense and sparse areas, high latitudes and the antimeridian.
+ */
+class BankSpatialIndexTest {
+
+    private static final double[][] QUERIES = {
+            { 19.07, 72.88 }, { 0.01, -0.01 }, { 60.17, 24.94 }, { 78.22, 15.65 },
+            { 85.5, -40.0 }, { -79.9, 166.7 }, { 51.5, 179.98 }, { -33.87, -179.99 }
+    };
+    private static final double[] RADII_KM = { 2, 8, 50, 500, 3000 };
+    private static final int[] KS = { 1, 5, 40 };
+
+    private final Random random = new Random(11);
+    private final Map<Long, double[]> banks = new HashMap<>();
+    private final BankSpatialIndex index = new BankSpatialIndex(null);
+
+    @Test
+    void matchesBruteForceAroundDenseClusters() {
+        long id = 0;
+        for (double[] query : QUERIES) {
+            // Banks scattered up to ~0.3 degrees around each query point
+            for (int i = 0; i < 300; i++) {
+                add(++id, query[0] + (random.nextDouble() - 0.5) * 0.6, query[1] + (random.nextDouble() - 0.5) * 0.6);
+            }
+        }
+        for (int i = 0; i < 500; i++) {
+            add(++id, random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180);
+        }
+        assertAllQueriesMatch();
+    }
+
+    @Test
+    void matchesBruteForceInSparseAreas() {
+        long id = 0;
+        for (double[] query : QUERIES) {
+            // A handful of banks up to a few hundred kilometres out
+            for (int i = 0; i < 6; i++) {
+                add(++id, query[0] + (random.nextDouble() - 0.5) * 8, query[1] + (random.nextDouble() - 0.5) * 30);
+            }
+        }
+        assertAllQueriesMatch();
+    }
+
+    @Test
+    void ringBoundUsesTheFarLatitudeLongitudeWidth() {
+        // Due east of a query at 80N a bank 20 cells over is ~19 km away; due north
+        // of the query the same number of cells is ~111 km
+        add(1, 80.0, 1.0);
+        add(2, 81.0, 0.0);
+        assertThat(index.nearest(80.0, 0.0, 150, 2, bankId -> true))
+                .extracting(BankSpatialIndex.Hit::bankId)
+                .containsExactly(1L, 2L);
+    }
+
+    private void assertAllQueriesMatch() {
+        LongPredicate everyThird = bankId -> bankId % 3 != 0;
+        for (double[] query : QUERIES) {
+            for (double radius : RADII_KM) {
+                for (int k : KS) {
+                    for (LongPredicate filter : List.<LongPredicate>of(bankId -> true, everyThird)) {
+                        assertThat(ids(index.nearest(query[0], query[1], radius, k, filter)))
+                                .as("query %s, radius %s km, k %d", Arrays.toString(query), radius, k)
+                                .isEqualTo(bruteForce(query[0], query[1], radius, k, filter));
+                    }
+                }
+            }
+        }
+    }
+
+    private void add(long id, double lat, double lng) {
+        lat = Math.max(-90, Math.min(90, lat));
+        lng = lng >= 180 ? lng - 360 : lng < -180 ? lng + 360 : lng;
+        banks.put(id, new double[] { lat, lng });
+        index.update(id, BigDecimal.valueOf(lat), BigDecimal.valueOf(lng));
+    }
+
+    private List<Long> bruteForce(double lat, double lng, double radiusKm, int k, LongPredicate filter) {
+        return banks.entrySet().stream()
+                .filter(e -> filter.test(e.getKey()))
+                .map(e -> new BankSpatialIndex.Hit(e.getKey(),
+                        BankSpatialIndex.haversineKm(lat, lng, e.getValue()[0], e.getValue()[1])))
+                .filter(hit -> hit.distanceKm() <= radiusKm)
+                .sorted(Comparator.comparingDouble(BankSpatialIndex.Hit::distanceKm))
+                .limit(k)
+                .map(BankSpatialIndex.Hit::bankId)
+                .toList();
+    }
+
+    private static List<Long> ids(List<BankSpatialIndex.Hit> hits) {
+        return hits.stream().map(BankSpatialIndex.Hit::bankId).toList();
+    }
+}
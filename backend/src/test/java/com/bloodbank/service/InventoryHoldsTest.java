@@ -0,0 +1,200 @@
+package com.bloodbank.service;
+
+import com.bloodbank.entity.BloodBank;
+import com.bloodbank.entity.Reservation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Races holds and releases from many threads against an in-memory stand-in for
+ * blood_inventory and reservations that applies each conditional UPDATE
+ * atomically, as PostgreSQL does for a single row.
+ */
+class InventoryHoldsTest {
+
+    private static final Long BANK = 1L;
+    private static final String TYPE = "O+";
+    private static final int THREADS = 16;
+
+    private final Database database = new Database();
+    private InventoryHolds holds;
+
+    @BeforeEach
+    void setUp() {
+        holds = new InventoryHolds(database, mock(InventoryMatrix.class), mock(LowStockDetector.class),
+                event -> {
+                });
+    }
+
+    @Test
+    void parallelRequestsForTheLastUnitsHoldExactlyThoseUnits() throws Exception {
+        database.available = 5;
+        AtomicInteger refused = new AtomicInteger();
+
+        List<Boolean> results = race(THREADS * 2, i -> {
+            try {
+                holds.hold(reservation(null, 1, 0));
+                return true;
+            } catch (IllegalArgumentException e) {
+                refused.incrementAndGet();
+                return false;
+            }
+        });
+
+        assertThat(results).filteredOn(Boolean::booleanValue).hasSize(5);
+        assertThat(refused).hasValue(THREADS * 2 - 5);
+        assertThat(database.held).isEqualTo(5);
+    }
+
+    @Test
+    void doubleCancelReleasesTheHoldOnce() throws Exception {
+        database.available = 10;
+        database.held = 5;
+        database.reservationsHeld.put(1L, 3);
+        // Another reservation's hold that a second release must not eat into
+        database.reservationsHeld.put(2L, 2);
+
+        race(THREADS, i -> {
+            // Every caller works from its own copy loaded before any release committed
+            Reservation stale = reservation(1L, 3, 3);
+            holds.release(stale);
+            return stale.getUnitsHeld();
+        });
+
+        assertThat(database.held).isEqualTo(2);
+        assertThat(database.reservationsHeld).containsEntry(1L, 0).containsEntry(2L, 2);
+    }
+
+    @Test
+    void concurrentReopensHoldOnce() throws Exception {
+        database.available = 10;
+        database.reservationsHeld.put(1L, 0);
+
+        List<Boolean> results = race(THREADS, i -> {
+            try {
+                holds.hold(reservation(1L, 3, 0));
+                return true;
+            } catch (IllegalStateException e) {
+                return false;
+            }
+        });
+
+        assertThat(results).filteredOn(Boolean::booleanValue).hasSize(1);
+        assertThat(database.held).isEqualTo(3);
+        assertThat(database.reservationsHeld).containsEntry(1L, 3);
+    }
+
+    private static Reservation reservation(Long id, int units, int held) {
+        BloodBank bank = new BloodBank();
+        bank.setId(BANK);
+        Reservation reservation = Reservation.builder()
+                .id(id)
+                .bloodBank(bank)
+                .bloodType(TYPE)
+                .unitsNeeded(units)
+                .status(Reservation.STATUS_PENDING)
+                .build();
+        reservation.setUnitsHeld(held);
+        return reservation;
+    }
+
+    /**
+     * Runs the task on many threads released at once and collects the results
+     */
+    private static <T> List<T> race(int tasks, Task<T> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < tasks; i++) {
+                int n = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.run(n);
+                }));
+            }
+            start.countDown();
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get(10, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface Task<T> {
+        T run(int n);
+    }
+
+    /**
+     * One blood_inventory row and the units_held column of reservations
+     */
+    private static final class Database extends JdbcTemplate {
+
+        int available;
+        int held;
+        final Map<Long, Integer> reservationsHeld = new HashMap<>();
+
+        @Override
+        public synchronized int update(String sql, Object... args) {
+            assertThat(sql).isEqualTo(InventoryHolds.CLAIM_SQL);
+            Long id = (Long) args[1];
+            if (!reservationsHeld.get(id).equals(args[2])) {
+                return 0;
+            }
+            reservationsHeld.put(id, (Integer) args[0]);
+            return 1;
+        }
+
+        @Override
+        public synchronized <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+            if (sql.equals(InventoryHolds.HOLD_SQL)) {
+                int units = (Integer) args[0];
+                if (available - held < units) {
+                    return List.of();
+                }
+                held += units;
+            } else if (sql.equals(InventoryHolds.RELEASE_SQL)) {
+                held = Math.max(held - (Integer) args[0], 0);
+            } else {
+                assertThat(sql).isEqualTo(InventoryHolds.FIGURES_SQL);
+            }
+            try {
+                return List.of(rowMapper.mapRow(row(available, held), 0));
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public synchronized <T> List<T> queryForList(String sql, Class<T> elementType, Object... args) {
+            assertThat(sql).isEqualTo(InventoryHolds.FREE_SQL);
+            return List.of((T) Integer.valueOf(Math.max(available - held, 0)));
+        }
+
+        private static ResultSet row(int... values) {
+            return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                    new Class<?>[] { ResultSet.class }, (proxy, method, args) -> {
+                        if (method.getName().equals("getInt")) {
+                            return values[(Integer) args[0] - 1];
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+    }
+}
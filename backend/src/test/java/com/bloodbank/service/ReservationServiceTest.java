@@ -0,0 +1,88 @@
+package com.bloodbank.service;
+
+import com.bloodbank.entity.BloodBank;
+import com.bloodbank.entity.Reservation;
+import com.bloodbank.repository.BloodBankRepository;
+import com.bloodbank.repository.ReservationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class ReservationServiceTest {
+
+    private static final Long BANK = 1L;
+    private static final Long RESERVATION = 5L;
+
+    private final ReservationRepository reservationRepository = mock(ReservationRepository.class);
+    private final InventoryService inventoryService = mock(InventoryService.class);
+    private final UnitAllocator unitAllocator = mock(UnitAllocator.class);
+    private final InventoryHolds inventoryHolds = mock(InventoryHolds.class);
+    private ReservationService service;
+    private Reservation reservation;
+
+    @BeforeEach
+    void setUp() {
+        service = new ReservationService(reservationRepository, mock(BloodBankRepository.class),
+                mock(NotificationOutbox.class), inventoryService, unitAllocator, inventoryHolds,
+                mock(ReservationQueue.class), event -> {
+                });
+
+        BloodBank bank = new BloodBank();
+        bank.setId(BANK);
+        bank.setName("City Blood Bank");
+        reservation = Reservation.builder()
+                .id(RESERVATION)
+                .patientName("Patient")
+                .bloodType("A+")
+                .unitsNeeded(2)
+                .bloodBank(bank)
+                .status(Reservation.STATUS_PENDING)
+                .expiresAt(LocalDateTime.now().plusHours(24))
+                .build();
+        reservation.setUnitsHeld(2);
+
+        when(reservationRepository.findByIdForUpdate(RESERVATION)).thenReturn(Optional.of(reservation));
+        when(reservationRepository.save(any(Reservation.class))).thenAnswer(call -> call.getArgument(0));
+    }
+
+    @Test
+    void completeReopenCompleteDeductsAndIssuesOnce() {
+        service.updateStatus(RESERVATION, Reservation.STATUS_COMPLETED);
+
+        assertThatThrownBy(() -> service.updateStatusForBank(RESERVATION, BANK, Reservation.STATUS_PENDING))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.updateStatus(RESERVATION, Reservation.STATUS_CONFIRMED))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.cancelReservation(RESERVATION))
+                .isInstanceOf(IllegalArgumentException.class);
+        service.updateStatusForBank(RESERVATION, BANK, Reservation.STATUS_COMPLETED);
+
+        assertThat(reservation.getStatus()).isEqualTo(Reservation.STATUS_COMPLETED);
+        verify(inventoryService, times(1)).deductUnits(anyLong(), anyString(), anyInt(), anyString());
+        verify(unitAllocator, times(1)).issue(reservation);
+        verify(inventoryHolds, times(1)).release(reservation);
+        verify(inventoryHolds, never()).hold(any());
+    }
+
+    @Test
+    void reopeningAnExpiredReservationGivesItAFreshDeadline() {
+        reservation.setStatus(Reservation.STATUS_EXPIRED);
+        reservation.setUnitsHeld(0);
+        reservation.setExpiresAt(LocalDateTime.now().minusHours(1));
+
+        service.updateStatusForBank(RESERVATION, BANK, Reservation.STATUS_PENDING);
+
+        assertThat(reservation.getExpiresAt()).isAfter(LocalDateTime.now().plusHours(23));
+        verify(inventoryHolds).hold(reservation);
+    }
+}
@@ -0,0 +1,225 @@
+package com.bloodbank.service;
+
+import com.bloodbank.dto.ExpiryHistogram;
+import com.bloodbank.entity.BloodUnit.BloodComponent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives the wheel hour by hour across day, 64-day block and epoch boundaries and
+ * checks every read against a brute-force scan of the same units.
+ */
+class UnitExpiryWheelTest {
+
+    private static final Long BANK = 1L;
+    private static final int[] ALERT_HOURS = { 72, 24 };
+    private static final List<String> TYPES = BloodTypes.all();
+    private static final BloodComponent[] COMPONENTS = BloodComponent.values();
+
+    private final MutableClock clock = new MutableClock();
+    private final List<UnitExpiryEvent> events = new ArrayList<>();
+    private UnitExpiryWheel wheel;
+
+    // Brute-force model: units still waiting to expire, and every unit ever scheduled
+    private final Map<Long, Unit> units = new HashMap<>();
+    private final Map<Long, Unit> scheduled = new HashMap<>();
+
+    private record Unit(Long id, String bloodType, BloodComponent component, LocalDate expiryDate) {
+        LocalDateTime expiresAt() {
+            return expiryDate.plusDays(1).atStartOfDay();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        wheel = new UnitExpiryWheel(null, event -> events.add((UnitExpiryEvent) event), ALERT_HOURS, clock);
+    }
+
+    @Test
+    void readsMatchBruteForceAcrossDayBlockAndEpochBoundaries() {
+        // Day 20480 starts both a 64-day block and a 4096-day epoch
+        LocalDate epochBoundary = LocalDate.ofEpochDay(20480);
+        LocalDate blockBoundary = LocalDate.ofEpochDay((epochBoundary.toEpochDay() / 64 - 2) * 64);
+        LocalDateTime start = blockBoundary.minusDays(2).atTime(21, 0);
+        LocalDateTime end = epochBoundary.plusDays(3).atTime(2, 0);
+        clock.set(start);
+
+        Random random = new Random(42);
+        long nextId = 1;
+        for (int i = 0; i < 400; i++) {
+            schedule(new Unit(nextId++, TYPES.get(random.nextInt(TYPES.size())),
+                    COMPONENTS[random.nextInt(COMPONENTS.length)], start.toLocalDate().plusDays(randomDays(random))));
+        }
+        Set<Long> initial = new HashSet<>(units.keySet());
+        Set<Long> removed = new HashSet<>();
+
+        int hour = 0;
+        for (LocalDateTime now = start.plusHours(1); !now.isAfter(end); now = now.plusHours(1), hour++) {
+            clock.set(now);
+            wheel.advance();
+            final LocalDateTime at = now;
+            units.values().removeIf(u -> !u.expiresAt().isAfter(at));
+
+            // Churn: units come and go while the wheel turns
+            if (hour % 7 == 0 && !units.isEmpty()) {
+                Long id = new ArrayList<>(new TreeSet<>(units.keySet())).get(random.nextInt(units.size()));
+                wheel.onUnavailable(BANK, id);
+                units.remove(id);
+                removed.add(id);
+            }
+            if (hour % 5 == 0) {
+                schedule(new Unit(nextId++, TYPES.get(random.nextInt(TYPES.size())),
+                        COMPONENTS[random.nextInt(COMPONENTS.length)], now.toLocalDate().plusDays(randomDays(random))));
+            }
+
+            for (long hours : new long[] { 0, 5, 30, 24 * 10, 24 * 100, 24 * 6000 }) {
+                LocalDateTime until = now.plusHours(hours);
+                assertThat(wheel.unitsExpiringBefore(BANK, until))
+                        .as("units expiring before %s at %s", until, now)
+                        .isEqualTo(expectedBefore(until));
+            }
+            if (hour % 24 == 0) {
+                LocalDate today = now.toLocalDate();
+                assertThat(wheel.histogram(BANK, today, 14).toRows())
+                        .as("histogram at %s", now)
+                        .isEqualTo(expectedHistogram(today, 14).toRows());
+            }
+        }
+
+        // Every event names only units that expire at its expiresAt
+        for (UnitExpiryEvent event : events) {
+            assertThat(event.bankId()).isEqualTo(BANK);
+            for (Long id : event.unitIds()) {
+                assertThat(scheduled.get(id).expiresAt()).isEqualTo(event.expiresAt());
+            }
+        }
+        // Units scheduled from the start and never removed alert once per threshold crossed during the walk
+        for (int hours : ALERT_HOURS) {
+            Map<Long, Integer> alerts = new HashMap<>();
+            events.stream().filter(e -> e.hoursLeft() == hours)
+                    .forEach(e -> e.unitIds().forEach(id -> alerts.merge(id, 1, Integer::sum)));
+            for (Long id : initial) {
+                if (removed.contains(id)) {
+                    continue;
+                }
+                LocalDateTime crossing = scheduled.get(id).expiresAt().minusHours(hours);
+                boolean crossed = crossing.isAfter(start) && !crossing.isAfter(end);
+                assertThat(alerts.getOrDefault(id, 0))
+                        .as("%d-hour alerts for unit %d", hours, id)
+                        .isEqualTo(crossed ? 1 : 0);
+            }
+        }
+    }
+
+    @Test
+    void unitsScheduledBeyondTheCurrentBlockCascadeDownToHours() {
+        LocalDate blockStart = LocalDate.ofEpochDay((LocalDate.of(2026, 3, 1).toEpochDay() / 64 + 1) * 64);
+        clock.set(blockStart.minusDays(1).atTime(12, 0));
+        schedule(new Unit(7L, "O+", COMPONENTS[0], blockStart.plusDays(1)));
+
+        // Cross the block boundary, then the day boundary into the unit's expiry day
+        for (LocalDateTime now = blockStart.minusDays(1).atTime(13, 0); now.isBefore(blockStart.plusDays(2).atStartOfDay());
+                now = now.plusHours(1)) {
+            clock.set(now);
+            wheel.advance();
+            assertThat(wheel.unitsExpiringBefore(BANK, blockStart.plusDays(2).atStartOfDay())).containsExactly(7L);
+            assertThat(wheel.unitsExpiringBefore(BANK, blockStart.plusDays(2).atStartOfDay().minusHours(1)))
+                    .isEmpty();
+        }
+
+        clock.set(blockStart.plusDays(2).atStartOfDay());
+        wheel.advance();
+        assertThat(wheel.unitsExpiringBefore(BANK, blockStart.plusDays(30).atStartOfDay())).isEmpty();
+        assertThat(events).extracting(UnitExpiryEvent::hoursLeft).containsExactly(24);
+    }
+
+    @Test
+    void removedUnitsAreNeverReportedOrAlerted() {
+        LocalDateTime start = LocalDate.of(2026, 6, 1).atTime(8, 0);
+        clock.set(start);
+        schedule(new Unit(1L, "A+", COMPONENTS[0], start.toLocalDate().plusDays(2)));
+        schedule(new Unit(2L, "A+", COMPONENTS[0], start.toLocalDate().plusDays(2)));
+        wheel.onUnavailable(BANK, 1L);
+
+        for (int h = 1; h <= 72; h++) {
+            clock.set(start.plusHours(h));
+            wheel.advance();
+        }
+        assertThat(events).isNotEmpty()
+                .allSatisfy(e -> assertThat(e.unitIds()).containsExactly(2L));
+    }
+
+    private void schedule(Unit unit) {
+        wheel.onAvailable(BANK, unit.id(), unit.bloodType(), unit.component(), unit.expiryDate());
+        if (unit.expiresAt().isAfter(LocalDateTime.now(clock))) {
+            units.put(unit.id(), unit);
+        }
+        scheduled.put(unit.id(), unit);
+    }
+
+    private List<Long> expectedBefore(LocalDateTime until) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        return units.values().stream()
+                .filter(u -> u.expiresAt().isAfter(now) && !u.expiresAt().isAfter(until))
+                .sorted(Comparator.comparing(Unit::expiresAt).thenComparing(Unit::id))
+                .map(Unit::id)
+                .toList();
+    }
+
+    private ExpiryHistogram expectedHistogram(LocalDate today, int days) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        ExpiryHistogram histogram = new ExpiryHistogram(TYPES, days);
+        for (Unit unit : units.values()) {
+            long daysLeft = unit.expiryDate().toEpochDay() - today.toEpochDay();
+            if (unit.expiresAt().isAfter(now) && daysLeft >= 0 && daysLeft <= days) {
+                histogram.add((int) daysLeft, unit.component(), TYPES.indexOf(unit.bloodType()));
+            }
+        }
+        return histogram;
+    }
+
+    // Mostly near-term expiries, some past the current block, a few past the epoch
+    private static int randomDays(Random random) {
+        int bucket = random.nextInt(10);
+        if (bucket < 6) {
+            return random.nextInt(10) - 1;
+        }
+        if (bucket < 9) {
+            return random.nextInt(200);
+        }
+        return 4000 + random.nextInt(4000);
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant instant = Instant.EPOCH;
+
+        void set(LocalDateTime at) {
+            instant = at.toInstant(ZoneOffset.UTC);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.bloodbank.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class WastageForecasterTest {
+
+    @Test
+    void withoutIssuesEveryExpiringUnitIsWasted() {
+        int[] buckets = { 2, 1, 0, 4, 0, 0, 3, 9 };
+        assertThat(WastageForecaster.simulate(buckets, 0))
+                .containsExactly(2, 3, 3, 7, 7, 7, 10);
+    }
+
+    @Test
+    void demandAboveStockWastesNothing() {
+        int[] buckets = { 5, 5, 5, 5, 5, 5, 5, 5 };
+        assertThat(WastageForecaster.simulate(buckets, 5))
+                .containsOnly(0);
+    }
+
+    @Test
+    void issuesSoonestExpiryFirstAndCarriesDemandForward() {
+        // Day 0 wastes one of two units; day 1 issues from day 2's three; day 2 wastes one;
+        // the rest of the week drains the units beyond the horizon
+        int[] buckets = { 2, 0, 3, 0, 0, 0, 0, 5 };
+        assertThat(WastageForecaster.simulate(buckets, 1))
+                .containsExactly(1, 1, 2, 2, 2, 2, 2);
+    }
+
+    @Test
+    void fractionalDemandAccumulatesAcrossDays() {
+        int[] buckets = { 0, 3, 0, 0, 0, 0, 0, 0 };
+        double[] wasted = WastageForecaster.simulate(buckets, 0.5);
+        assertThat(wasted[0]).isZero();
+        assertThat(wasted[1]).isCloseTo(2.0, within(1e-9));
+        assertThat(wasted[6]).isCloseTo(2.0, within(1e-9));
+    }
+
+    @Test
+    void wasteIsCumulativeAndBoundedByUnitsExpiringInTheHorizon() {
+        Random random = new Random(7);
+        for (int run = 0; run < 500; run++) {
+            int[] buckets = new int[8];
+            for (int d = 0; d < buckets.length; d++) {
+                buckets[d] = random.nextInt(6);
+            }
+            double rate = random.nextDouble() * 4;
+            double[] wasted = WastageForecaster.simulate(buckets, rate);
+
+            assertThat(wasted).hasSize(7);
+            for (int day = 0; day < wasted.length; day++) {
+                int expiring = Arrays.stream(buckets, 0, day + 1).sum();
+                assertThat(wasted[day]).isBetween(0.0, (double) expiring);
+                // Demand up to the end of the day can save at most that many units
+                assertThat(wasted[day]).isGreaterThanOrEqualTo(expiring - rate * (day + 1) - 1e-9);
+                if (day > 0) {
+                    assertThat(wasted[day]).isGreaterThanOrEqualTo(wasted[day - 1]);
+                }
+            }
+        }
+    }
+}
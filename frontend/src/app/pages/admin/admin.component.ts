@@ -598,8 +598,8 @@ export class AdminComponent implements OnInit {
                 reservation.status = newStatus;
                 this.loadStats();
                 this.applyFilter();
-                const whatsappSent = response.whatsappNotification === 'sent';
-                console.log(`Status updated to ${newStatus}. WhatsApp: ${whatsappSent ? 'Sent' : 'Not sent'}`);
+                const whatsappQueued = response.whatsappNotification === 'queued';
+                console.log(`Status updated to ${newStatus}. WhatsApp: ${whatsappQueued ? 'Queued' : 'Not sent'}`);
             },
             error: (err) => {
                 console.error('Failed to update status:', err);
@@ -1,8 +1,9 @@
-import { Component, OnInit, ViewChild, ElementRef } from '@angular/core';
+import { Component, OnInit, OnDestroy, ViewChild, ElementRef } from '@angular/core';
 import { CommonModule } from '@angular/common';
 import { FormsModule } from '@angular/forms';
 import { Router, RouterModule } from '@angular/router';
-import { ApiService } from '../../services/api.service';
+import { ApiService, BankEvent } from '../../services/api.service';
+import { Subscription } from 'rxjs';
 import { BaseChartDirective } from 'ng2-charts';
 import { ChartConfiguration, ChartData, ChartType } from 'chart.js';
 
@@ -13,7 +14,7 @@ import { ChartConfiguration, ChartData, ChartType } from 'chart.js';
     templateUrl: './bank-portal.component.html',
     styleUrl: './bank-portal.component.css'
 })
-export class BankPortalComponent implements OnInit {
+export class BankPortalComponent implements OnInit, OnDestroy {
     bankInfo: any = null;
     stats: any = null;
     reservations: any[] = [];
@@ -22,6 +23,11 @@ export class BankPortalComponent implements OnInit {
     loading = true;
     activeView = 'dashboard';
 
+    // Live feed
+    private events?: Subscription;
+    private feedConnected = false;
+    private statsRefresh?: ReturnType<typeof setTimeout>;
+
     // Toast notifications
     toast: { message: string; type: 'success' | 'error' | 'info' } | null = null;
 
@@ -182,6 +188,58 @@ export class BankPortalComponent implements OnInit {
         this.loadInventory();
         this.loadExpiringBlood();
         this.loadPendingDonations();
+        this.events = this.apiService.getBankEvents().subscribe(event => this.onBankEvent(event));
+    }
+
+    ngOnDestroy() {
+        this.events?.unsubscribe();
+        clearTimeout(this.statsRefresh);
+    }
+
+    // Live feed: apply pushed changes instead of polling
+    onBankEvent(event: BankEvent) {
+        switch (event.type) {
+            case 'connected':
+                // Events sent while disconnected are lost; reload once after a reconnect
+                if (this.feedConnected) {
+                    this.loadReservations();
+                    this.loadInventory();
+                    this.loadExpiringBlood();
+                    this.refreshStatsSoon();
+                }
+                this.feedConnected = true;
+                break;
+            case 'inventory': {
+                const item = this.inventory.find(i => i.blood_type === event.data.bloodType);
+                if (item) {
+                    item.units_available = event.data.units;
+                    item.units_held = event.data.unitsHeld;
+                    item.units_free = event.data.freeUnits;
+                } else {
+                    this.loadInventory();
+                }
+                this.refreshStatsSoon();
+                break;
+            }
+            case 'reservation':
+                this.loadReservations();
+                this.refreshStatsSoon();
+                break;
+            case 'low-stock':
+                if (event.data.low) {
+                    this.showToast(`${event.data.bloodType} is low: ${event.data.units} units left`, 'info');
+                }
+                break;
+            case 'unit-expiring':
+                this.loadExpiringBlood();
+                break;
+        }
+    }
+
+    // Coalesce bursts of events into one stats request
+    refreshStatsSoon() {
+        clearTimeout(this.statsRefresh);
+        this.statsRefresh = setTimeout(() => this.loadStats(), 1000);
     }
 
     loadStats() {
@@ -1,9 +1,19 @@
 import { Injectable } from '@angular/core';
 import { HttpClient } from '@angular/common/http';
-import { Observable } from 'rxjs';
-import { map } from 'rxjs/operators';
+import { EMPTY, Observable } from 'rxjs';
+import { expand, map, reduce } from 'rxjs/operators';
 
 // Interfaces
+export interface BankEvent {
+    type: string;
+    data: any;
+}
+
+// Event names sent by /bank/events; 'connected' opens every (re)connection
+const BANK_EVENT_TYPES = ['connected', 'reservation', 'inventory', 'low-stock', 'unit-expiring'];
+// Wait before reopening a feed the server refused, e.g. after the stream token expired
+const BANK_EVENTS_RETRY_MS = 3000;
+
 export interface BloodBank {
     id: number;
     name: string;
@@ -49,6 +59,15 @@ interface ApiResponse<T> {
     error?: string;
 }
 
+// One page of a cursor-paginated list endpoint
+interface PagedResponse<T> extends ApiResponse<T[]> {
+    nextCursor?: string | null;
+    hasMore?: boolean;
+}
+
+// Largest page the backend serves (PageCursor.MAX_LIMIT)
+const PAGE_LIMIT = 500;
+
 @Injectable({
     providedIn: 'root'
 })
@@ -57,9 +76,23 @@ export class ApiService {
 
     constructor(private http: HttpClient) { }
 
+    // Fetch every page of a cursor-paginated list by following nextCursor,
+    // returned as one { success, data, count } response
+    private getAllPages<T>(url: string, headers?: { [header: string]: string }): Observable<ApiResponse<T[]>> {
+        const separator = url.includes('?') ? '&' : '?';
+        const page = (cursor?: string | null) => this.http.get<PagedResponse<T>>(
+            `${url}${separator}limit=${PAGE_LIMIT}` + (cursor ? `&cursor=${encodeURIComponent(cursor)}` : ''),
+            { headers });
+        return page().pipe(
+            expand(response => response.hasMore && response.nextCursor ? page(response.nextCursor) : EMPTY),
+            reduce((all: T[], response) => all.concat(response.data || []), [] as T[]),
+            map(data => ({ success: true, data, count: data.length }))
+        );
+    }
+
     // Blood Banks
     getBloodBanks(): Observable<BloodBank[]> {
-        return this.http.get<ApiResponse<BloodBank[]>>(`${this.baseUrl}/blood-banks`)
+        return this.getAllPages<BloodBank>(`${this.baseUrl}/blood-banks`)
             .pipe(map(response => response.data));
     }
 
@@ -102,7 +135,7 @@ export class ApiService {
     }
 
     getReservations(): Observable<Reservation[]> {
-        return this.http.get<ApiResponse<Reservation[]>>(`${this.baseUrl}/reservations`)
+        return this.getAllPages<Reservation>(`${this.baseUrl}/reservations`)
             .pipe(map(response => response.data));
     }
 
@@ -137,7 +170,7 @@ export class ApiService {
 
     // Admin Donors
     getAdminDonors(): Observable<any> {
-        return this.http.get<any>(`${this.baseUrl}/admin/donors`);
+        return this.getAllPages<any>(`${this.baseUrl}/admin/donors`);
     }
 
     // WhatsApp
@@ -202,6 +235,46 @@ export class ApiService {
         }).pipe(map(response => response.data));
     }
 
+    // Live dashboard feed (server-sent events). EventSource cannot send headers, so the
+    // stream is opened with a short-lived stream token in the query string, never the
+    // session token. The browser reconnects by itself after a drop; once the stream
+    // token has expired that reconnect is refused, so a fresh token is fetched instead.
+    getBankEvents(): Observable<BankEvent> {
+        return new Observable<BankEvent>(subscriber => {
+            let source: EventSource | null = null;
+            let retry: ReturnType<typeof setTimeout> | null = null;
+            let closed = false;
+            const listener = (event: Event) => {
+                const message = event as MessageEvent;
+                subscriber.next({ type: message.type, data: JSON.parse(message.data) });
+            };
+            const open = () => {
+                this.http.post<any>(`${this.baseUrl}/bank/events/token`, {}, {
+                    headers: { Authorization: `Bearer ${localStorage.getItem('bankToken')}` }
+                }).subscribe({
+                    next: response => {
+                        if (closed) return;
+                        const current = new EventSource(`${this.baseUrl}/bank/events?token=${encodeURIComponent(response.token)}`);
+                        BANK_EVENT_TYPES.forEach(type => current.addEventListener(type, listener));
+                        current.onerror = () => {
+                            if (current.readyState === EventSource.CLOSED && !closed) {
+                                retry = setTimeout(open, BANK_EVENTS_RETRY_MS);
+                            }
+                        };
+                        source = current;
+                    },
+                    error: err => subscriber.error(err)
+                });
+            };
+            open();
+            return () => {
+                closed = true;
+                if (retry) clearTimeout(retry);
+                source?.close();
+            };
+        });
+    }
+
     // ==================== DONOR APIs ====================
 
     // Send OTP to donor phone
@@ -481,9 +554,8 @@ export class ApiService {
         if (bloodType) params.append('bloodType', bloodType);
         if (component) params.append('component', component);
         const query = params.toString() ? `?${params.toString()}` : '';
-        return this.http.get<any>(`${this.baseUrl}/bank/units${query}`, {
-            headers: { Authorization: `Bearer ${localStorage.getItem('bankToken')}` }
-        });
+        return this.getAllPages<any>(`${this.baseUrl}/bank/units${query}`,
+            { Authorization: `Bearer ${localStorage.getItem('bankToken')}` });
     }
 
     // Get expiring units